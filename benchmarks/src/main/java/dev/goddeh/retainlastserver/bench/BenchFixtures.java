@@ -0,0 +1,66 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Shared setup for the benchmark states
+ */
+public final class BenchFixtures {
+
+    private BenchFixtures() {
+    }
+
+    public static Path createDataDirectory() throws IOException {
+        return Files.createTempDirectory("bloxyproxy-bench");
+    }
+
+    public static void deleteDataDirectory(Path dataDirectory) throws IOException {
+        if (dataDirectory == null || !Files.exists(dataDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Deterministic UUID for the nth fake player, so runs are comparable
+     *
+     * @param index Player index
+     * @return The player's UUID
+     */
+    public static UUID uuid(int index) {
+        return new UUID(0x5EED000000004000L | index, 0x8000000000000000L | (index * 0x9E3779B97F4A7C15L >>> 2));
+    }
+
+    /**
+     * Fills the player data cache with a realistic spread of records
+     *
+     * @param playerDataConfig The store to fill
+     * @param players Number of records
+     * @param servers Number of distinct backends records point at
+     */
+    public static void populate(PlayerDataConfig playerDataConfig, int players, int servers) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < players; i++) {
+            String server = "server-" + (i % servers);
+            playerDataConfig.updatePlayerData(new PlayerDataConfig.PlayerData(
+                    uuid(i),
+                    "Player" + i,
+                    server,
+                    now - i * 1000L,
+                    now - i * 5000L,
+                    1 + i % 50,
+                    i % 2 == 0,
+                    i % 100 == 0 ? server : null
+            ));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dev.goddeh.retainlastserver.bench;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar. Passes everything through to JMH, but writes JSON results to
+ * target/jmh-result.json unless a result format or file was given.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.add("-rff");
+            arguments.add("target/jmh-result.json");
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,69 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.MessagesConfig;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a messages.conf entry into text or a component, as every admin broadcast does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRenderingBenchmark {
+
+    private Path dataDirectory;
+    private MessagesConfig messagesConfig;
+    private Map<String, String> placeholders;
+
+    @Setup
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        messagesConfig = new MessagesConfig(new FakeProxyServer().asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+
+        placeholders = new HashMap<>();
+        placeholders.put("player", "Notch");
+        placeholders.put("from", "lobby-1");
+        placeholders.put("to", "survival-3");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+
+    @Benchmark
+    public String messageWithoutPlaceholders() {
+        return messagesConfig.getMessage("server.all_offline",
+                "All servers are currently offline. Please try again later.", null);
+    }
+
+    @Benchmark
+    public String messageWithPlaceholders() {
+        return messagesConfig.getMessage("player.switch",
+                "§6[SWITCH] §e%%player%%: %%from%% §f->§e %%to%%", placeholders);
+    }
+
+    @Benchmark
+    public Component componentWithoutPlaceholders() {
+        return messagesConfig.getComponent("server.all_offline",
+                "All servers are currently offline. Please try again later.", null);
+    }
+
+    @Benchmark
+    public Component componentWithPlaceholders() {
+        return messagesConfig.getComponent("player.switch",
+                "§6[SWITCH] §e%%player%%: %%from%% §f->§e %%to%%", placeholders);
+    }
+}
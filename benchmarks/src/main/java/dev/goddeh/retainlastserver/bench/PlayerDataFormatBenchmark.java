@@ -0,0 +1,161 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The streaming data.conf reader and writer against building a Configurate node tree for the
+ * whole file, and the binary data.bin snapshot, at 500k players. Besides wall time each run reports peakHeapMb: how far the heap
+ * grew above what was live before the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PlayerDataFormatBenchmark {
+
+    @Param({"500000"})
+    public int players;
+
+    private Path dataDirectory;
+    private FakeProxyServer proxy;
+    private PlayerDataConfig playerDataConfig;
+    private Path binaryDirectory;
+    private PlayerDataConfig binaryConfig;
+    private ConfigurationLoader<CommentedConfigurationNode> configurateLoader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        proxy = new FakeProxyServer();
+        playerDataConfig = new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        BenchFixtures.populate(playerDataConfig, players, 30);
+        playerDataConfig.saveConfig();
+        configurateLoader = HoconConfigurationLoader.builder()
+                .setPath(dataDirectory.resolve("data.conf"))
+                .build();
+
+        // Its own directory, the newer of data.conf and data.bin is the one loaded
+        binaryDirectory = BenchFixtures.createDataDirectory();
+        binaryConfig = new PlayerDataConfig(proxy.asProxyServer(), binaryDirectory, NOPLogger.NOP_LOGGER, true);
+        BenchFixtures.populate(binaryConfig, players, 30);
+        binaryConfig.saveConfig();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+        BenchFixtures.deleteDataDirectory(binaryDirectory);
+    }
+
+    /**
+     * Peak heap growth of one run, measured from the memory pools
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long peakHeapMb;
+        private long before;
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            System.gc();
+            before = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    before += pool.getUsage().getUsed();
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void record() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapMb = Math.max(0, peak - before) >> 20;
+        }
+    }
+
+    @Benchmark
+    public PlayerDataConfig streamingLoad(Heap heap) {
+        return new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+    }
+
+    @Benchmark
+    public Map<UUID, PlayerDataConfig.PlayerData> configurateLoad(Heap heap) throws IOException {
+        // What loading did before: the whole file as a node tree, then every record out of it
+        CommentedConfigurationNode root = configurateLoader.load();
+        Map<UUID, PlayerDataConfig.PlayerData> cache = new HashMap<>();
+        for (Map.Entry<Object, ? extends CommentedConfigurationNode> entry : root.getNode("players").getChildrenMap().entrySet()) {
+            UUID uuid = UUID.fromString(entry.getKey().toString());
+            CommentedConfigurationNode node = entry.getValue();
+            cache.put(uuid, new PlayerDataConfig.PlayerData(
+                    uuid,
+                    node.getNode("name").getString("Unknown"),
+                    node.getNode("lastServer").getString(null),
+                    node.getNode("lastConnected").getLong(0),
+                    node.getNode("firstConnected").getLong(System.currentTimeMillis()),
+                    node.getNode("totalConnections").getInt(0),
+                    node.getNode("whitelisted").getBoolean(false),
+                    node.getNode("awaitingReconnect").getString(null)
+            ));
+        }
+        return cache;
+    }
+
+    @Benchmark
+    public PlayerDataConfig binaryLoad(Heap heap) {
+        return new PlayerDataConfig(proxy.asProxyServer(), binaryDirectory, NOPLogger.NOP_LOGGER, true);
+    }
+
+    @Benchmark
+    public void binarySave(Heap heap) {
+        binaryConfig.saveConfig();
+    }
+
+    @Benchmark
+    public void streamingSave(Heap heap) {
+        playerDataConfig.saveConfig();
+    }
+
+    @Benchmark
+    public void configurateSave(Heap heap) throws IOException {
+        // What saving did before: a node tree holding every record, then written out
+        CommentedConfigurationNode root = configurateLoader.createEmptyNode();
+        for (int i = 0; i < players; i++) {
+            UUID uuid = BenchFixtures.uuid(i);
+            PlayerDataConfig.PlayerData data = playerDataConfig.getPlayerData(uuid);
+            CommentedConfigurationNode node = root.getNode("players", uuid.toString());
+            node.getNode("name").setValue(data.getName());
+            node.getNode("lastServer").setValue(data.getLastServer());
+            node.getNode("lastConnected").setValue(data.getLastConnected());
+            node.getNode("firstConnected").setValue(data.getFirstConnected());
+            node.getNode("totalConnections").setValue(data.getTotalConnections());
+            node.getNode("whitelisted").setValue(data.isWhitelisted());
+            node.getNode("awaitingReconnect").setValue(data.getAwaitingReconnect());
+        }
+        configurateLoader.save(root);
+    }
+}
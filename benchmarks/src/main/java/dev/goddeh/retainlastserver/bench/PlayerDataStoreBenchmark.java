@@ -0,0 +1,59 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full data.conf load (startup), reload merged into a live cache, and save (autosave and
+ * whitelist changes)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PlayerDataStoreBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int players;
+
+    private Path dataDirectory;
+    private FakeProxyServer proxy;
+    private PlayerDataConfig playerDataConfig;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        proxy = new FakeProxyServer();
+        playerDataConfig = new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        BenchFixtures.populate(playerDataConfig, players, 30);
+        playerDataConfig.saveConfig();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+
+    @Benchmark
+    public PlayerDataConfig load() {
+        return new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+    }
+
+    @Benchmark
+    public int reload() {
+        return playerDataConfig.reload();
+    }
+
+    @Benchmark
+    public void save() {
+        playerDataConfig.saveConfig();
+    }
+}
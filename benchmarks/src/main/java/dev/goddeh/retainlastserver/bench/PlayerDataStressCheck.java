@@ -0,0 +1,151 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakePlayer;
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hammers a few players' data from many threads at once, as logins, server switches and
+ * whitelist changes would, while another thread keeps saving. Fails if a connection count is
+ * off by even one, if a save or read ever sees a half-applied update, or if the saved file
+ * disagrees with memory. Run with
+ * {@code java -cp benchmarks.jar dev.goddeh.retainlastserver.bench.PlayerDataStressCheck [threads] [updates per thread]}.
+ */
+public final class PlayerDataStressCheck {
+
+    // Few players so every one of them is contended
+    private static final int PLAYERS = 16;
+
+    private PlayerDataStressCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        Path dataDirectory = BenchFixtures.createDataDirectory();
+        FakeProxyServer proxy = new FakeProxyServer();
+        List<FakePlayer> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(proxy.addPlayer(BenchFixtures.uuid(i), "Player" + i));
+        }
+        PlayerDataConfig playerDataConfig = new PlayerDataConfig(proxy.asProxyServer(), dataDirectory,
+                NOPLogger.NOP_LOGGER, false, 1);
+
+        AtomicLongArray expected = new AtomicLongArray(PLAYERS);
+        AtomicInteger torn = new AtomicInteger();
+        AtomicInteger saves = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Saves keep running while the updates do, each must see whole records
+        Thread saver = new Thread(() -> {
+            while (running.get()) {
+                playerDataConfig.saveConfig();
+                saves.incrementAndGet();
+                for (FakePlayer player : players) {
+                    if (!consistent(playerDataConfig.getPlayerData(player.getUniqueId()))) {
+                        torn.incrementAndGet();
+                    }
+                }
+            }
+        }, "stress-saver");
+        saver.start();
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < updates; i++) {
+                    int index = random.nextInt(PLAYERS);
+                    FakePlayer player = players.get(index);
+                    UUID uuid = player.getUniqueId();
+                    switch (random.nextInt(4)) {
+                        case 0:
+                        case 1:
+                            playerDataConfig.playerConnected(player.asPlayer());
+                            expected.incrementAndGet(index);
+                            break;
+                        case 2:
+                            // Two fields in one update, a reader must never see only one of them
+                            String server = "server-" + random.nextInt(8);
+                            playerDataConfig.updatePlayerData(uuid, data -> data
+                                    .withLastServer(server)
+                                    .withAwaitingReconnect(server));
+                            break;
+                        default:
+                            if (random.nextInt(64) == 0) {
+                                playerDataConfig.setWhitelisted(uuid, random.nextBoolean());
+                            } else if (!consistent(playerDataConfig.getPlayerData(uuid))) {
+                                torn.incrementAndGet();
+                            }
+                            break;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        executor.shutdown();
+        running.set(false);
+        saver.join();
+
+        List<String> failures = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < PLAYERS; i++) {
+            int counted = playerDataConfig.getPlayerData(players.get(i).getUniqueId()).getTotalConnections();
+            total += counted;
+            if (counted != expected.get(i)) {
+                failures.add("Player" + i + " has " + counted + " connections, expected " + expected.get(i));
+            }
+        }
+        if (torn.get() > 0) {
+            failures.add(torn.get() + " reads saw a half-applied update");
+        }
+
+        // What was saved must match memory exactly
+        playerDataConfig.close();
+        PlayerDataConfig reloaded = new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = players.get(i).getUniqueId();
+            PlayerDataConfig.PlayerData saved = reloaded.getPlayerData(uuid);
+            PlayerDataConfig.PlayerData live = playerDataConfig.getPlayerData(uuid);
+            if (saved.getTotalConnections() != live.getTotalConnections()
+                    || saved.isWhitelisted() != live.isWhitelisted()
+                    || !consistent(saved)) {
+                failures.add("Player" + i + " was saved differently from memory");
+            }
+        }
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+
+        System.out.printf("%d threads, %d updates in %d ms, %d connections counted, %d saves alongside%n",
+                threads, (long) threads * updates, elapsedMillis, total, saves.get());
+        if (!failures.isEmpty()) {
+            failures.forEach(System.out::println);
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static boolean consistent(PlayerDataConfig.PlayerData data) {
+        String lastServer = data.getLastServer();
+        return lastServer == null ? data.getAwaitingReconnect() == null : lastServer.equals(data.getAwaitingReconnect());
+    }
+}
@@ -0,0 +1,86 @@
+package dev.goddeh.retainlastserver.bench;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.bench.fake.FakePlayer;
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import dev.goddeh.retainlastserver.routing.FallbackBalancer;
+import dev.goddeh.retainlastserver.routing.ServerGroupRouter;
+import dev.goddeh.retainlastserver.routing.ServerPriorityResolver;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Priority server resolution across 50 backends, as run for every player landing in limbo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityResolutionBenchmark {
+
+    private static final int BACKENDS = 50;
+
+    private Path dataDirectory;
+    private ServerPriorityResolver resolver;
+    private Predicate<RegisteredServer> isOnline;
+    private FakePlayer noPriority;
+    private FakePlayer singlePriority;
+    private FakePlayer firstChoiceOffline;
+
+    @Setup
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        FakeProxyServer proxy = new FakeProxyServer();
+        proxy.addServer("limbo");
+        for (int i = 1; i <= BACKENDS; i++) {
+            proxy.addServer("backend-" + i);
+        }
+        proxy.getServer("backend-" + BACKENDS).setOnline(false);
+
+        MainConfig mainConfig = new MainConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        BackendLoadTracker loadTracker = new BackendLoadTracker();
+        ServerGroupRouter groupRouter = new ServerGroupRouter(proxy.asProxyServer(), mainConfig, loadTracker,
+                new FallbackBalancer(loadTracker, mainConfig));
+        resolver = new ServerPriorityResolver(proxy.asProxyServer(), mainConfig, groupRouter);
+        isOnline = server -> server.ping().getNow(null) != null;
+
+        noPriority = proxy.addPlayer(UUID.randomUUID(), "NoPriority");
+        singlePriority = proxy.addPlayer(UUID.randomUUID(), "SinglePriority")
+                .grant("server.prioritise.1.backend-25");
+        firstChoiceOffline = proxy.addPlayer(UUID.randomUUID(), "FirstChoiceOffline")
+                .grant("server.prioritise.1.backend-" + BACKENDS)
+                .grant("server.prioritise.2.backend-10")
+                .grant("server.prioritise.3.backend-20");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+
+    @Benchmark
+    public Optional<RegisteredServer> noPriorityPermissions() {
+        return resolver.findPriorityServer(noPriority.asPlayer(), isOnline);
+    }
+
+    @Benchmark
+    public Optional<RegisteredServer> singlePriorityPermission() {
+        return resolver.findPriorityServer(singlePriority.asPlayer(), isOnline);
+    }
+
+    @Benchmark
+    public Optional<RegisteredServer> firstChoiceOffline() {
+        return resolver.findPriorityServer(firstChoiceOffline.asPlayer(), isOnline);
+    }
+}
@@ -0,0 +1,99 @@
+package dev.goddeh.retainlastserver.bench;
+
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import dev.goddeh.retainlastserver.bench.fake.FakePlayer;
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.config.MessagesConfig;
+import dev.goddeh.retainlastserver.health.HealthMonitor;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import dev.goddeh.retainlastserver.routing.FallbackBalancer;
+import dev.goddeh.retainlastserver.routing.ServerGroupRouter;
+import dev.goddeh.retainlastserver.serverlist.ServerListPingHandler;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answering a server list ping with network-wide player counts across 50 backends, from the
+ * cache and when a backend has just reported a new count
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerListPingBenchmark {
+
+    private static final int BACKENDS = 50;
+
+    private Path dataDirectory;
+    private ServerListPingHandler handler;
+    private BackendLoadTracker loadTracker;
+    private FakePlayer client;
+    private ServerPing proxyPing;
+    private int online;
+
+    @Setup
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        FakeProxyServer proxy = new FakeProxyServer();
+        proxy.addServer("limbo");
+        for (int i = 1; i <= BACKENDS; i++) {
+            proxy.addServer("backend-" + i);
+        }
+
+        MainConfig mainConfig = new MainConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        MessagesConfig messagesConfig = new MessagesConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        loadTracker = new BackendLoadTracker();
+        ServerGroupRouter groupRouter = new ServerGroupRouter(proxy.asProxyServer(), mainConfig, loadTracker,
+                new FallbackBalancer(loadTracker, mainConfig));
+        HealthMonitor healthMonitor = new HealthMonitor(this, proxy.asProxyServer(), NOPLogger.NOP_LOGGER, mainConfig,
+                loadTracker, (server, previous, current) -> { });
+        handler = new ServerListPingHandler(proxy.asProxyServer(), mainConfig, messagesConfig, healthMonitor,
+                loadTracker, groupRouter);
+
+        for (int i = 1; i <= BACKENDS; i++) {
+            loadTracker.recordPing("backend-" + i, backendPing(i), 5);
+        }
+        client = proxy.addPlayer(UUID.randomUUID(), "Client");
+        proxyPing = backendPing(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+
+    private static ServerPing backendPing(int online) {
+        return ServerPing.builder()
+                .version(new ServerPing.Version(765, "1.20.4"))
+                .description(Component.text("backend"))
+                .onlinePlayers(online)
+                .maximumPlayers(100)
+                .build();
+    }
+
+    @Benchmark
+    public ServerPing cached() {
+        ProxyPingEvent event = new ProxyPingEvent(client.asPlayer(), proxyPing);
+        handler.onProxyPing(event);
+        return event.getPing();
+    }
+
+    @Benchmark
+    public ServerPing afterCountChange() {
+        // A backend reports a different count, so the cached numbers are worked out again
+        loadTracker.recordPing("backend-1", backendPing(++online % 100), 5);
+        ProxyPingEvent event = new ProxyPingEvent(client.asPlayer(), proxyPing);
+        handler.onProxyPing(event);
+        return event.getPing();
+    }
+}
@@ -0,0 +1,200 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.LoopbackSharedStateBackend;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import dev.goddeh.retainlastserver.config.SharedPlayerChange;
+import dev.goddeh.retainlastserver.config.SharedPlayerState;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs several proxies sharing player state through one loopback hub, changes the same players
+ * on all of them at once, and fails unless every proxy ends up agreeing with the hub. Also
+ * checks that a proxy that never saw a player picks up their state when they log in, and
+ * reports how long a change takes to reach another proxy. Run with
+ * {@code java -cp benchmarks.jar dev.goddeh.retainlastserver.bench.SharedStateCheck [proxies] [updates per proxy]}.
+ */
+public final class SharedStateCheck {
+
+    // Few players so every one of them is changed on several proxies at once
+    private static final int PLAYERS = 64;
+    private static final int FLUSH_MILLIS = 20;
+    private static final int LATENCY_MILLIS = 5;
+
+    private SharedStateCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int proxyCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        LoopbackSharedStateBackend.Hub hub = new LoopbackSharedStateBackend.Hub(LATENCY_MILLIS);
+        List<Proxy> proxies = new ArrayList<>();
+        for (int i = 0; i < proxyCount + 1; i++) {
+            proxies.add(new Proxy(hub));
+        }
+        // The last proxy only joins in for the login check
+        Proxy latecomer = proxies.remove(proxyCount);
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(BenchFixtures.uuid(i));
+            for (Proxy proxy : proxies) {
+                proxy.data.getPlayerData(BenchFixtures.uuid(i));
+            }
+        }
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(proxyCount);
+        List<Future<?>> workers = new ArrayList<>();
+        for (Proxy proxy : proxies) {
+            workers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < updates; i++) {
+                    UUID uuid = players.get(random.nextInt(PLAYERS));
+                    switch (random.nextInt(8)) {
+                        case 0:
+                            proxy.data.setWhitelisted(uuid, random.nextBoolean());
+                            break;
+                        case 1:
+                        case 2:
+                            proxy.data.setAwaitingReconnect(uuid, random.nextBoolean() ? null : "server-" + random.nextInt(4));
+                            break;
+                        default:
+                            proxy.data.setLastServer(uuid, "server-" + random.nextInt(8));
+                            break;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        executor.shutdown();
+        // Let the last flushes and deliveries land
+        Thread.sleep(10L * (FLUSH_MILLIS + LATENCY_MILLIS));
+
+        List<String> failures = new ArrayList<>();
+        Map<UUID, List<SharedPlayerChange>> shared = proxies.get(0).state.getBackend().fetch(players).get();
+        for (UUID uuid : players) {
+            for (int i = 0; i < proxies.size(); i++) {
+                String mismatch = mismatch(proxies.get(i).data.getPlayerDataIfPresent(uuid), shared.get(uuid));
+                if (mismatch != null) {
+                    failures.add("Proxy " + i + " disagrees with the hub on " + mismatch + " of " + uuid);
+                }
+            }
+        }
+
+        // A player logging in through a proxy that has never seen them
+        for (UUID uuid : players) {
+            latecomer.state.refresh(uuid, 1000).get();
+            String mismatch = mismatch(latecomer.data.getPlayerDataIfPresent(uuid), shared.get(uuid));
+            if (mismatch != null) {
+                failures.add("A new proxy got " + mismatch + " of " + uuid + " wrong on login");
+            }
+        }
+
+        // How long one change takes to reach the other proxies
+        UUID probe = players.get(0);
+        long sent = System.nanoTime();
+        proxies.get(0).data.setLastServer(probe, "probe");
+        long propagationMillis = -1;
+        while ((System.nanoTime() - sent) / 1_000_000 < 5000) {
+            if ("probe".equals(proxies.get(proxies.size() - 1).data.getLastServer(probe))) {
+                propagationMillis = (System.nanoTime() - sent) / 1_000_000;
+                break;
+            }
+            Thread.sleep(1);
+        }
+        if (propagationMillis < 0) {
+            failures.add("A change never reached another proxy");
+        }
+
+        proxies.add(latecomer);
+        for (Proxy proxy : proxies) {
+            proxy.close();
+        }
+
+        System.out.printf("%d proxies, %d updates in %d ms, a change reached another proxy in %d ms%n",
+                proxyCount, (long) proxyCount * updates, elapsedMillis, propagationMillis);
+        if (!failures.isEmpty()) {
+            failures.stream().limit(20).forEach(System.out::println);
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    /**
+     * Compares a proxy's copy of a player with the hub's
+     *
+     * @return The first field that differs, or null if they agree
+     */
+    private static String mismatch(PlayerDataConfig.PlayerData data, List<SharedPlayerChange> shared) {
+        if (data == null) {
+            return shared == null ? null : "everything";
+        }
+        String lastServer = null;
+        String awaitingReconnect = null;
+        boolean whitelisted = false;
+        if (shared != null) {
+            for (SharedPlayerChange change : shared) {
+                switch (change.getField()) {
+                    case LAST_SERVER:
+                        lastServer = change.getValue();
+                        break;
+                    case AWAITING_RECONNECT:
+                        awaitingReconnect = change.getValue();
+                        break;
+                    default:
+                        whitelisted = change.isWhitelisted();
+                        break;
+                }
+            }
+        }
+        if (!Objects.equals(lastServer, data.getLastServer())) {
+            return "the last server";
+        }
+        if (!Objects.equals(awaitingReconnect, data.getAwaitingReconnect())) {
+            return "the reconnect server";
+        }
+        if (whitelisted != data.isWhitelisted()) {
+            return "whitelisting";
+        }
+        return null;
+    }
+
+    /**
+     * One proxy's player data, shared through the hub
+     */
+    private static final class Proxy {
+        private final Path dataDirectory = BenchFixtures.createDataDirectory();
+        private final FakeProxyServer server = new FakeProxyServer();
+        private final PlayerDataConfig data = new PlayerDataConfig(server.asProxyServer(), dataDirectory,
+                NOPLogger.NOP_LOGGER, false, 1);
+        private final SharedPlayerState state = new SharedPlayerState(new Object(), server.asProxyServer(),
+                NOPLogger.NOP_LOGGER, data, FLUSH_MILLIS);
+
+        private Proxy(LoopbackSharedStateBackend.Hub hub) throws Exception {
+            state.setBackend(new LoopbackSharedStateBackend(hub));
+            state.start();
+        }
+
+        private void close() throws Exception {
+            state.stop();
+            data.close();
+            BenchFixtures.deleteDataDirectory(dataDirectory);
+        }
+    }
+}
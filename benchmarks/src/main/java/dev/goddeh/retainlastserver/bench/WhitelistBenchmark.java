@@ -0,0 +1,80 @@
+package dev.goddeh.retainlastserver.bench;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import dev.goddeh.retainlastserver.config.WhitelistConfig;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whitelist lookups as done on every login, and the full listing used by the list and remove
+ * commands, against stores of increasing size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WhitelistBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private Path dataDirectory;
+    private WhitelistConfig whitelistConfig;
+    private UUID[] whitelisted;
+    private UUID[] notWhitelisted;
+    private int cursor;
+
+    @Setup
+    public void setup() throws IOException {
+        dataDirectory = BenchFixtures.createDataDirectory();
+        FakeProxyServer proxy = new FakeProxyServer();
+        PlayerDataConfig playerDataConfig = new PlayerDataConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER);
+        BenchFixtures.populate(playerDataConfig, entries, 30);
+        whitelistConfig = new WhitelistConfig(proxy.asProxyServer(), dataDirectory, NOPLogger.NOP_LOGGER, playerDataConfig);
+
+        // populate() whitelists even indexes, so spread probes over both halves of the store
+        whitelisted = new UUID[PROBES];
+        notWhitelisted = new UUID[PROBES];
+        int stride = Math.max(1, entries / PROBES) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (i * stride) % entries;
+            whitelisted[i] = BenchFixtures.uuid(index & ~1);
+            notWhitelisted[i] = BenchFixtures.uuid(index | 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+
+    @Benchmark
+    public boolean checkWhitelisted() {
+        return whitelistConfig.isWhitelisted(whitelisted[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean checkNotWhitelisted() {
+        return whitelistConfig.isWhitelisted(notWhitelisted[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public Map<UUID, String> listWhitelisted() {
+        return whitelistConfig.getWhitelistedPlayers();
+    }
+}
@@ -0,0 +1,203 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import com.velocitypowered.api.event.Continuation;
+import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.Subscribe;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An event manager that dispatches to {@link Subscribe} methods on a thread pool, like Velocity's
+ * async event executor, and records how long handlers hold the event threads and which of them
+ * failed
+ */
+public class FakeEventManager {
+
+    private final List<RegisteredHandler> handlers = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, AtomicLong> handlerNanos = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> handlerFailures = new ConcurrentHashMap<>();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    private final ExecutorService executor;
+    private final EventManager eventManager;
+
+    public FakeEventManager(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-event-executor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventManager = Stubs.create(EventManager.class, "FakeEventManager", this::handle);
+    }
+
+    private Object handle(String method, Object[] args) {
+        switch (method) {
+            case "register":
+                if (args.length == 2) {
+                    register(args[0], args[1]);
+                    return null;
+                }
+                return Stubs.UNHANDLED;
+            case "fire":
+                return fire(args[0]);
+            case "fireAndForget":
+                fire(args[0]);
+                return null;
+            case "unregisterListener":
+                handlers.removeIf(handler -> handler.listener == args[1]);
+                return null;
+            case "unregisterListeners":
+                handlers.removeIf(handler -> handler.plugin == args[0]);
+                return null;
+            default:
+                return Stubs.UNHANDLED;
+        }
+    }
+
+    public void register(Object plugin, Object listener) {
+        List<RegisteredHandler> added = new ArrayList<>();
+        for (Method method : listener.getClass().getMethods()) {
+            Subscribe subscribe = method.getAnnotation(Subscribe.class);
+            if (subscribe != null && method.getParameterCount() == 1) {
+                method.setAccessible(true);
+                added.add(new RegisteredHandler(plugin, listener, method, subscribe.order().ordinal()));
+            }
+        }
+
+        synchronized (handlers) {
+            List<RegisteredHandler> sorted = new ArrayList<>(handlers);
+            sorted.addAll(added);
+            sorted.sort(Comparator.comparingInt(handler -> handler.order));
+            handlers.clear();
+            handlers.addAll(sorted);
+        }
+    }
+
+    /**
+     * Fires an event on the event pool
+     *
+     * @param event The event
+     * @return A future completed with the event once every handler has run
+     */
+    public <E> CompletableFuture<E> fire(E event) {
+        return CompletableFuture.supplyAsync(() -> {
+            dispatch(event);
+            return event;
+        }, executor);
+    }
+
+    /**
+     * Runs every handler for an event on the calling thread
+     *
+     * @param event The event
+     */
+    public void dispatch(Object event) {
+        for (RegisteredHandler handler : handlers) {
+            if (!handler.eventType.isInstance(event)) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                Object result = handler.method.invoke(handler.listener, event);
+                if (result instanceof EventTask) {
+                    awaitTask((EventTask) result);
+                }
+            } catch (InvocationTargetException e) {
+                failed(handler, e.getCause());
+            } catch (CompletionException e) {
+                failed(handler, e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                handlerNanos.computeIfAbsent(handler.eventType, type -> new AtomicLong())
+                        .addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void awaitTask(EventTask task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        task.execute(new Continuation() {
+            @Override
+            public void resume() {
+                done.complete(null);
+            }
+
+            @Override
+            public void resumeWithException(Throwable exception) {
+                done.completeExceptionally(exception);
+            }
+        });
+        done.join();
+    }
+
+    private void failed(RegisteredHandler handler, Throwable cause) {
+        handlerFailures.computeIfAbsent(handler.eventType, type -> new AtomicLong()).incrementAndGet();
+        firstFailure.compareAndSet(null, new IllegalStateException(handler.listener.getClass().getSimpleName()
+                + "." + handler.method.getName() + " failed on " + handler.eventType.getSimpleName(), cause));
+    }
+
+    /**
+     * Total time handlers spent on each event type since creation
+     *
+     * @return Nanoseconds by event class
+     */
+    public Map<Class<?>, Long> getHandlerNanos() {
+        Map<Class<?>, Long> result = new HashMap<>();
+        handlerNanos.forEach((type, nanos) -> result.put(type, nanos.get()));
+        return result;
+    }
+
+    /**
+     * Handlers that threw or whose event task failed since creation, kept through
+     * {@link #resetStatistics()}
+     *
+     * @return Failures by event class
+     */
+    public Map<Class<?>, Long> getHandlerFailures() {
+        Map<Class<?>, Long> result = new HashMap<>();
+        handlerFailures.forEach((type, count) -> result.put(type, count.get()));
+        return result;
+    }
+
+    /**
+     * @return The first handler failure, or null if none failed
+     */
+    public Throwable getFirstFailure() {
+        return firstFailure.get();
+    }
+
+    public void resetStatistics() {
+        handlerNanos.clear();
+    }
+
+    public EventManager asEventManager() {
+        return eventManager;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class RegisteredHandler {
+        private final Object plugin;
+        private final Object listener;
+        private final Method method;
+        private final Class<?> eventType;
+        private final int order;
+
+        private RegisteredHandler(Object plugin, Object listener, Method method, int order) {
+            this.plugin = plugin;
+            this.listener = listener;
+            this.method = method;
+            this.eventType = method.getParameterTypes()[0];
+            this.order = order;
+        }
+    }
+}
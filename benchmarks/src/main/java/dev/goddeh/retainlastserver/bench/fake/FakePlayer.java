@@ -0,0 +1,132 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An offline player with a fixed permission set. Connection requests are handed to the owning
+ * {@link FakeProxyServer}, which decides how they complete.
+ */
+public class FakePlayer {
+
+    private final FakeProxyServer proxy;
+    private final UUID uuid;
+    private final String username;
+    private final Set<String> permissions = ConcurrentHashMap.newKeySet();
+    private final Player player;
+
+    private volatile FakeServer currentServer;
+    private volatile ServerConnection currentConnection;
+    private volatile Component disconnectReason;
+
+    FakePlayer(FakeProxyServer proxy, UUID uuid, String username) {
+        this.proxy = proxy;
+        this.uuid = uuid;
+        this.username = username;
+        this.player = Stubs.create(Player.class, "FakePlayer[" + username + "]", this::handle);
+    }
+
+    private Object handle(String method, Object[] args) {
+        switch (method) {
+            case "getUniqueId":
+                return uuid;
+            case "getUsername":
+                return username;
+            case "hasPermission":
+                return permissions.contains((String) args[0]);
+            case "getCurrentServer":
+                return Optional.ofNullable(currentConnection);
+            case "createConnectionRequest":
+                return connectionRequest((RegisteredServer) args[0]);
+            case "disconnect":
+                disconnectReason = (Component) args[0];
+                proxy.disconnect(this);
+                return null;
+            case "isActive":
+                return disconnectReason == null;
+            default:
+                return Stubs.UNHANDLED;
+        }
+    }
+
+    private ConnectionRequestBuilder connectionRequest(RegisteredServer target) {
+        return Stubs.create(ConnectionRequestBuilder.class, "ConnectionRequest[" + username + "]", (method, args) -> {
+            switch (method) {
+                case "getServer":
+                    return target;
+                case "connect":
+                    return proxy.connect(this, target, false);
+                case "connectWithIndication":
+                    return proxy.connect(this, target, true).thenApply(ConnectionRequestBuilder.Result::isSuccessful);
+                case "fireAndForget":
+                    proxy.connect(this, target, true);
+                    return null;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+
+    /**
+     * Moves the player onto a server, as the proxy does once a backend connection succeeds
+     *
+     * @param server The server the player is now on, or null when they are between servers
+     */
+    public void setCurrentServer(FakeServer server) {
+        FakeServer previous = this.currentServer;
+        if (previous != null) {
+            previous.getConnectedPlayers().remove(player);
+        }
+        this.currentServer = server;
+        if (server == null) {
+            this.currentConnection = null;
+            return;
+        }
+        server.getConnectedPlayers().add(player);
+        this.currentConnection = Stubs.create(ServerConnection.class, "ServerConnection[" + username + "]", (method, args) -> {
+            switch (method) {
+                case "getServer":
+                    return server.asRegisteredServer();
+                case "getServerInfo":
+                    return server.asRegisteredServer().getServerInfo();
+                case "getPlayer":
+                    return player;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+
+    public FakeServer getCurrentServer() {
+        return currentServer;
+    }
+
+    public Component getDisconnectReason() {
+        return disconnectReason;
+    }
+
+    public FakePlayer grant(String permission) {
+        permissions.add(permission);
+        return this;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Player asPlayer() {
+        return player;
+    }
+}
@@ -0,0 +1,247 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import com.velocitypowered.api.command.CommandManager;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.KickedFromServerEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+
+import java.net.ConnectException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * An offline proxy holding fake servers and players. Connection requests follow the target
+ * server's scripted state and latency, and fire the same events Velocity would.
+ */
+public class FakeProxyServer {
+
+    /**
+     * Velocity's default connection timeout, used when a backend never answers
+     */
+    public static final long CONNECTION_TIMEOUT_MILLIS = 5000;
+
+    private final Map<String, FakeServer> servers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<UUID, FakePlayer> players = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService network;
+    private final FakeScheduler scheduler;
+    private final FakeEventManager eventManager;
+    private final CommandManager commandManager;
+    private final ProxyServer proxyServer;
+
+    public FakeProxyServer() {
+        this(new FakeScheduler(), new FakeEventManager(4));
+    }
+
+    public FakeProxyServer(FakeScheduler scheduler, FakeEventManager eventManager) {
+        this.scheduler = scheduler;
+        this.eventManager = eventManager;
+        this.network = Executors.newScheduledThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "fake-network");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.commandManager = Stubs.create(CommandManager.class, "FakeCommandManager", (method, args) -> Stubs.UNHANDLED);
+        this.proxyServer = Stubs.create(ProxyServer.class, "FakeProxyServer", this::handle);
+    }
+
+    protected Object handle(String method, Object[] args) {
+        switch (method) {
+            case "getAllServers":
+                return servers().stream().map(FakeServer::asRegisteredServer).collect(Collectors.toList());
+            case "getServer":
+                return Optional.ofNullable(servers.get((String) args[0])).map(FakeServer::asRegisteredServer);
+            case "getAllPlayers":
+                return onlinePlayers();
+            case "getPlayerCount":
+                return players.size();
+            case "getPlayer":
+                if (args[0] instanceof UUID) {
+                    return Optional.ofNullable(players.get(args[0])).map(FakePlayer::asPlayer);
+                }
+                return players.values().stream()
+                        .filter(player -> player.getUsername().equalsIgnoreCase((String) args[0]))
+                        .findFirst()
+                        .map(FakePlayer::asPlayer);
+            case "getScheduler":
+                return scheduler.asScheduler();
+            case "getEventManager":
+                return eventManager.asEventManager();
+            case "getCommandManager":
+                return commandManager;
+            default:
+                return Stubs.UNHANDLED;
+        }
+    }
+
+    public FakeServer addServer(String name) {
+        FakeServer server = new FakeServer(name, 25566 + servers.size(), network);
+        servers.put(name, server);
+        return server;
+    }
+
+    public FakeServer getServer(String name) {
+        return servers.get(name);
+    }
+
+    public List<FakeServer> servers() {
+        synchronized (servers) {
+            return new ArrayList<>(servers.values());
+        }
+    }
+
+    public FakePlayer addPlayer(UUID uuid, String username) {
+        FakePlayer player = new FakePlayer(this, uuid, username);
+        players.put(uuid, player);
+        return player;
+    }
+
+    public FakePlayer getPlayer(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    public Collection<FakePlayer> players() {
+        return players.values();
+    }
+
+    void disconnect(FakePlayer player) {
+        if (players.remove(player.getUniqueId()) == null) {
+            return;
+        }
+        eventManager.dispatch(new DisconnectEvent(player.asPlayer(), DisconnectEvent.LoginStatus.SUCCESSFUL_LOGIN));
+        player.setCurrentServer(null);
+    }
+
+    /**
+     * Attempts a backend connection, completing after the server's scripted connect latency
+     *
+     * @param player The connecting player
+     * @param target The server to connect to
+     * @param handleFailure Whether a failure goes through {@link KickedFromServerEvent}, as
+     *                      Velocity does for fireAndForget and connectWithIndication
+     * @return The connection result
+     */
+    CompletableFuture<ConnectionRequestBuilder.Result> connect(FakePlayer player, RegisteredServer target, boolean handleFailure) {
+        FakeServer server = servers.get(target.getServerInfo().getName());
+        if (player.getCurrentServer() == server) {
+            return CompletableFuture.completedFuture(result(server, ConnectionRequestBuilder.Status.ALREADY_CONNECTED, null));
+        }
+
+        FakeServer.State state = server.getState();
+        long latency = state == FakeServer.State.UNRESPONSIVE ? CONNECTION_TIMEOUT_MILLIS : server.getConnectLatencyMillis();
+        CompletableFuture<ConnectionRequestBuilder.Result> attempt = server.after(latency, () -> {
+            if (!players.containsKey(player.getUniqueId())) {
+                return result(server, ConnectionRequestBuilder.Status.CONNECTION_CANCELLED, null);
+            }
+            if (!server.isOnline()) {
+                // Velocity fails the future when the backend cannot be reached at all
+                throw new ConnectException(state == FakeServer.State.UNRESPONSIVE
+                        ? "Connection timed out: " + server.getName()
+                        : "Connection refused: " + server.getName());
+            }
+
+            FakeServer previous = player.getCurrentServer();
+            player.setCurrentServer(server);
+            eventManager.dispatch(new ServerConnectedEvent(player.asPlayer(), server.asRegisteredServer(),
+                    previous == null ? null : previous.asRegisteredServer()));
+            return result(server, ConnectionRequestBuilder.Status.SUCCESS, null);
+        });
+
+        if (!handleFailure) {
+            return attempt;
+        }
+        return attempt.handle((result, throwable) -> {
+            if (throwable != null) {
+                // No kick reason from the backend, only Velocity's own error
+                kick(player, server, null, true);
+                return result(server, ConnectionRequestBuilder.Status.SERVER_DISCONNECTED, null);
+            }
+            if (!result.isSuccessful()) {
+                kick(player, server, result.getReasonComponent().orElse(null), true);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Kicks a player from a backend, fires {@link KickedFromServerEvent} and applies its result
+     *
+     * @param player The player
+     * @param server The server they were kicked from, or failed to connect to
+     * @param reason The kick reason
+     * @param duringServerConnect Whether the kick happened while connecting
+     */
+    public void kick(FakePlayer player, FakeServer server, Component reason, boolean duringServerConnect) {
+        if (!duringServerConnect) {
+            player.setCurrentServer(null);
+        }
+
+        KickedFromServerEvent event = new KickedFromServerEvent(player.asPlayer(), server.asRegisteredServer(), reason,
+                duringServerConnect, KickedFromServerEvent.DisconnectPlayer.create(reason));
+        eventManager.dispatch(event);
+
+        KickedFromServerEvent.ServerKickResult result = event.getResult();
+        if (result instanceof KickedFromServerEvent.RedirectPlayer
+                && ((KickedFromServerEvent.RedirectPlayer) result).getServer() != null) {
+            connect(player, ((KickedFromServerEvent.RedirectPlayer) result).getServer(), false);
+        } else if (player.getCurrentServer() == null) {
+            // Nowhere to go: Velocity drops the player from the proxy
+            disconnect(player);
+        }
+    }
+
+    /**
+     * Creates a connection result as the proxy would report it
+     *
+     * @param server The server the connection was attempted to
+     * @param status The outcome of the attempt
+     * @param reason The kick reason, or null
+     * @return The connection result
+     */
+    public static ConnectionRequestBuilder.Result result(FakeServer server, ConnectionRequestBuilder.Status status, Component reason) {
+        return Stubs.create(ConnectionRequestBuilder.Result.class, "Result[" + status + "]", (method, args) -> {
+            switch (method) {
+                case "getStatus":
+                    return status;
+                case "isSuccessful":
+                    return status == ConnectionRequestBuilder.Status.SUCCESS;
+                case "getReasonComponent":
+                    return Optional.ofNullable(reason);
+                case "getAttemptedConnection":
+                    return server.asRegisteredServer();
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+
+    public FakeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public FakeEventManager getEventManager() {
+        return eventManager;
+    }
+
+    public ProxyServer asProxyServer() {
+        return proxyServer;
+    }
+
+    public Collection<Player> onlinePlayers() {
+        return players.values().stream().map(FakePlayer::asPlayer).collect(Collectors.toList());
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        eventManager.shutdown();
+        network.shutdownNow();
+    }
+}
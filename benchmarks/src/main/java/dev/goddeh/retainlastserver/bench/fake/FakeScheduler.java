@@ -0,0 +1,123 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import com.velocitypowered.api.scheduler.TaskStatus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Velocity scheduler built the same way as the proxy's: one timer thread handing due tasks to
+ * an unbounded task pool
+ */
+public class FakeScheduler {
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService taskService;
+    private final Scheduler scheduler;
+
+    public FakeScheduler() {
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-scheduler-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.taskService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Stubs.create(Scheduler.class, "FakeScheduler", (method, args) -> {
+            if (method.equals("buildTask") && args[1] instanceof Runnable) {
+                return new TaskBuilder(args[0], (Runnable) args[1]).builder;
+            }
+            return Stubs.UNHANDLED;
+        });
+    }
+
+    /**
+     * Runs a task on the scheduler pool. Overridden to instrument task execution.
+     *
+     * @param task The task to run
+     */
+    protected void run(Runnable task) {
+        task.run();
+    }
+
+    public Scheduler asScheduler() {
+        return scheduler;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        taskService.shutdownNow();
+    }
+
+    private final class TaskBuilder {
+        private final Object plugin;
+        private final Runnable task;
+        private final Scheduler.TaskBuilder builder;
+        private long delayMillis;
+        private long repeatMillis;
+
+        private TaskBuilder(Object plugin, Runnable task) {
+            this.plugin = plugin;
+            this.task = task;
+            this.builder = Stubs.create(Scheduler.TaskBuilder.class, "TaskBuilder", this::handle);
+        }
+
+        private Object handle(String method, Object[] args) {
+            switch (method) {
+                case "delay":
+                    delayMillis = toMillis(args);
+                    return builder;
+                case "repeat":
+                    repeatMillis = toMillis(args);
+                    return builder;
+                case "clearDelay":
+                    delayMillis = 0;
+                    return builder;
+                case "clearRepeat":
+                    repeatMillis = 0;
+                    return builder;
+                case "schedule":
+                    return schedule();
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        }
+
+        private long toMillis(Object[] args) {
+            if (args.length == 2) {
+                return ((TimeUnit) args[1]).toMillis((Long) args[0]);
+            }
+            return ((java.time.Duration) args[0]).toMillis();
+        }
+
+        private ScheduledTask schedule() {
+            Runnable wrapped = () -> taskService.execute(() -> run(task));
+            ScheduledFuture<?> future = repeatMillis > 0
+                    ? timer.scheduleAtFixedRate(wrapped, delayMillis, repeatMillis, TimeUnit.MILLISECONDS)
+                    : timer.schedule(wrapped, delayMillis, TimeUnit.MILLISECONDS);
+
+            return Stubs.create(ScheduledTask.class, "ScheduledTask", (method, args) -> {
+                switch (method) {
+                    case "plugin":
+                        return plugin;
+                    case "status":
+                        if (future.isCancelled()) return TaskStatus.CANCELLED;
+                        return future.isDone() ? TaskStatus.FINISHED : TaskStatus.SCHEDULED;
+                    case "cancel":
+                        future.cancel(false);
+                        return null;
+                    default:
+                        return Stubs.UNHANDLED;
+                }
+            });
+        }
+    }
+}
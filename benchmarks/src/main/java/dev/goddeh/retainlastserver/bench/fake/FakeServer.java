@@ -0,0 +1,197 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import net.kyori.adventure.text.Component;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An offline backend whose ping answers, latency and failures are scripted instead of coming
+ * from the network
+ */
+public class FakeServer {
+
+    /**
+     * How the backend answers pings and connection attempts
+     */
+    public enum State {
+        /** Answers normally */
+        ONLINE,
+        /** Process is gone: connections are refused straight away */
+        REFUSING,
+        /** Host is hung or unreachable: nothing ever answers */
+        UNRESPONSIVE
+    }
+
+    private final String name;
+    private final ServerInfo serverInfo;
+    private final RegisteredServer registeredServer;
+    private final ScheduledExecutorService network;
+    private final Set<Player> connectedPlayers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong pingsIssued = new AtomicLong();
+
+    private volatile State state = State.ONLINE;
+    private volatile int maxPlayers = 500;
+    private volatile long pingLatencyMillis;
+    private volatile long connectLatencyMillis;
+    private volatile double pingFailureRate;
+
+    public FakeServer(String name, int port, ScheduledExecutorService network) {
+        this.name = name;
+        this.network = network;
+        this.serverInfo = new ServerInfo(name, InetSocketAddress.createUnresolved("127.0.0.1", port));
+        this.registeredServer = Stubs.create(RegisteredServer.class, "FakeServer[" + name + "]", this::handle);
+    }
+
+    private Object handle(String method, Object[] args) {
+        switch (method) {
+            case "getServerInfo":
+                return serverInfo;
+            case "getPlayersConnected":
+                return new ArrayList<>(connectedPlayers);
+            case "ping":
+                return ping();
+            default:
+                return Stubs.UNHANDLED;
+        }
+    }
+
+    /**
+     * Answers a status ping from the current fake state, after the scripted latency
+     *
+     * @return The ping future, failed if the server refuses and never completed if it is unresponsive
+     */
+    public CompletableFuture<ServerPing> ping() {
+        pingsIssued.incrementAndGet();
+        State current = state;
+        if (current == State.UNRESPONSIVE) {
+            return new CompletableFuture<>();
+        }
+
+        boolean fails = current == State.REFUSING
+                || (pingFailureRate > 0 && ThreadLocalRandom.current().nextDouble() < pingFailureRate);
+        return after(pingLatencyMillis, () -> {
+            if (fails) {
+                throw new ConnectException("Connection refused: " + name);
+            }
+            return createPing();
+        });
+    }
+
+    protected ServerPing createPing() {
+        return ServerPing.builder()
+                .version(new ServerPing.Version(763, "Fake " + name))
+                .description(Component.text(name))
+                .onlinePlayers(connectedPlayers.size())
+                .maximumPlayers(maxPlayers)
+                .build();
+    }
+
+    /**
+     * Completes a future with the result of a task once a delay has passed
+     */
+    <T> CompletableFuture<T> after(long delayMillis, FailableSupplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable complete = () -> {
+            try {
+                future.complete(task.get());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (delayMillis <= 0) {
+            complete.run();
+        } else {
+            try {
+                network.schedule(complete, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The simulated network has been shut down
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    interface FailableSupplier<T> {
+        T get() throws Exception;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RegisteredServer asRegisteredServer() {
+        return registeredServer;
+    }
+
+    public Collection<Player> getConnectedPlayers() {
+        return connectedPlayers;
+    }
+
+    public boolean isOnline() {
+        return state == State.ONLINE;
+    }
+
+    public void setOnline(boolean online) {
+        this.state = online ? State.ONLINE : State.REFUSING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+
+    public long getPingLatencyMillis() {
+        return pingLatencyMillis;
+    }
+
+    public void setPingLatencyMillis(long pingLatencyMillis) {
+        this.pingLatencyMillis = pingLatencyMillis;
+    }
+
+    public long getConnectLatencyMillis() {
+        return connectLatencyMillis;
+    }
+
+    public void setConnectLatencyMillis(long connectLatencyMillis) {
+        this.connectLatencyMillis = connectLatencyMillis;
+    }
+
+    public double getPingFailureRate() {
+        return pingFailureRate;
+    }
+
+    public void setPingFailureRate(double pingFailureRate) {
+        this.pingFailureRate = pingFailureRate;
+    }
+
+    public long getPingsIssued() {
+        return pingsIssued.get();
+    }
+}
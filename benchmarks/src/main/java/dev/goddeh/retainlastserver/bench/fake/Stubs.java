@@ -0,0 +1,72 @@
+package dev.goddeh.retainlastserver.bench.fake;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds Velocity API implementations from dynamic proxies, so the fakes only answer the methods
+ * the plugin calls and keep compiling whatever else the API version declares.
+ */
+final class Stubs {
+
+    /**
+     * Marker returned by a handler for methods it does not implement
+     */
+    static final Object UNHANDLED = new Object();
+
+    interface Handler {
+        Object handle(String method, Object[] args) throws Throwable;
+    }
+
+    private Stubs() {
+    }
+
+    static <T> T create(Class<T> type, String description, Handler handler) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object[] arguments = args == null ? new Object[0] : args;
+            switch (method.getName()) {
+                case "equals":
+                    if (arguments.length == 1) return proxy == arguments[0];
+                    break;
+                case "hashCode":
+                    if (arguments.length == 0) return System.identityHashCode(proxy);
+                    break;
+                case "toString":
+                    if (arguments.length == 0) return description;
+                    break;
+                default:
+                    break;
+            }
+
+            Object result = handler.handle(method.getName(), arguments);
+            if (result != UNHANDLED) {
+                return result;
+            }
+            return defaultValue(method, type, proxy);
+        });
+        return type.cast(stub);
+    }
+
+    private static Object defaultValue(Method method, Class<?> type, Object proxy) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) return null;
+        if (returnType == boolean.class) return false;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == double.class) return 0D;
+        if (returnType == float.class) return 0F;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == char.class) return (char) 0;
+        if (returnType == Optional.class) return Optional.empty();
+        if (returnType == CompletableFuture.class) return CompletableFuture.completedFuture(null);
+        if (returnType == List.class || returnType == Collection.class) return Collections.emptyList();
+        if (returnType == Set.class) return Collections.emptySet();
+        if (returnType == Map.class) return Collections.emptyMap();
+        // Fluent builders return themselves
+        if (returnType.isAssignableFrom(type)) return proxy;
+        return null;
+    }
+}
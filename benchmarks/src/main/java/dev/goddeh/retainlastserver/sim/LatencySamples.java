@@ -0,0 +1,59 @@
+package dev.goddeh.retainlastserver.sim;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe collector of latency samples in nanoseconds
+ */
+final class LatencySamples {
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    synchronized void add(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    synchronized void clear() {
+        size = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Summarises the samples as milliseconds
+     *
+     * @return Count, p50, p90, p99 and max
+     */
+    synchronized Map<String, Object> summary() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", size);
+        summary.put("p50_ms", percentile(sorted, 0.50));
+        summary.put("p90_ms", percentile(sorted, 0.90));
+        summary.put("p99_ms", percentile(sorted, 0.99));
+        summary.put("max_ms", size == 0 ? 0D : millis(sorted[size - 1]));
+        return summary;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0D;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return millis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000D) / 100D;
+    }
+}
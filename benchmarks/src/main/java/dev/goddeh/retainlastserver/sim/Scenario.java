@@ -0,0 +1,21 @@
+package dev.goddeh.retainlastserver.sim;
+
+import java.util.List;
+
+/**
+ * A scripted sequence of logins, outages and recoveries
+ */
+interface Scenario {
+
+    String name();
+
+    /**
+     * Backends besides limbo that the network starts with
+     */
+    List<String> backends();
+
+    /**
+     * Drives the network. Only what happens after {@link SimulationContext#beginMeasurement()} is reported.
+     */
+    void run(SimulationContext context, int players) throws InterruptedException;
+}
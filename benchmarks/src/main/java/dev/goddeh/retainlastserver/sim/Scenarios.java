@@ -0,0 +1,140 @@
+package dev.goddeh.retainlastserver.sim;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeServer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The scenarios the harness knows about
+ */
+final class Scenarios {
+
+    private static final long SETTLE_TIMEOUT_MILLIS = 120_000;
+
+    private Scenarios() {
+    }
+
+    static Map<String, Scenario> all() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        register(scenarios, new LoginStorm());
+        register(scenarios, new BackendCrash("backend-crash", FakeServer.State.REFUSING));
+        register(scenarios, new BackendCrash("backend-hang", FakeServer.State.UNRESPONSIVE));
+        register(scenarios, new FlappingBackend());
+        return scenarios;
+    }
+
+    private static void register(Map<String, Scenario> scenarios, Scenario scenario) {
+        scenarios.put(scenario.name(), scenario);
+    }
+
+    private static List<String> pools() {
+        List<String> backends = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            backends.add("lobby-" + i);
+        }
+        for (int i = 1; i <= 4; i++) {
+            backends.add("survival-" + i);
+        }
+        return backends;
+    }
+
+    private static void settle(SimulationContext context) throws InterruptedException {
+        context.await(() -> context.getRecorder().getAwaitingLimbo() == 0
+                && context.getRecorder().getAwaitingReconnect() == 0, SETTLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Everyone reconnects at once, as after a proxy restart
+     */
+    private static final class LoginStorm implements Scenario {
+        @Override
+        public String name() {
+            return "login-storm";
+        }
+
+        @Override
+        public List<String> backends() {
+            return pools();
+        }
+
+        @Override
+        public void run(SimulationContext context, int players) throws InterruptedException {
+            context.beginMeasurement();
+            context.loginFlood(players, 3000);
+            settle(context);
+        }
+    }
+
+    /**
+     * The busiest backend dies, stays down for a while and comes back
+     */
+    private static final class BackendCrash implements Scenario {
+        private final String name;
+        private final FakeServer.State failure;
+
+        private BackendCrash(String name, FakeServer.State failure) {
+            this.name = name;
+            this.failure = failure;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public List<String> backends() {
+            return pools();
+        }
+
+        @Override
+        public void run(SimulationContext context, int players) throws InterruptedException {
+            context.loginFlood(players, 3000);
+            settle(context);
+
+            String victim = context.busiestBackend();
+            context.beginMeasurement();
+            context.crash(victim, failure);
+            context.await(() -> context.playersOn(victim) == 0
+                    && context.getRecorder().getAwaitingLimbo() == 0, SETTLE_TIMEOUT_MILLIS);
+
+            Thread.sleep(10_000);
+            context.recover(victim);
+            settle(context);
+        }
+    }
+
+    /**
+     * A backend that keeps crashing and restarting every few seconds
+     */
+    private static final class FlappingBackend implements Scenario {
+        @Override
+        public String name() {
+            return "flapping-backend";
+        }
+
+        @Override
+        public List<String> backends() {
+            return pools();
+        }
+
+        @Override
+        public void run(SimulationContext context, int players) throws InterruptedException {
+            context.loginFlood(players, 3000);
+            settle(context);
+
+            String victim = context.busiestBackend();
+            context.beginMeasurement();
+            for (int cycle = 0; cycle < 5; cycle++) {
+                context.crash(victim, FakeServer.State.REFUSING);
+                Thread.sleep(4_000);
+                context.recover(victim);
+                Thread.sleep(4_000);
+            }
+            settle(context);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package dev.goddeh.retainlastserver.sim;
+
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.bench.BenchFixtures;
+import dev.goddeh.retainlastserver.bench.fake.FakeEventManager;
+import dev.goddeh.retainlastserver.bench.fake.FakePlayer;
+import dev.goddeh.retainlastserver.bench.fake.FakeProxyServer;
+import dev.goddeh.retainlastserver.bench.fake.FakeServer;
+import net.kyori.adventure.text.Component;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated network: a fake proxy with scripted backends, and the real plugin wired to it
+ * exactly as Velocity would wire it
+ */
+public final class SimulationContext implements AutoCloseable {
+
+    /**
+     * Velocity's default read timeout, after which players on a hung backend are kicked
+     */
+    static final long READ_TIMEOUT_MILLIS = 30_000;
+
+    private final List<String> limboServers;
+    private final Path dataDirectory;
+    private final TimedScheduler scheduler = new TimedScheduler();
+    private final FakeProxyServer proxy;
+    private final SimulationRecorder recorder;
+    private final ScheduledExecutorService clients;
+    private final RetainLastServer plugin;
+    private final Map<String, Long> pingBaseline = new HashMap<>();
+    private int nextPlayer;
+
+    SimulationContext(List<String> limboServers, List<String> backends, long pingLatencyMillis, long connectLatencyMillis) throws IOException {
+        this.limboServers = limboServers;
+        this.dataDirectory = BenchFixtures.createDataDirectory();
+        this.proxy = new FakeProxyServer(scheduler, new FakeEventManager(32));
+        this.clients = Executors.newScheduledThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "simulated-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<String> names = new ArrayList<>();
+        names.addAll(limboServers);
+        names.addAll(backends);
+        for (String name : names) {
+            FakeServer server = proxy.addServer(name);
+            server.setPingLatencyMillis(pingLatencyMillis);
+            server.setConnectLatencyMillis(connectLatencyMillis);
+            server.setMaxPlayers(1000);
+        }
+
+        Files.writeString(dataDirectory.resolve("config.conf"),
+                "server {\n  limbo_server = [\"" + String.join("\", \"", limboServers) + "\"]\n  check_interval_seconds = 5\n}\n");
+
+        this.recorder = new SimulationRecorder(new HashSet<>(limboServers));
+        this.plugin = new RetainLastServer(proxy.asProxyServer(), dataDirectory);
+        inject(plugin, "logger", NOPLogger.NOP_LOGGER);
+
+        FakeEventManager events = proxy.getEventManager();
+        events.register(this, recorder);
+        events.register(plugin, plugin);
+        events.dispatch(new ProxyInitializeEvent());
+    }
+
+    private static void inject(Object target, String fieldName, Logger logger) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, logger);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName, e);
+        }
+    }
+
+    /**
+     * Logs a new player in, through the real PostLoginEvent handler
+     *
+     * @return The player
+     */
+    FakePlayer login() {
+        int index;
+        synchronized (this) {
+            index = nextPlayer++;
+        }
+        FakePlayer player = proxy.addPlayer(BenchFixtures.uuid(index), "Sim" + index)
+                .grant("blox.connect")
+                .grant("server.last_server");
+        recorder.loggedIn(player.getUniqueId());
+        proxy.getEventManager().fire(new PostLoginEvent(player.asPlayer()));
+        return player;
+    }
+
+    /**
+     * Logs players in evenly over a window and waits until the last one has been fired
+     *
+     * @param players Number of logins
+     * @param windowMillis Time the logins are spread over
+     */
+    void loginFlood(int players, long windowMillis) throws InterruptedException {
+        long spacingMicros = players <= 1 ? 0 : windowMillis * 1000 / players;
+        for (int i = 0; i < players; i++) {
+            clients.schedule(this::login, i * spacingMicros, TimeUnit.MICROSECONDS);
+        }
+        Thread.sleep(windowMillis + 50);
+    }
+
+    /**
+     * Takes a backend down. Refused backends drop their players immediately; hung backends keep
+     * them until Velocity's read timeout fires.
+     *
+     * @param serverName The backend
+     * @param state How it fails
+     */
+    void crash(String serverName, FakeServer.State state) {
+        FakeServer server = proxy.getServer(serverName);
+        server.setState(state);
+
+        List<FakePlayer> victims = new ArrayList<>();
+        for (FakePlayer player : proxy.players()) {
+            if (player.getCurrentServer() == server) {
+                victims.add(player);
+                recorder.lostBackend(player.getUniqueId(), serverName);
+            }
+        }
+
+        long kickDelay = state == FakeServer.State.UNRESPONSIVE ? READ_TIMEOUT_MILLIS : 0;
+        Component reason = Component.text(state == FakeServer.State.UNRESPONSIVE ? "Timed out" : "Server closed");
+        for (FakePlayer player : victims) {
+            clients.schedule(() -> {
+                if (player.getCurrentServer() == server) {
+                    proxy.kick(player, server, reason, false);
+                }
+            }, kickDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void recover(String serverName) {
+        proxy.getServer(serverName).setState(FakeServer.State.ONLINE);
+        recorder.backendRecovered(serverName);
+    }
+
+    /**
+     * Waits for a condition, giving up after a timeout
+     *
+     * @return Whether the condition was met
+     */
+    boolean await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return condition.getAsBoolean();
+    }
+
+    /**
+     * Forgets everything recorded so far, so a scenario can measure only its interesting phase
+     */
+    void beginMeasurement() {
+        recorder.reset();
+        scheduler.reset();
+        proxy.getEventManager().resetStatistics();
+        pingBaseline.clear();
+        for (FakeServer server : proxy.servers()) {
+            pingBaseline.put(server.getName(), server.getPingsIssued());
+        }
+    }
+
+    long pingsIssued() {
+        long pings = 0;
+        for (FakeServer server : proxy.servers()) {
+            pings += server.getPingsIssued() - pingBaseline.getOrDefault(server.getName(), 0L);
+        }
+        return pings;
+    }
+
+    /**
+     * Backend with the most players on it
+     */
+    String busiestBackend() {
+        return proxy.servers().stream()
+                .filter(server -> !limboServers.contains(server.getName()))
+                .max(Comparator.comparingInt(server -> server.getConnectedPlayers().size()))
+                .map(FakeServer::getName)
+                .orElseThrow();
+    }
+
+    int playersOn(String serverName) {
+        return proxy.getServer(serverName).getConnectedPlayers().size();
+    }
+
+    int onlinePlayers() {
+        return proxy.players().size();
+    }
+
+    FakeProxyServer getProxy() {
+        return proxy;
+    }
+
+    SimulationRecorder getRecorder() {
+        return recorder;
+    }
+
+    TimedScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void close() throws IOException {
+        clients.shutdownNow();
+        proxy.shutdown();
+        BenchFixtures.deleteDataDirectory(dataDirectory);
+    }
+}
@@ -0,0 +1,151 @@
+package dev.goddeh.retainlastserver.sim;
+
+import com.google.gson.GsonBuilder;
+import dev.goddeh.retainlastserver.bench.fake.FakeEventManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs outage scenarios against the real plugin on a fake network and reports how players fared.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar dev.goddeh.retainlastserver.sim.SimulationHarness \
+ *     [scenario...] [--players 3000] [--ping-latency 5] [--connect-latency 50] [--limbos 1]
+ *     [--json target/simulation.json]
+ * </pre>
+ *
+ * Scenarios: login-storm, backend-crash, backend-hang, flapping-backend. All run when none are named.
+ */
+public final class SimulationHarness {
+
+    private SimulationHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Scenario> known = Scenarios.all();
+        List<Scenario> selected = new ArrayList<>();
+        int players = 3000;
+        long pingLatency = 5;
+        long connectLatency = 50;
+        int limbos = 1;
+        Path json = Paths.get("target", "simulation.json");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                case "--ping-latency":
+                    pingLatency = Long.parseLong(args[++i]);
+                    break;
+                case "--connect-latency":
+                    connectLatency = Long.parseLong(args[++i]);
+                    break;
+                case "--limbos":
+                    limbos = Integer.parseInt(args[++i]);
+                    break;
+                case "--json":
+                    json = Paths.get(args[++i]);
+                    break;
+                default:
+                    Scenario scenario = known.get(args[i]);
+                    if (scenario == null) {
+                        System.err.println("Unknown scenario '" + args[i] + "'. Known: " + known.keySet());
+                        System.exit(2);
+                    }
+                    selected.add(scenario);
+                    break;
+            }
+        }
+        if (selected.isEmpty()) {
+            selected.addAll(known.values());
+        }
+
+        List<Map<String, Object>> reports = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (Scenario scenario : selected) {
+            System.out.println("Running " + scenario.name() + " with " + players + " players...");
+            Map<String, Object> report = run(scenario, players, pingLatency, connectLatency, limbos);
+            reports.add(report);
+            print(report);
+            if (!((Map<?, ?>) report.get("handler_failures")).isEmpty()) {
+                failed.add(scenario.name());
+            }
+        }
+
+        writeJson(json, reports);
+        System.out.println("Results written to " + json.toAbsolutePath());
+        if (!failed.isEmpty()) {
+            // The numbers of a run whose handlers threw say nothing about the plugin
+            System.err.println("Event handlers failed in " + failed + ", their results are not valid");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, Object> run(Scenario scenario, int players, long pingLatency, long connectLatency,
+                                           int limbos) throws IOException, InterruptedException {
+        List<String> limboServers = new ArrayList<>();
+        if (limbos <= 1) {
+            limboServers.add("limbo");
+        } else {
+            for (int i = 1; i <= limbos; i++) {
+                limboServers.add("limbo-" + i);
+            }
+        }
+        try (SimulationContext context = new SimulationContext(limboServers, scenario.backends(), pingLatency, connectLatency)) {
+            long start = System.nanoTime();
+            scenario.run(context, players);
+            long elapsed = System.nanoTime() - start;
+
+            SimulationRecorder recorder = context.getRecorder();
+            TimedScheduler scheduler = context.getScheduler();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("scenario", scenario.name());
+            report.put("players", players);
+            report.put("duration_ms", elapsed / 1_000_000);
+            report.put("time_to_limbo", recorder.getTimeToLimbo().summary());
+            report.put("time_to_reconnect", recorder.getTimeToReconnect().summary());
+            report.put("never_reached_limbo", recorder.getAwaitingLimbo());
+            report.put("never_reconnected", recorder.getAwaitingReconnect());
+            report.put("players_online", context.onlinePlayers());
+            report.put("pings_issued", context.pingsIssued());
+
+            Map<String, Object> blocking = new LinkedHashMap<>();
+            blocking.put("tasks_run", scheduler.getTasksRun());
+            blocking.put("total_ms", scheduler.getTotalNanos() / 1_000_000);
+            blocking.put("max_task_ms", scheduler.getMaxNanos() / 1_000_000);
+            report.put("scheduler_blocking", blocking);
+
+            Map<String, Object> handlers = new TreeMap<>();
+            context.getProxy().getEventManager().getHandlerNanos()
+                    .forEach((type, nanos) -> handlers.put(type.getSimpleName(), nanos / 1_000_000));
+            report.put("event_handler_ms", handlers);
+
+            Map<String, Object> failures = new TreeMap<>();
+            FakeEventManager events = context.getProxy().getEventManager();
+            events.getHandlerFailures().forEach((type, count) -> failures.put(type.getSimpleName(), count));
+            report.put("handler_failures", failures);
+            if (events.getFirstFailure() != null) {
+                events.getFirstFailure().printStackTrace();
+            }
+            return report;
+        }
+    }
+
+    private static void print(Map<String, Object> report) {
+        report.forEach((key, value) -> System.out.printf("  %-20s %s%n", key, value));
+    }
+
+    private static void writeJson(Path path, List<Map<String, Object>> reports) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, new GsonBuilder().setPrettyPrinting().create().toJson(reports));
+    }
+}
@@ -0,0 +1,108 @@
+package dev.goddeh.retainlastserver.sim;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Listens to the same events as the plugin and turns them into time-to-limbo and
+ * time-to-reconnect samples
+ */
+public final class SimulationRecorder {
+
+    private final Set<String> limboServers;
+    private final Map<UUID, Long> awaitingLimbo = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> awaitingBackend = new ConcurrentHashMap<>();
+    private final Map<UUID, String> expectedBackend = new ConcurrentHashMap<>();
+    private final LatencySamples timeToLimbo = new LatencySamples();
+    private final LatencySamples timeToReconnect = new LatencySamples();
+
+    SimulationRecorder(Set<String> limboServers) {
+        this.limboServers = limboServers;
+    }
+
+    @Subscribe(order = PostOrder.FIRST)
+    public void onServerConnected(ServerConnectedEvent event) {
+        long now = System.nanoTime();
+        UUID uuid = event.getPlayer().getUniqueId();
+        String serverName = event.getServer().getServerInfo().getName();
+
+        if (limboServers.contains(serverName)) {
+            Long start = awaitingLimbo.remove(uuid);
+            if (start != null) {
+                timeToLimbo.add(now - start);
+            }
+            return;
+        }
+
+        String expected = expectedBackend.get(uuid);
+        if (expected != null && !expected.equals(serverName)) {
+            return;
+        }
+        Long start = awaitingBackend.remove(uuid);
+        if (start != null) {
+            expectedBackend.remove(uuid);
+            timeToReconnect.add(now - start);
+        }
+    }
+
+    /**
+     * A player logged in: they should reach limbo and then any backend
+     */
+    void loggedIn(UUID uuid) {
+        long now = System.nanoTime();
+        awaitingLimbo.put(uuid, now);
+        awaitingBackend.put(uuid, now);
+    }
+
+    /**
+     * A player lost their backend: they should reach limbo now, and that backend once it recovers
+     */
+    void lostBackend(UUID uuid, String serverName) {
+        awaitingLimbo.put(uuid, System.nanoTime());
+        expectedBackend.put(uuid, serverName);
+    }
+
+    /**
+     * A backend recovered: the reconnect clock starts for everyone who lost it
+     */
+    void backendRecovered(String serverName) {
+        long now = System.nanoTime();
+        expectedBackend.forEach((uuid, expected) -> {
+            if (expected.equals(serverName)) {
+                awaitingBackend.put(uuid, now);
+            }
+        });
+    }
+
+    void reset() {
+        awaitingLimbo.clear();
+        awaitingBackend.clear();
+        expectedBackend.clear();
+        timeToLimbo.clear();
+        timeToReconnect.clear();
+    }
+
+    int getAwaitingLimbo() {
+        return awaitingLimbo.size();
+    }
+
+    int getAwaitingReconnect() {
+        return awaitingBackend.size() + (int) expectedBackend.keySet().stream()
+                .filter(uuid -> !awaitingBackend.containsKey(uuid))
+                .count();
+    }
+
+    LatencySamples getTimeToLimbo() {
+        return timeToLimbo;
+    }
+
+    LatencySamples getTimeToReconnect() {
+        return timeToReconnect;
+    }
+}
@@ -0,0 +1,47 @@
+package dev.goddeh.retainlastserver.sim;
+
+import dev.goddeh.retainlastserver.bench.fake.FakeScheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler that records how long plugin tasks occupy scheduler threads. Nearly all of that time
+ * is spent blocked on backend pings.
+ */
+final class TimedScheduler extends FakeScheduler {
+
+    private final AtomicLong tasksRun = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    @Override
+    protected void run(Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            tasksRun.incrementAndGet();
+            totalNanos.addAndGet(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    void reset() {
+        tasksRun.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    long getTasksRun() {
+        return tasksRun.get();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+}
@@ -1,12 +1,16 @@
 package dev.goddeh.retainlastserver;
 
 import com.google.inject.Inject;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.KickedFromServerEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
@@ -14,13 +18,31 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.proxy.server.ServerInfo;
-import com.velocitypowered.api.proxy.server.ServerPing;
-import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.goddeh.retainlastserver.api.BackendEventPublisher;
+import dev.goddeh.retainlastserver.api.BackendHealthApi;
+import dev.goddeh.retainlastserver.api.LocalPlayerDataService;
+import dev.goddeh.retainlastserver.api.PlayerDataService;
 import dev.goddeh.retainlastserver.command.CommandManager;
+import dev.goddeh.retainlastserver.config.ConfigFileWatcher;
+import dev.goddeh.retainlastserver.config.LoopbackSharedStateBackend;
 import dev.goddeh.retainlastserver.config.MainConfig;
 import dev.goddeh.retainlastserver.config.MessagesConfig;
 import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import dev.goddeh.retainlastserver.config.PlayerDataRetention;
+import dev.goddeh.retainlastserver.config.SharedPlayerState;
 import dev.goddeh.retainlastserver.config.WhitelistConfig;
+import dev.goddeh.retainlastserver.health.BackendHealth;
+import dev.goddeh.retainlastserver.health.HealthMonitor;
+import dev.goddeh.retainlastserver.health.HealthSnapshotStore;
+import dev.goddeh.retainlastserver.health.PassiveFailureDetector;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import dev.goddeh.retainlastserver.routing.FallbackBalancer;
+import dev.goddeh.retainlastserver.routing.LimboRouter;
+import dev.goddeh.retainlastserver.routing.RedirectDispatcher;
+import dev.goddeh.retainlastserver.routing.ServerGroupRouter;
+import dev.goddeh.retainlastserver.routing.ServerPriorityResolver;
+import dev.goddeh.retainlastserver.serverlist.ServerListPingHandler;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -29,10 +51,7 @@ import org.slf4j.Logger;
 
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 @Plugin(
         id = "bloxyproxy",
@@ -42,8 +61,6 @@ import java.util.concurrent.TimeoutException;
 public class RetainLastServer {
     private final ProxyServer proxy;
     private final Path dataDirectory;
-    private final Map<RegisteredServer, Boolean> serverStatus;
-    private ScheduledTask task;
 
     @Inject
     private Logger logger;
@@ -52,77 +69,140 @@ public class RetainLastServer {
     private MainConfig mainConfig;
     private MessagesConfig messagesConfig;
     private PlayerDataConfig playerDataConfig;
+    private PlayerDataRetention playerDataRetention;
+    private SharedPlayerState sharedPlayerState;
     private WhitelistConfig whitelistConfig;
+    private ConfigFileWatcher configFileWatcher;
     private CommandManager commandManager;
+    private ServerPriorityResolver priorityResolver;
+    private BackendLoadTracker loadTracker;
+    private FallbackBalancer fallbackBalancer;
+    private ServerGroupRouter groupRouter;
+    private LimboRouter limboRouter;
+    private HealthMonitor healthMonitor;
+    private HealthSnapshotStore healthSnapshotStore;
+    private BackendEventPublisher backendEventPublisher;
+    private BackendHealthApi api;
+    private LocalPlayerDataService playerDataService;
+    private ServerListPingHandler serverListPingHandler;
+    private PassiveFailureDetector passiveFailureDetector;
+    private RedirectDispatcher redirectDispatcher;
 
     @Inject
     public RetainLastServer(ProxyServer proxy, @DataDirectory Path dataDirectory) {
         this.proxy = proxy;
         this.dataDirectory = dataDirectory;
-        this.serverStatus = new HashMap<>();
     }
 
     @Subscribe
     public void onProxyInitialization(ProxyInitializeEvent event) {
         this.mainConfig = new MainConfig(proxy, dataDirectory, logger);
         this.messagesConfig = new MessagesConfig(proxy, dataDirectory, logger);
-        this.playerDataConfig = new PlayerDataConfig(proxy, dataDirectory, logger);
+        this.playerDataConfig = new PlayerDataConfig(proxy, dataDirectory, logger, mainConfig.isPlayerDataBinary(),
+                mainConfig.getJournalCommitMillis());
+        this.playerDataRetention = new PlayerDataRetention(this, proxy, logger, mainConfig, playerDataConfig);
+        this.sharedPlayerState = new SharedPlayerState(this, proxy, logger, playerDataConfig,
+                mainConfig.getSharedStateFlushMillis());
+        if ("loopback".equals(mainConfig.getSharedStateBackend())) {
+            sharedPlayerState.setBackend(new LoopbackSharedStateBackend());
+        }
         this.whitelistConfig = new WhitelistConfig(proxy, dataDirectory, logger, playerDataConfig);
 
+        this.configFileWatcher = new ConfigFileWatcher(dataDirectory, logger, mainConfig::isAutoReload);
+        configFileWatcher.watch("config.conf", mainConfig::reload);
+        configFileWatcher.watch("messages.conf", messagesConfig::reload);
+        configFileWatcher.watch("whitelist.conf", whitelistConfig::reload);
+
         this.commandManager = new CommandManager(this, proxy, mainConfig, whitelistConfig, messagesConfig);
+        this.loadTracker = new BackendLoadTracker();
+        this.fallbackBalancer = new FallbackBalancer(loadTracker, mainConfig);
+        this.groupRouter = new ServerGroupRouter(proxy, mainConfig, loadTracker, fallbackBalancer);
+        this.healthMonitor = new HealthMonitor(this, proxy, logger, mainConfig, loadTracker, this::onBackendStateChange);
+        this.healthSnapshotStore = new HealthSnapshotStore(dataDirectory, logger);
+        this.backendEventPublisher = new BackendEventPublisher(this, proxy, logger, healthMonitor.getStateRegistry());
+        this.api = new BackendHealthApi(healthMonitor, loadTracker);
+        this.playerDataService = new LocalPlayerDataService(this, proxy, logger, playerDataConfig);
+        this.serverListPingHandler = new ServerListPingHandler(proxy, mainConfig, messagesConfig, healthMonitor,
+                loadTracker, groupRouter);
+        this.passiveFailureDetector = new PassiveFailureDetector(mainConfig, healthMonitor);
+        this.limboRouter = new LimboRouter(proxy, mainConfig, loadTracker, fallbackBalancer);
+        this.priorityResolver = new ServerPriorityResolver(proxy, mainConfig, groupRouter);
+        this.redirectDispatcher = new RedirectDispatcher(this, proxy, logger, mainConfig, playerDataConfig,
+                priorityResolver, loadTracker, groupRouter, healthMonitor);
+
+        if (mainConfig.isHealthSnapshot()) {
+            int restored = healthSnapshotStore.restore(healthMonitor, loadTracker,
+                    mainConfig.getHealthSnapshotMaxAgeSeconds() * 1000L);
+            if (restored > 0) {
+                logger.info("Restored saved health of {} servers until the first probes confirm it", restored);
+            }
+        }
 
         playerDataConfig.startAutosaveTask(this, 60);
+        playerDataRetention.start();
+        playerDataService.start();
+        sharedPlayerState.start();
+        redirectDispatcher.start();
+        backendEventPublisher.start();
+        healthMonitor.start();
+        configFileWatcher.start();
+        // Confirm every server at once in the background, logins never wait for it
+        healthMonitor.warmUp();
+    }
 
-        task = proxy.getScheduler()
-                .buildTask(this, this::checkServerStatus)
-                .repeat(mainConfig.getServerCheckIntervalSeconds(), TimeUnit.SECONDS)
-                .schedule();
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (healthMonitor == null) return;
+
+        configFileWatcher.stop();
+        healthMonitor.stop();
+        redirectDispatcher.stop();
+        backendEventPublisher.stop();
+        playerDataRetention.stop();
+        playerDataService.stop();
+        sharedPlayerState.stop();
+        if (mainConfig.isHealthSnapshot()) {
+            healthSnapshotStore.save(healthMonitor, loadTracker);
+        }
+        playerDataConfig.close();
     }
 
-    private void checkServerStatus() {
-        Collection<RegisteredServer> servers = proxy.getAllServers();
-        for (RegisteredServer server : servers) {
-            if (server.getServerInfo().getName().equals(mainConfig.getLimboServer())) continue;
-
-            boolean currentStatus = isServerOnline(server);
-            Boolean previousStatus = serverStatus.get(server);
-
-            if (previousStatus == null) {
-                serverStatus.put(server, currentStatus);
-            } else if (currentStatus != previousStatus) {
-                String serverName = server.getServerInfo().getName();
-                if (currentStatus) {
-                    // Server came online
-                    Component message = messagesConfig.getServerOnlineMessage(serverName);
-                    broadcastMessage(message);
-
-                    // Attempt to reconnect players who were disconnected from this server
-                    reconnectPlayers(server);
-                } else {
-                    // Server went offline
-                    Map<String, String> placeholders = new HashMap<>();
-                    placeholders.put("server", serverName);
-                    broadcastMessage(messagesConfig.getComponent(
-                            "server.went_offline",
-                            "§c[NETWORK] Server '%%server%%' is now offline.",
-                            placeholders));
+    private void onBackendStateChange(RegisteredServer server, BackendHealth.State previous, BackendHealth.State current) {
+        String serverName = server.getServerInfo().getName();
+        MainConfig.Snapshot config = mainConfig.snapshot();
+        if (config.isLimboServer(serverName)) return;
+
+        if (current == BackendHealth.State.UP) {
+            // Server came online
+            Component message = messagesConfig.getServerOnlineMessage(serverName);
+            broadcastMessage(message);
+
+            // Attempt to reconnect players who were disconnected from this server
+            reconnectPlayers(server);
+        } else if (current == BackendHealth.State.DOWN) {
+            // Server went offline
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("server", serverName);
+            broadcastMessage(messagesConfig.getComponent(
+                    "server.went_offline",
+                    "§c[NETWORK] Server '%%server%%' is now offline.",
+                    placeholders));
 
-                    handleServerOffline(server);
-                }
-                serverStatus.put(server, currentStatus);
-            }
+            handleServerOffline(server, config);
         }
     }
 
-    private void handleServerOffline(RegisteredServer server) {
+    private void handleServerOffline(RegisteredServer server, MainConfig.Snapshot config) {
         String serverName = server.getServerInfo().getName();
+        // One view for everyone moved, placing each player only reads it
+        ServerStateRegistry.View states = healthMonitor.getStates();
         proxy.getAllPlayers().forEach(player -> {
             Optional<ServerInfo> currentServer = player.getCurrentServer().map(conn -> conn.getServerInfo());
             if (currentServer.isPresent() && currentServer.get().getName().equals(serverName)) {
                 // Save that this player was on this server
                 playerDataConfig.setAwaitingReconnect(player.getUniqueId(), serverName);
                 // Connect them to limbo
-                connectToLimbo(player);
+                connectToLimbo(player, config, states);
             }
         });
     }
@@ -130,30 +210,36 @@ public class RetainLastServer {
     private void reconnectPlayers(RegisteredServer server) {
         String serverName = server.getServerInfo().getName();
 
-        // Get all players
-        for (Player player : proxy.getAllPlayers()) {
-            String awaitingServer = playerDataConfig.getAwaitingReconnect(player.getUniqueId());
+        // Only the players waiting for this server, straight from the index
+        for (UUID uuid : playerDataConfig.getPlayersAwaitingReconnect(serverName)) {
+            Optional<Player> player = proxy.getPlayer(uuid);
 
-            // If player is waiting for this server and they're currently in limbo
-            if (serverName.equals(awaitingServer) &&
-                    player.getCurrentServer()
-                            .map(conn -> conn.getServerInfo().getName().equals(mainConfig.getLimboServer()))
-                            .orElse(false)) {
+            // If player is online and currently in limbo
+            if (player.isPresent() && limboRouter.isInLimbo(player.get())) {
 
-                player.createConnectionRequest(server).fireAndForget();
-                playerDataConfig.setAwaitingReconnect(player.getUniqueId(), null);
+                player.get().createConnectionRequest(server).fireAndForget();
+                playerDataConfig.setAwaitingReconnect(uuid, null);
             }
         }
     }
 
-    private void connectToLimbo(Player player) {
-        Optional<RegisteredServer> limboServer = proxy.getServer(mainConfig.getLimboServer());
-        if (limboServer.isPresent() && isServerOnline(limboServer.get())) {
+    private void connectToLimbo(Player player, MainConfig.Snapshot config, ServerStateRegistry.View states) {
+        Optional<RegisteredServer> limboServer = limboRouter.placeCached(player, config, states);
+        if (limboServer.isPresent()) {
             player.createConnectionRequest(limboServer.get()).fireAndForget();
         } else {
+            List<RegisteredServer> candidates = new ArrayList<>();
+            for (RegisteredServer server : proxy.getAllServers()) {
+                if (!config.isLimboServer(server.getServerInfo().getName())) {
+                    candidates.add(server);
+                }
+            }
+            // Available from the health monitor and the last pings, a login never waits on a ping
+            Predicate<RegisteredServer> available = candidate -> states.isRoutable(candidate)
+                    && !loadTracker.getLoad(candidate.getServerInfo().getName()).isFull();
+
             // Only disconnect if absolutely no servers are available
-            boolean anyServerAvailable = proxy.getAllServers().stream()
-                    .anyMatch(this::isServerOnline);
+            boolean anyServerAvailable = candidates.stream().anyMatch(available);
 
             if (!anyServerAvailable) {
                 player.disconnect(messagesConfig.getComponent(
@@ -161,32 +247,44 @@ public class RetainLastServer {
                         "All servers are currently offline. Please try again later.",
                         null));
             } else {
-                // Try to find any online server if limbo is not available
-                proxy.getAllServers().stream()
-                        .filter(this::isServerOnline)
-                        .findFirst()
-                        .ifPresent(server ->
-                                player.createConnectionRequest(server).fireAndForget());
+                // Spread the player over the online servers if limbo is not available
+                groupRouter.findFallback(player, candidates, available)
+                        .ifPresent(server -> {
+                            loadTracker.markSent(player.getUniqueId(), server.getServerInfo().getName());
+                            player.createConnectionRequest(server).fireAndForget();
+                        });
             }
         }
     }
 
+    @Subscribe
+    public void onProxyPing(ProxyPingEvent event) {
+        if (serverListPingHandler == null) return;
+
+        serverListPingHandler.onProxyPing(event);
+    }
+
     @Subscribe
     public void onKickedFromServer(KickedFromServerEvent event) {
+        // A kick can be the first sign that the server itself is failing
+        passiveFailureDetector.onKicked(event);
+
         // Save original server before redirecting to limbo
         Player player = event.getPlayer();
+        MainConfig.Snapshot config = mainConfig.snapshot();
         if (!event.kickedDuringServerConnect() && event.getServer() != null) {
             String serverName = event.getServer().getServerInfo().getName();
-            if (!serverName.equals(mainConfig.getLimboServer())) {
+            if (!config.isLimboServer(serverName)) {
                 playerDataConfig.setAwaitingReconnect(player.getUniqueId(), serverName);
             }
         }
 
         // If player was kicked from a server, send them to limbo unless they're disconnecting from the proxy
+        // Spread kicked players over the limbos that were up at the last check
         if (!event.kickedDuringServerConnect()) {
-            event.setResult(KickedFromServerEvent.RedirectPlayer.create(
-                    proxy.getServer(mainConfig.getLimboServer()).orElse(null)
-            ));
+            RegisteredServer limbo = limboRouter.placeCached(player, config, healthMonitor.getStates())
+                    .orElse(proxy.getServer(config.getLimboServer()).orElse(null));
+            event.setResult(KickedFromServerEvent.RedirectPlayer.create(limbo));
         }
     }
 
@@ -196,28 +294,31 @@ public class RetainLastServer {
         RegisteredServer previousServer = event.getPreviousServer().orElse(null);
         ServerInfo nextServer = event.getServer().getServerInfo();
         String nextServerName = nextServer.getName();
+        // One reading of the settings, so a reload cannot classify the server twice
+        MainConfig.Snapshot config = mainConfig.snapshot();
+        boolean toLimbo = config.isLimboServer(nextServerName);
+
+        loadTracker.connected(player.getUniqueId(), nextServerName);
+        passiveFailureDetector.onConnected(event);
 
         // If player manually connects to a non-limbo server while waiting for reconnect,
         // remove them from the reconnect list
-        if (!nextServerName.equals(mainConfig.getLimboServer())) {
+        if (!toLimbo) {
             playerDataConfig.setAwaitingReconnect(player.getUniqueId(), null);
         } else {
-            // Player connected to limbo - handle priority redirect
-            proxy.getScheduler()
-                    .buildTask(this, () -> handlePriorityRedirect(player))
-                    .delay(1, TimeUnit.SECONDS)
-                    .schedule();
+            // Player connected to limbo - queue them for the next priority redirect batch
+            redirectDispatcher.enqueue(player);
         }
 
         // Save last server if it's not limbo
-        if (!nextServerName.equals(mainConfig.getLimboServer())) {
+        if (!toLimbo) {
             playerDataConfig.setLastServer(player.getUniqueId(), nextServerName);
             logger.debug("Saved {}'s last connection as '{}'", player.getUsername(), nextServerName);
         }
 
         // Only broadcast switch message if it's not involving limbo
-        if (!nextServerName.equals(mainConfig.getLimboServer()) &&
-                (previousServer == null || !previousServer.getServerInfo().getName().equals(mainConfig.getLimboServer()))) {
+        if (!toLimbo &&
+                (previousServer == null || !config.isLimboServer(previousServer.getServerInfo().getName()))) {
 
             Map<String, String> placeholders = new HashMap<>();
             placeholders.put("player", player.getUsername());
@@ -240,6 +341,8 @@ public class RetainLastServer {
     public void onPlayerDisconnect(DisconnectEvent event) {
         Player player = event.getPlayer();
 
+        loadTracker.disconnected(player.getUniqueId());
+
         // Send disconnect notification
         if (player.hasPermission("blox.admin")) {
             Map<String, String> placeholders = new HashMap<>();
@@ -257,13 +360,22 @@ public class RetainLastServer {
         }
 
         // Only clean up reconnect tracking if they're not in limbo
-        if (!player.getCurrentServer()
-                .map(conn -> conn.getServerInfo().getName().equals(mainConfig.getLimboServer()))
-                .orElse(false)) {
+        if (!limboRouter.isInLimbo(player)) {
             playerDataConfig.setAwaitingReconnect(player.getUniqueId(), null);
         }
     }
 
+    @Subscribe
+    public EventTask onLogin(LoginEvent event) {
+        if (sharedPlayerState == null || !event.getResult().isAllowed()) {
+            return null;
+        }
+        // The player may have last played through another proxy, catch up before the whitelist
+        // check and the redirect to their last server
+        return EventTask.resumeWhenComplete(sharedPlayerState.refresh(event.getPlayer().getUniqueId(),
+                mainConfig.getSharedStateFetchTimeoutMillis()));
+    }
+
     @Subscribe
     public void onPlayerJoin(PostLoginEvent event) {
         Player player = event.getPlayer();
@@ -325,14 +437,8 @@ public class RetainLastServer {
             return;
         }
 
-        // Initialize server status if not already done
-        if (serverStatus.isEmpty()) {
-            proxy.getAllServers().forEach(server ->
-                    serverStatus.put(server, isServerOnline(server)));
-        }
-
         // Connect to limbo first - priority redirect will happen after limbo connection
-        connectToLimbo(player);
+        connectToLimbo(player, mainConfig.snapshot(), healthMonitor.getStates());
 
         // Send connect notification
         Map<String, String> placeholders = new HashMap<>();
@@ -349,20 +455,6 @@ public class RetainLastServer {
                 });
     }
 
-    private boolean isServerOnline(RegisteredServer server) {
-        for (int i = 0; i < 3; i++) {
-            CompletableFuture<ServerPing> ping = server.ping();
-            try {
-                ServerPing serverPing = ping.get(3, TimeUnit.SECONDS);
-                if (serverPing != null) {
-                    return true;
-                }
-            } catch (InterruptedException | ExecutionException | TimeoutException ignored) {
-            }
-        }
-        return false;
-    }
-
     private void broadcastMessage(Component message) {
         proxy.getAllPlayers().stream()
                 .filter(p -> p.hasPermission("blox.admin"))
@@ -373,97 +465,6 @@ public class RetainLastServer {
         broadcastMessage(Component.text(message));
     }
 
-    private Optional<RegisteredServer> findPriorityServer(Player player) {
-        Map<Integer, String> priorityServers = new TreeMap<>(); // TreeMap to maintain priority order
-
-        // Check all servers for matching priority permissions
-        for (RegisteredServer server : proxy.getAllServers()) {
-            String serverName = server.getServerInfo().getName();
-            // Skip limbo server from priority checks
-            if (serverName.equals(mainConfig.getLimboServer())) continue;
-
-            // Check for priority permissions (up to priority 100 for safety)
-            for (int priority = 1; priority <= 100; priority++) {
-                String permission = "server.prioritise." + priority + "." + serverName;
-                if (player.hasPermission(permission)) {
-                    priorityServers.put(priority, serverName);
-                    break; // Found priority for this server, move to next server
-                }
-            }
-        }
-
-        // Try servers in priority order
-        for (Map.Entry<Integer, String> entry : priorityServers.entrySet()) {
-            Optional<RegisteredServer> server = proxy.getServer(entry.getValue());
-            if (server.isPresent() && isServerOnline(server.get())) {
-                return server;
-            }
-        }
-
-        return Optional.empty();
-    }
-
-    private void handlePriorityRedirect(Player player) {
-        // Check if player is awaiting reconnect to a server
-        String awaitingServer = playerDataConfig.getAwaitingReconnect(player.getUniqueId());
-        if (awaitingServer != null) {
-            Optional<RegisteredServer> awaitingServerOpt = proxy.getServer(awaitingServer);
-            if (awaitingServerOpt.isPresent() && isServerOnline(awaitingServerOpt.get())) {
-                // If the original server is back online, reconnect to it
-                player.createConnectionRequest(awaitingServerOpt.get()).fireAndForget();
-                logger.info("Reconnecting {} to previously disconnected server '{}'",
-                        player.getUsername(), awaitingServer);
-                return;
-            } else {
-                // If player is awaiting reconnect to a server that's still offline,
-                // keep them in limbo and don't redirect them elsewhere
-                logger.info("Keeping {} in limbo until '{}' comes back online",
-                        player.getUsername(), awaitingServer);
-                return;
-            }
-        }
-
-        // ONLY if the player is NOT awaiting reconnect, follow the normal priority chain
-
-        // Check for priority servers
-        Optional<RegisteredServer> priorityServer = findPriorityServer(player);
-        if (priorityServer.isPresent()) {
-            RegisteredServer server = priorityServer.get();
-            player.createConnectionRequest(server).fireAndForget();
-            logger.info("Redirecting {} to priority server '{}'",
-                    player.getUsername(),
-                    server.getServerInfo().getName());
-            return;
-        }
-
-        // If no priority server is available, try last server only if player has permission
-        if (player.hasPermission("server.last_server")) {
-            String lastServer = playerDataConfig.getLastServer(player.getUniqueId());
-            if (lastServer != null && !lastServer.equals(mainConfig.getLimboServer())) {
-                Optional<RegisteredServer> lastServerOpt = proxy.getServer(lastServer);
-                if (lastServerOpt.isPresent() && isServerOnline(lastServerOpt.get())) {
-                    player.createConnectionRequest(lastServerOpt.get()).fireAndForget();
-                    logger.info("Redirecting {} to last server '{}' (has server.last_server permission)",
-                            player.getUsername(), lastServer);
-                    return;
-                }
-            }
-        }
-
-        // If no priority or last server available, try to find any available server
-        // But only if the player is not awaiting reconnect to a specific server
-        proxy.getAllServers().stream()
-                .filter(server -> !server.getServerInfo().getName().equals(mainConfig.getLimboServer()))
-                .filter(this::isServerOnline)
-                .findFirst()
-                .ifPresent(server -> {
-                    player.createConnectionRequest(server).fireAndForget();
-                    logger.info("Redirecting {} to fallback server '{}'",
-                            player.getUsername(),
-                            server.getServerInfo().getName());
-                });
-    }
-
     /**
      * Broadcasts a message to all online players with the blox.admin permission
      * @param message The message to broadcast
@@ -484,6 +485,14 @@ public class RetainLastServer {
         return proxy;
     }
 
+    /**
+     * Gets the plugin's logger
+     * @return The logger
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
     /**
      * Gets the messages config
      * @return The messages config
@@ -500,6 +509,39 @@ public class RetainLastServer {
         return mainConfig;
     }
 
+    /**
+     * Gets the backend health monitor
+     * @return The health monitor
+     */
+    public HealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
+    /**
+     * Gets the API other plugins use to read backend health
+     *
+     * @return The API
+     */
+    public BackendHealthApi getApi() {
+        return api;
+    }
+
+    /**
+     * Gets asynchronous access to player data, for other plugins
+     * @return The player data service
+     */
+    public PlayerDataService getPlayerDataService() {
+        return playerDataService;
+    }
+
+    /**
+     * Gets the sharing of player state with other proxies, to plug in a backend
+     * @return The shared player state
+     */
+    public SharedPlayerState getSharedPlayerState() {
+        return sharedPlayerState;
+    }
+
     /**
      * Gets the player data config
      * @return The player data config
@@ -508,4 +550,12 @@ public class RetainLastServer {
         return playerDataConfig;
     }
 
+    /**
+     * Gets the sweeper that forgets inactive players
+     * @return The retention sweeper
+     */
+    public PlayerDataRetention getPlayerDataRetention() {
+        return playerDataRetention;
+    }
+
 }
\ No newline at end of file
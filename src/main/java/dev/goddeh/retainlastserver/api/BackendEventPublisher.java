@@ -0,0 +1,90 @@
+package dev.goddeh.retainlastserver.api;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.goddeh.retainlastserver.api.event.BackendHealthUpdateEvent;
+import dev.goddeh.retainlastserver.api.event.BackendStateChangedEvent;
+import dev.goddeh.retainlastserver.health.ServerState;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns backend state changes into Velocity events for other plugins. Changes are queued
+ * without blocking and fired in batches from a scheduled task, so a slow listener never holds
+ * up the health monitor.
+ */
+public class BackendEventPublisher {
+
+    // How often queued changes are fired
+    private static final long BATCH_MILLIS = 100;
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final ServerStateRegistry registry;
+    private final Queue<BackendStateChangedEvent> pending = new ConcurrentLinkedQueue<>();
+    private ScheduledTask task;
+
+    public BackendEventPublisher(Object plugin, ProxyServer proxy, Logger logger, ServerStateRegistry registry) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.registry = registry;
+        registry.addListener(this::onChange);
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::flush)
+                .repeat(BATCH_MILLIS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+    }
+
+    private void onChange(ServerState previous, ServerState current, long generation) {
+        if (previous != null && previous.getState() == current.getState()) {
+            // Only damping or bookkeeping changed
+            return;
+        }
+        Optional<RegisteredServer> server = proxy.getServer(current.getServerName());
+        server.ifPresent(registered -> pending.add(new BackendStateChangedEvent(registered, previous, current, generation)));
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<BackendStateChangedEvent> batch = new ArrayList<>();
+        BackendStateChangedEvent event;
+        while ((event = pending.poll()) != null) {
+            batch.add(event);
+        }
+
+        try {
+            for (BackendStateChangedEvent change : batch) {
+                proxy.getEventManager().fireAndForget(change);
+            }
+            proxy.getEventManager().fireAndForget(
+                    new BackendHealthUpdateEvent(Collections.unmodifiableList(batch), registry.current()));
+        } catch (Exception e) {
+            logger.error("Failed to fire {} backend state events", batch.size(), e);
+        }
+    }
+}
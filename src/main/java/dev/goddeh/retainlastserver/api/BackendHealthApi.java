@@ -0,0 +1,94 @@
+package dev.goddeh.retainlastserver.api;
+
+import dev.goddeh.retainlastserver.health.HealthMonitor;
+import dev.goddeh.retainlastserver.health.ServerState;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+
+import java.util.Optional;
+
+/**
+ * Read access to what this plugin knows about backend health and load, so other plugins can
+ * use it instead of pinging backends themselves. Get it from the plugin instance:
+ *
+ * <pre>
+ * proxy.getPluginManager().getPlugin("bloxyproxy")
+ *         .flatMap(PluginContainer::getInstance)
+ *         .map(plugin -&gt; ((RetainLastServer) plugin).getApi())
+ * </pre>
+ *
+ * To hear about changes, subscribe to
+ * {@link dev.goddeh.retainlastserver.api.event.BackendStateChangedEvent} or
+ * {@link dev.goddeh.retainlastserver.api.event.BackendHealthUpdateEvent}.
+ * Every method is safe to call from any thread and never blocks.
+ */
+public class BackendHealthApi {
+
+    private final HealthMonitor healthMonitor;
+    private final BackendLoadTracker loadTracker;
+
+    public BackendHealthApi(HealthMonitor healthMonitor, BackendLoadTracker loadTracker) {
+        this.healthMonitor = healthMonitor;
+        this.loadTracker = loadTracker;
+    }
+
+    /**
+     * Gets a consistent view of every backend's health. Use one view when reading several
+     * backends so they all agree.
+     *
+     * @return The current view
+     */
+    public ServerStateRegistry.View getStates() {
+        return healthMonitor.getStates();
+    }
+
+    /**
+     * Gets the health of one backend
+     *
+     * @param serverName The backend name
+     * @return Its health, or empty if it has not been seen yet
+     */
+    public Optional<ServerState> getState(String serverName) {
+        return healthMonitor.getStates().get(serverName);
+    }
+
+    /**
+     * Checks whether a backend is online. Backends not seen yet count as online.
+     *
+     * @param serverName The backend name
+     * @return false only if the backend is confirmed down
+     */
+    public boolean isOnline(String serverName) {
+        return healthMonitor.isOnline(serverName);
+    }
+
+    /**
+     * Checks whether new players should be sent to a backend
+     *
+     * @param serverName The backend name
+     * @return false if the backend is suspect or down
+     */
+    public boolean isRoutable(String serverName) {
+        return healthMonitor.getStates().isRoutable(serverName);
+    }
+
+    /**
+     * Gets the generation of the current health view, which changes whenever any backend does
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return healthMonitor.getStates().getGeneration();
+    }
+
+    /**
+     * Gets the last known player counts and latency of a backend, from this plugin's own probes
+     * and the players it has routed
+     *
+     * @param serverName The backend name
+     * @return Its load, with zero counts if it has never answered
+     */
+    public BackendLoadTracker.Load getLoad(String serverName) {
+        return loadTracker.getLoad(serverName);
+    }
+}
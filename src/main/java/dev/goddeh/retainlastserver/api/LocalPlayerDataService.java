@@ -0,0 +1,170 @@
+package dev.goddeh.retainlastserver.api;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link PlayerDataService} over this proxy's player data cache. Calls run as scheduler tasks.
+ * Changes are queued without blocking from inside the update that makes them and handed to
+ * listeners in batches from a scheduled task, like {@link BackendEventPublisher} does for
+ * backend state. Batches are delivered one at a time, so they arrive in order even when a slow
+ * listener makes the repeating task overlap itself.
+ */
+public class LocalPlayerDataService implements PlayerDataService {
+
+    // How often queued changes are delivered
+    private static final long BATCH_MILLIS = 100;
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final PlayerDataConfig playerDataConfig;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<PlayerDataChange> pending = new ConcurrentLinkedQueue<>();
+    // Held while a batch is taken and delivered, so overlapping runs and stop() wait their turn
+    private final Object deliverLock = new Object();
+    private ScheduledTask task;
+
+    public LocalPlayerDataService(Object plugin, ProxyServer proxy, Logger logger, PlayerDataConfig playerDataConfig) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.playerDataConfig = playerDataConfig;
+        playerDataConfig.addChangeListener(this::onChange);
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::flush)
+                .repeat(BATCH_MILLIS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        // Waits for a run already in progress, then hands over whatever it left behind
+        flush();
+    }
+
+    @Override
+    public CompletableFuture<Optional<PlayerRecord>> get(UUID uuid) {
+        return supply(() -> Optional.ofNullable(playerDataConfig.getPlayerDataIfPresent(uuid)).map(PlayerRecord::new));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerRecord>> getAll(Collection<UUID> uuids) {
+        return getAll(uuids, Function.identity());
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<UUID, T>> getAll(Collection<UUID> uuids,
+                                                      Function<? super PlayerRecord, ? extends T> projection) {
+        List<UUID> requested = new ArrayList<>(uuids);
+        return supply(() -> {
+            Map<UUID, T> result = new HashMap<>(requested.size() * 2);
+            for (UUID uuid : requested) {
+                PlayerDataConfig.PlayerData data = playerDataConfig.getPlayerDataIfPresent(uuid);
+                if (data != null) {
+                    result.put(uuid, projection.apply(new PlayerRecord(data)));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerRecord>> getByLastServer(String serverName) {
+        return supply(() -> {
+            Map<UUID, PlayerRecord> result = new HashMap<>();
+            for (UUID uuid : playerDataConfig.getPlayersByLastServer(serverName)) {
+                PlayerDataConfig.PlayerData data = playerDataConfig.getPlayerDataIfPresent(uuid);
+                // The index may be a moment ahead of or behind the record
+                if (data != null && serverName.equals(data.getLastServer())) {
+                    result.put(uuid, new PlayerRecord(data));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerRecord>> updateAll(Collection<UUID> uuids, PlayerUpdate update) {
+        List<UUID> requested = new ArrayList<>(uuids);
+        return supply(() -> playerDataConfig.updateAll(requested, update::applyTo))
+                .thenCompose(Function.identity())
+                .thenApply(updated -> {
+                    Map<UUID, PlayerRecord> result = new LinkedHashMap<>(updated.size() * 2);
+                    updated.forEach((uuid, data) -> result.put(uuid, new PlayerRecord(data)));
+                    return Collections.unmodifiableMap(result);
+                });
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void onChange(PlayerDataConfig.PlayerData before, PlayerDataConfig.PlayerData after) {
+        // Nothing is kept while nobody listens
+        if (listeners.isEmpty()) {
+            return;
+        }
+        UUID uuid = after != null ? after.getUuid() : before.getUuid();
+        pending.add(new PlayerDataChange(uuid,
+                before == null ? null : new PlayerRecord(before),
+                after == null ? null : new PlayerRecord(after)));
+    }
+
+    private void flush() {
+        synchronized (deliverLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<PlayerDataChange> batch = new ArrayList<>();
+            PlayerDataChange change;
+            while ((change = pending.poll()) != null) {
+                batch.add(change);
+            }
+
+            List<PlayerDataChange> changes = Collections.unmodifiableList(batch);
+            for (Listener listener : listeners) {
+                try {
+                    listener.onChanges(changes);
+                } catch (Exception e) {
+                    logger.error("A player data listener failed on {} changes", changes.size(), e);
+                }
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        proxy.getScheduler().buildTask(plugin, () -> {
+            try {
+                result.complete(work.get());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }).schedule();
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package dev.goddeh.retainlastserver.api;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * One change to a player's data
+ */
+public final class PlayerDataChange {
+
+    private final UUID uuid;
+    private final PlayerRecord before;
+    private final PlayerRecord after;
+
+    PlayerDataChange(UUID uuid, PlayerRecord before, PlayerRecord after) {
+        this.uuid = uuid;
+        this.before = before;
+        this.after = after;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return The data before, empty if the player is new
+     */
+    public Optional<PlayerRecord> getBefore() {
+        return Optional.ofNullable(before);
+    }
+
+    /**
+     * @return The data after, empty if the player was removed
+     */
+    public Optional<PlayerRecord> getAfter() {
+        return Optional.ofNullable(after);
+    }
+}
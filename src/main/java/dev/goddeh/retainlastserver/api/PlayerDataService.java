@@ -0,0 +1,85 @@
+package dev.goddeh.retainlastserver.api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Asynchronous access to the player data this plugin keeps, for other plugins. Work runs off
+ * the caller's thread, reads never create records, and the batch methods take many players in
+ * one call instead of one lookup each. Get it from the plugin instance:
+ *
+ * <pre>
+ * proxy.getPluginManager().getPlugin("bloxyproxy")
+ *         .flatMap(PluginContainer::getInstance)
+ *         .map(plugin -&gt; ((RetainLastServer) plugin).getPlayerDataService())
+ * </pre>
+ */
+public interface PlayerDataService {
+
+    /**
+     * Gets one player's data
+     *
+     * @param uuid Player UUID
+     * @return The player's data, or empty if the player is not known
+     */
+    CompletableFuture<Optional<PlayerRecord>> get(UUID uuid);
+
+    /**
+     * Gets several players' data in one go
+     *
+     * @param uuids Player UUIDs
+     * @return The data of every known player among them, unknown players are left out
+     */
+    CompletableFuture<Map<UUID, PlayerRecord>> getAll(Collection<UUID> uuids);
+
+    /**
+     * Gets one value per player for several players, e.g. {@code PlayerRecord::getLastServer}
+     *
+     * @param uuids Player UUIDs
+     * @param projection Picks the value out of a player's data, must not return null
+     * @param <T> The value type
+     * @return The value of every known player among them, unknown players are left out
+     */
+    <T> CompletableFuture<Map<UUID, T>> getAll(Collection<UUID> uuids, Function<? super PlayerRecord, ? extends T> projection);
+
+    /**
+     * Gets the players whose last server was the given one
+     *
+     * @param serverName Server name
+     * @return Their data
+     */
+    CompletableFuture<Map<UUID, PlayerRecord>> getByLastServer(String serverName);
+
+    /**
+     * Changes several players at once. Unknown players are created.
+     *
+     * @param uuids Player UUIDs
+     * @param update The change to make to each
+     * @return Every player's new data, once the changes are saved
+     */
+    CompletableFuture<Map<UUID, PlayerRecord>> updateAll(Collection<UUID> uuids, PlayerUpdate update);
+
+    /**
+     * Adds a listener told about changes to player data, in the order they happened. Changes are
+     * delivered in batches on a scheduler thread, one batch at a time, so a slow listener only
+     * delays later batches.
+     *
+     * @param listener The listener
+     */
+    void addListener(Listener listener);
+
+    void removeListener(Listener listener);
+
+    /**
+     * Receives batches of player data changes
+     */
+    @FunctionalInterface
+    interface Listener {
+        void onChanges(List<PlayerDataChange> changes);
+    }
+}
@@ -0,0 +1,61 @@
+package dev.goddeh.retainlastserver.api;
+
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+
+import java.util.UUID;
+
+/**
+ * A read-only view of one player's data as it was at one moment. Later changes make a new
+ * record, this one never changes.
+ */
+public final class PlayerRecord {
+
+    private final PlayerDataConfig.PlayerData data;
+
+    PlayerRecord(PlayerDataConfig.PlayerData data) {
+        this.data = data;
+    }
+
+    public UUID getUuid() {
+        return data.getUuid();
+    }
+
+    public String getName() {
+        return data.getName();
+    }
+
+    /**
+     * @return The server the player was last on, or null if not known
+     */
+    public String getLastServer() {
+        return data.getLastServer();
+    }
+
+    /**
+     * @return The server the player waits to reconnect to, or null if not waiting
+     */
+    public String getAwaitingReconnect() {
+        return data.getAwaitingReconnect();
+    }
+
+    public long getFirstConnected() {
+        return data.getFirstConnected();
+    }
+
+    public long getLastConnected() {
+        return data.getLastConnected();
+    }
+
+    public int getTotalConnections() {
+        return data.getTotalConnections();
+    }
+
+    public boolean isWhitelisted() {
+        return data.isWhitelisted();
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerRecord[" + getUuid() + ", " + getName() + "]";
+    }
+}
@@ -0,0 +1,77 @@
+package dev.goddeh.retainlastserver.api;
+
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+
+/**
+ * A change to make to players' data. Only the fields set here change, the rest stay as they
+ * are. Immutable, each method returns a new update:
+ *
+ * <pre>
+ * PlayerUpdate.create().withLastServer("lobby-1").withAwaitingReconnect(null)
+ * </pre>
+ */
+public final class PlayerUpdate {
+
+    private static final PlayerUpdate EMPTY = new PlayerUpdate(false, null, false, null, null);
+
+    private final boolean setsLastServer;
+    private final String lastServer;
+    private final boolean setsAwaitingReconnect;
+    private final String awaitingReconnect;
+    // null leaves it as it is
+    private final Boolean whitelisted;
+
+    private PlayerUpdate(boolean setsLastServer, String lastServer, boolean setsAwaitingReconnect,
+                         String awaitingReconnect, Boolean whitelisted) {
+        this.setsLastServer = setsLastServer;
+        this.lastServer = lastServer;
+        this.setsAwaitingReconnect = setsAwaitingReconnect;
+        this.awaitingReconnect = awaitingReconnect;
+        this.whitelisted = whitelisted;
+    }
+
+    /**
+     * @return An update that changes nothing yet
+     */
+    public static PlayerUpdate create() {
+        return EMPTY;
+    }
+
+    /**
+     * @param lastServer The server name, or null to forget it
+     * @return An update that also sets the last server
+     */
+    public PlayerUpdate withLastServer(String lastServer) {
+        return new PlayerUpdate(true, lastServer, setsAwaitingReconnect, awaitingReconnect, whitelisted);
+    }
+
+    /**
+     * @param awaitingReconnect The server name, or null to stop waiting
+     * @return An update that also sets the server to reconnect to
+     */
+    public PlayerUpdate withAwaitingReconnect(String awaitingReconnect) {
+        return new PlayerUpdate(setsLastServer, lastServer, true, awaitingReconnect, whitelisted);
+    }
+
+    /**
+     * @param whitelisted Whether the players are whitelisted
+     * @return An update that also sets the whitelist flag
+     */
+    public PlayerUpdate withWhitelisted(boolean whitelisted) {
+        return new PlayerUpdate(setsLastServer, lastServer, setsAwaitingReconnect, awaitingReconnect, whitelisted);
+    }
+
+    PlayerDataConfig.PlayerData applyTo(PlayerDataConfig.PlayerData data) {
+        PlayerDataConfig.PlayerData changed = data;
+        if (setsLastServer) {
+            changed = changed.withLastServer(lastServer);
+        }
+        if (setsAwaitingReconnect) {
+            changed = changed.withAwaitingReconnect(awaitingReconnect);
+        }
+        if (whitelisted != null) {
+            changed = changed.withWhitelisted(whitelisted);
+        }
+        return changed;
+    }
+}
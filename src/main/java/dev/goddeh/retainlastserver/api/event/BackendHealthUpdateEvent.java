@@ -0,0 +1,38 @@
+package dev.goddeh.retainlastserver.api.event;
+
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+
+import java.util.List;
+
+/**
+ * Fired once per batch of backend state changes, alongside the {@link BackendStateChangedEvent}s
+ * of that batch. For listeners that would rather handle every change at once.
+ */
+public final class BackendHealthUpdateEvent {
+
+    private final List<BackendStateChangedEvent> changes;
+    private final ServerStateRegistry.View states;
+
+    public BackendHealthUpdateEvent(List<BackendStateChangedEvent> changes, ServerStateRegistry.View states) {
+        this.changes = changes;
+        this.states = states;
+    }
+
+    /**
+     * Gets the changes in this batch, oldest first
+     *
+     * @return The changes
+     */
+    public List<BackendStateChangedEvent> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Gets the health of every backend as of the end of this batch
+     *
+     * @return The view
+     */
+    public ServerStateRegistry.View getStates() {
+        return states;
+    }
+}
@@ -0,0 +1,72 @@
+package dev.goddeh.retainlastserver.api.event;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.health.BackendHealth;
+import dev.goddeh.retainlastserver.health.ServerState;
+
+/**
+ * Fired when a backend's health state changes. Fired asynchronously, shortly after the change,
+ * so listeners never hold up health checking.
+ */
+public final class BackendStateChangedEvent {
+
+    private final RegisteredServer server;
+    private final ServerState previous;
+    private final ServerState current;
+    private final long generation;
+
+    public BackendStateChangedEvent(RegisteredServer server, ServerState previous, ServerState current, long generation) {
+        this.server = server;
+        this.previous = previous;
+        this.current = current;
+        this.generation = generation;
+    }
+
+    public RegisteredServer getServer() {
+        return server;
+    }
+
+    /**
+     * Gets the state before the change
+     *
+     * @return The previous state, or null if the backend had not been seen before
+     */
+    public BackendHealth.State getPreviousState() {
+        return previous == null ? null : previous.getState();
+    }
+
+    public BackendHealth.State getState() {
+        return current.getState();
+    }
+
+    /**
+     * Gets the full health of the backend after the change
+     *
+     * @return The new health
+     */
+    public ServerState getCurrent() {
+        return current;
+    }
+
+    /**
+     * Whether the backend went from not routable to routable or back, the usual thing to act on
+     */
+    public boolean isRoutabilityChange() {
+        return previous == null || previous.isRoutable() != current.isRoutable();
+    }
+
+    /**
+     * Gets the registry generation the change was published in
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public String toString() {
+        return "BackendStateChangedEvent{" + server.getServerInfo().getName() + ": "
+                + getPreviousState() + " -> " + getState() + "}";
+    }
+}
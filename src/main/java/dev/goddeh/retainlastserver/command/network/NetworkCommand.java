@@ -3,6 +3,11 @@ package dev.goddeh.retainlastserver.command.network;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.command.network.data.DataExportCommand;
+import dev.goddeh.retainlastserver.command.network.data.DataPruneCommand;
+import dev.goddeh.retainlastserver.command.network.data.MemoryCommand;
+import dev.goddeh.retainlastserver.command.network.query.QueryCommand;
+import dev.goddeh.retainlastserver.command.network.health.HealthStatusCommand;
 import dev.goddeh.retainlastserver.command.network.whitelist.*;
 import dev.goddeh.retainlastserver.config.MainConfig;
 import dev.goddeh.retainlastserver.config.MessagesConfig;
@@ -25,6 +30,11 @@ public class NetworkCommand implements SimpleCommand {
     private final WhitelistAdminOnlyCommand whitelistAdminOnlyCommand;
     private final WhitelistOnCommand whitelistOnCommand;
     private final WhitelistOffCommand whitelistOffCommand;
+    private final HealthStatusCommand healthStatusCommand;
+    private final DataExportCommand dataExportCommand;
+    private final DataPruneCommand dataPruneCommand;
+    private final MemoryCommand memoryCommand;
+    private final QueryCommand queryCommand;
     private final MessagesConfig messagesConfig;
 
     public NetworkCommand(RetainLastServer plugin, MainConfig mainConfig, WhitelistConfig whitelistConfig, MessagesConfig messagesConfig) {
@@ -38,6 +48,11 @@ public class NetworkCommand implements SimpleCommand {
         this.whitelistAdminOnlyCommand = new WhitelistAdminOnlyCommand(plugin, whitelistConfig);
         this.whitelistOnCommand = new WhitelistOnCommand(plugin, whitelistConfig);
         this.whitelistOffCommand = new WhitelistOffCommand(plugin, whitelistConfig);
+        this.healthStatusCommand = new HealthStatusCommand(plugin);
+        this.dataExportCommand = new DataExportCommand(plugin);
+        this.dataPruneCommand = new DataPruneCommand(plugin);
+        this.memoryCommand = new MemoryCommand(plugin);
+        this.queryCommand = new QueryCommand(plugin);
     }
 
     @Override
@@ -65,12 +80,42 @@ public class NetworkCommand implements SimpleCommand {
             case "config":
                 handleConfigCommand(source, Arrays.copyOfRange(args, 1, args.length));
                 break;
+            case "health":
+                healthStatusCommand.execute(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "data":
+                handleDataCommand(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "memory":
+                memoryCommand.execute(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "query":
+                queryCommand.execute(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
             default:
                 sendHelp(source);
                 break;
         }
     }
 
+    private void handleDataCommand(CommandSource source, String[] args) {
+        String subCommand = args.length == 0 ? "" : args[0].toLowerCase();
+        switch (subCommand) {
+            case "export":
+                dataExportCommand.execute(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "prune":
+                dataPruneCommand.execute(source, Arrays.copyOfRange(args, 1, args.length));
+                break;
+            default:
+                source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "data.usage",
+                        "Usage: /network data <export|prune>",
+                        null));
+                break;
+        }
+    }
+
     private void handleWhitelistCommand(CommandSource source, String[] args) {
         if (args.length == 0) {
             source.sendMessage(plugin.getMessagesConfig().getComponent(
@@ -118,9 +163,17 @@ public class NetworkCommand implements SimpleCommand {
         }
         switch (args[0].toLowerCase()) {
             case "reload":
-                mainConfig.reload();
-                whitelistConfig.reload();
-                messagesConfig.reload();
+                boolean reloaded = mainConfig.reload();
+                reloaded &= whitelistConfig.reload();
+                reloaded &= messagesConfig.reload();
+                if (!reloaded) {
+                    // Whatever could not be read keeps its current settings
+                    source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "config.reload_failed",
+                            "§f§lᴛʙ ɴᴇᴛᴡᴏʀᴋ §8§l| §cConfig has errors, the old settings are still in use. Check the console.",
+                            null));
+                    break;
+                }
                 source.sendMessage(plugin.getMessagesConfig().getComponent(
                         "config.reload",
                         "§f§lᴛʙ ɴᴇᴛᴡᴏʀᴋ §8§l| §7Config reload successful. §a§l✔",
@@ -170,6 +223,31 @@ public class NetworkCommand implements SimpleCommand {
                 "network.help_whitelist_off",
                 "/network whitelist off - Disable the whitelist",
                 null));
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "network.help_health",
+                "/network health - Show the health of every server",
+                null));
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "network.help_data_export",
+                "/network data export - Write all player data to data.conf",
+                null));
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "network.help_data_prune",
+                "/network data prune - Forget inactive players now",
+                null));
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "network.help_memory",
+                "/network memory - Show how much memory player data takes",
+                null));
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "network.help_query",
+                "/network query <lastserver|awaiting|seen> - Count and list players by server or last join",
+                null));
     }
 
     @Override
@@ -177,10 +255,28 @@ public class NetworkCommand implements SimpleCommand {
         String[] args = invocation.arguments();
         List<String> suggestions = new ArrayList<>();
 
-        if (args.length == 0 || (args.length == 1 && "whitelist".startsWith(args[0].toLowerCase()))) {
-            suggestions.add("whitelist");
-        } else if (args.length == 1) {
-            // No suggestions for unknown first arguments
+        if (args.length <= 1) {
+            String subCommand = args.length == 0 ? "" : args[0].toLowerCase();
+            if ("whitelist".startsWith(subCommand)) suggestions.add("whitelist");
+            if ("health".startsWith(subCommand)) suggestions.add("health");
+            if ("data".startsWith(subCommand)) suggestions.add("data");
+            if ("memory".startsWith(subCommand)) suggestions.add("memory");
+            if ("query".startsWith(subCommand)) suggestions.add("query");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("data")) {
+            if ("export".startsWith(args[1].toLowerCase())) suggestions.add("export");
+            if ("prune".startsWith(args[1].toLowerCase())) suggestions.add("prune");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("query")) {
+            String subCommand = args[1].toLowerCase();
+            if ("lastserver".startsWith(subCommand)) suggestions.add("lastserver");
+            if ("awaiting".startsWith(subCommand)) suggestions.add("awaiting");
+            if ("seen".startsWith(subCommand)) suggestions.add("seen");
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("query")
+                && (args[1].equalsIgnoreCase("lastserver") || args[1].equalsIgnoreCase("awaiting"))) {
+            String prefix = args[2].toLowerCase();
+            plugin.getProxy().getAllServers().forEach(server -> {
+                String name = server.getServerInfo().getName();
+                if (name.toLowerCase().startsWith(prefix)) suggestions.add(name);
+            });
         } else if (args.length == 2 && args[0].equalsIgnoreCase("whitelist")) {
             String subCommand = args[1].toLowerCase();
             if ("add".startsWith(subCommand)) suggestions.add("add");
@@ -0,0 +1,39 @@
+package dev.goddeh.retainlastserver.command.network.data;
+
+import com.velocitypowered.api.command.CommandSource;
+import dev.goddeh.retainlastserver.RetainLastServer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DataExportCommand {
+
+    private final RetainLastServer plugin;
+
+    public DataExportCommand(RetainLastServer plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSource source, String[] args) {
+        // Writing every player takes a while on big networks, keep it off the command thread
+        plugin.getProxy().getScheduler().buildTask(plugin, () -> {
+            try {
+                int players = plugin.getPlayerDataConfig().exportHocon();
+
+                Map<String, String> placeholders = new HashMap<>();
+                placeholders.put("count", String.valueOf(players));
+                source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "data.exported",
+                        "§aExported %%count%% players to data.conf.",
+                        placeholders));
+            } catch (IOException e) {
+                plugin.getLogger().error("Failed to export player data", e);
+                source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "data.export_failed",
+                        "§cFailed to export player data, check the console.",
+                        null));
+            }
+        }).schedule();
+    }
+}
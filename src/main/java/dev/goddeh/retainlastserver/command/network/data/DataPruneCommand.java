@@ -0,0 +1,50 @@
+package dev.goddeh.retainlastserver.command.network.data;
+
+import com.velocitypowered.api.command.CommandSource;
+import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.config.PlayerDataRetention;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class DataPruneCommand {
+
+    private final RetainLastServer plugin;
+
+    public DataPruneCommand(RetainLastServer plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSource source, String[] args) {
+        // Runs off the command thread, the sweep finishes by saving every player
+        plugin.getPlayerDataRetention().sweepNow().whenComplete((report, error) -> {
+            if (error != null) {
+                plugin.getLogger().error("Failed to prune player data", error);
+                source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "data.prune_failed",
+                        "§cFailed to prune player data, check the console.",
+                        null));
+                return;
+            }
+            if (report == null) {
+                source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "data.prune_disabled",
+                        "§cPlayer data retention is off, set player_data.retention_days in config.conf.",
+                        null));
+                return;
+            }
+
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("pruned", String.valueOf(report.getPruned()));
+            placeholders.put("checked", String.valueOf(report.getChecked()));
+            placeholders.put("days", String.valueOf(report.getDays()));
+            placeholders.put("memory", String.valueOf(report.getHeapBytes() >> 10));
+            placeholders.put("disk", String.valueOf(report.getFileBytes() >> 10));
+            placeholders.put("millis", String.valueOf(report.getDurationMillis()));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "data.pruned",
+                    "§aForgot %%pruned%% of %%checked%% players inactive for %%days%% days, freeing %%memory%% KB of memory and %%disk%% KB on disk (%%millis%% ms).",
+                    placeholders));
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package dev.goddeh.retainlastserver.command.network.data;
+
+import com.velocitypowered.api.command.CommandSource;
+import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MemoryCommand {
+
+    private final RetainLastServer plugin;
+
+    public MemoryCommand(RetainLastServer plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSource source, String[] args) {
+        // Walks every cached player, keep it off the command thread
+        plugin.getProxy().getScheduler().buildTask(plugin, () -> {
+            PlayerDataConfig.MemoryReport report = plugin.getPlayerDataConfig().memoryReport();
+            Runtime runtime = Runtime.getRuntime();
+
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "memory.header",
+                    "=== Player Data Memory ===",
+                    null));
+
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("players", String.valueOf(report.getRecords()));
+            placeholders.put("servers", String.valueOf(report.getServerNames()));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "memory.players",
+                    "Players: %%players%%, distinct server names: %%servers%%",
+                    placeholders));
+
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "memory.compact",
+                    "Compact records: %%per_player%% bytes/player, %%total%% MB",
+                    sizePlaceholders(report.getCompactBytes(), report.getRecords())));
+
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "memory.strings",
+                    "With a String per field: %%per_player%% bytes/player, %%total%% MB",
+                    sizePlaceholders(report.getStringBytes(), report.getRecords())));
+
+            Map<String, String> heap = new HashMap<>();
+            heap.put("used", String.valueOf((runtime.totalMemory() - runtime.freeMemory()) >> 20));
+            heap.put("max", String.valueOf(runtime.maxMemory() >> 20));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "memory.heap",
+                    "Proxy heap: %%used%% MB used of %%max%% MB (estimates assume compressed references)",
+                    heap));
+        }).schedule();
+    }
+
+    private static Map<String, String> sizePlaceholders(long bytes, long records) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("per_player", String.valueOf(records == 0 ? 0 : bytes / records));
+        placeholders.put("total", String.format("%.1f", bytes / (1024.0 * 1024.0)));
+        return placeholders;
+    }
+}
@@ -0,0 +1,96 @@
+package dev.goddeh.retainlastserver.command.network.health;
+
+import com.velocitypowered.api.command.CommandSource;
+import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.health.BackendHealth;
+import dev.goddeh.retainlastserver.health.probe.ProbeKind;
+import dev.goddeh.retainlastserver.health.probe.ProbeStats;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class HealthStatusCommand {
+
+    private final RetainLastServer plugin;
+
+    public HealthStatusCommand(RetainLastServer plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSource source, String[] args) {
+        Map<String, BackendHealth> servers = new TreeMap<>(plugin.getHealthMonitor().getAllHealth());
+
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "health.header",
+                "=== Server Health ===",
+                null));
+
+        if (servers.isEmpty()) {
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "health.none",
+                            "  No servers have been checked yet",
+                            null)
+                    .color(NamedTextColor.GRAY));
+            return;
+        }
+
+        for (BackendHealth health : servers.values()) {
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("server", health.getServerName());
+            placeholders.put("state", health.isKnown() ? health.getState().name()
+                    : health.isProvisional() ? health.getState().name() + " (saved, unconfirmed)" : "UNKNOWN");
+            placeholders.put("down", String.valueOf(health.getTransitions(BackendHealth.State.DOWN)));
+            placeholders.put("up", String.valueOf(health.getTransitions(BackendHealth.State.UP)));
+            placeholders.put("suspect", String.valueOf(health.getTransitions(BackendHealth.State.SUSPECT)));
+            placeholders.put("damped", health.isDamped() ? " (held offline for flapping)" : "");
+
+            NamedTextColor color;
+            switch (health.getState()) {
+                case UP:
+                    color = NamedTextColor.GREEN;
+                    break;
+                case SUSPECT:
+                    color = NamedTextColor.YELLOW;
+                    break;
+                default:
+                    color = NamedTextColor.RED;
+                    break;
+            }
+
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "health.entry",
+                            "  %%server%%: %%state%%%%damped%% - down %%down%%x, up %%up%%x, suspect %%suspect%%x",
+                            placeholders)
+                    .color(color));
+
+            Map<String, String> probePlaceholders = new HashMap<>();
+            probePlaceholders.put("strategy", plugin.getMainConfig().getProbeStrategy(health.getServerName()).toLowerCase());
+            probePlaceholders.put("tcp", describe(health.getProbeStats(ProbeKind.TCP)));
+            probePlaceholders.put("status", describe(health.getProbeStats(ProbeKind.STATUS)));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "health.probes",
+                            "    probe %%strategy%% - tcp %%tcp%%, status %%status%%",
+                            probePlaceholders)
+                    .color(NamedTextColor.GRAY));
+        }
+    }
+
+    private static String describe(ProbeStats stats) {
+        if (stats.getProbes() == 0) {
+            return "unused";
+        }
+        String latency = stats.getAverageMillis() < 0
+                ? "no answers"
+                : String.format("%.1fms avg, %.1fms max", stats.getAverageMillis(), stats.getMaxMillis());
+        String summary = latency + " (" + stats.getFailures() + "/" + stats.getProbes() + " failed";
+        if (stats.getHedges() > 0) {
+            summary += ", " + stats.getHedges() + " hedged, " + stats.getHedgeWins() + " won by the hedge";
+        }
+        if (stats.getDeadlineMisses() > 0) {
+            summary += ", " + stats.getDeadlineMisses() + " past the deadline";
+        }
+        return summary + ")";
+    }
+}
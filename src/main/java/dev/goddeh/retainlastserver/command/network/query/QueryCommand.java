@@ -0,0 +1,156 @@
+package dev.goddeh.retainlastserver.command.network.query;
+
+import com.velocitypowered.api.command.CommandSource;
+import dev.goddeh.retainlastserver.RetainLastServer;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers questions about player data from the indexes, without walking every player
+ */
+public class QueryCommand {
+
+    // Names listed at most, the count is always exact
+    private static final int MAX_LISTED = 50;
+
+    private final RetainLastServer plugin;
+
+    public QueryCommand(RetainLastServer plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSource source, String[] args) {
+        String subCommand = args.length == 0 ? "" : args[0].toLowerCase();
+        switch (subCommand) {
+            case "lastserver":
+                if (args.length < 2) {
+                    sendUsage(source);
+                    return;
+                }
+                listPlayers(source, "query.last_server", "Players last on %%server%% (%%count%%):",
+                        args[1], plugin.getPlayerDataConfig().getPlayersByLastServer(args[1]));
+                break;
+            case "awaiting":
+                if (args.length < 2) {
+                    countAwaiting(source);
+                } else {
+                    listPlayers(source, "query.awaiting", "Players waiting to reconnect to %%server%% (%%count%%):",
+                            args[1], plugin.getPlayerDataConfig().getPlayersAwaitingReconnect(args[1]));
+                }
+                break;
+            case "seen":
+                countSeen(source, args);
+                break;
+            default:
+                sendUsage(source);
+                break;
+        }
+    }
+
+    private void listPlayers(CommandSource source, String key, String defaultMessage, String server, Set<UUID> players) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("server", server);
+        placeholders.put("count", String.valueOf(players.size()));
+        source.sendMessage(plugin.getMessagesConfig().getComponent(key, defaultMessage, placeholders)
+                .color(NamedTextColor.YELLOW));
+
+        List<String> names = new ArrayList<>();
+        for (UUID uuid : players) {
+            if (names.size() == MAX_LISTED) {
+                break;
+            }
+            PlayerDataConfig.PlayerData data = plugin.getPlayerDataConfig().getPlayerDataIfPresent(uuid);
+            if (data != null) {
+                names.add(data.getName());
+            }
+        }
+        if (names.isEmpty()) {
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "query.none",
+                            "  None",
+                            null)
+                    .color(NamedTextColor.GRAY));
+            return;
+        }
+
+        // Ten names per line
+        for (int i = 0; i < names.size(); i += 10) {
+            String line = String.join(", ", names.subList(i, Math.min(i + 10, names.size())));
+            source.sendMessage(Component.text("  " + line).color(NamedTextColor.WHITE));
+        }
+        if (players.size() > names.size()) {
+            Map<String, String> more = new HashMap<>();
+            more.put("count", String.valueOf(players.size() - names.size()));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "query.more",
+                            "  ... and %%count%% more",
+                            more)
+                    .color(NamedTextColor.GRAY));
+        }
+    }
+
+    private void countAwaiting(CommandSource source) {
+        Map<String, Integer> counts = plugin.getPlayerDataConfig().getAwaitingReconnectCounts();
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                        "query.awaiting_header",
+                        "Players waiting to reconnect:",
+                        null)
+                .color(NamedTextColor.YELLOW));
+        if (counts.isEmpty()) {
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                            "query.none",
+                            "  None",
+                            null)
+                    .color(NamedTextColor.GRAY));
+            return;
+        }
+        counts.forEach((server, count) -> {
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("server", server);
+            placeholders.put("count", String.valueOf(count));
+            source.sendMessage(plugin.getMessagesConfig().getComponent(
+                    "query.awaiting_count",
+                    "  %%server%%: %%count%%",
+                    placeholders));
+        });
+    }
+
+    private void countSeen(CommandSource source, String[] args) {
+        int days;
+        try {
+            days = args.length < 2 ? 1 : Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            days = -1;
+        }
+        if (days < 1) {
+            sendUsage(source);
+            return;
+        }
+
+        // Whole days, counted from the start of the day N-1 days ago
+        long since = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days - 1);
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("days", String.valueOf(days));
+        placeholders.put("count", String.valueOf(plugin.getPlayerDataConfig().countConnectedSince(since)));
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "query.seen",
+                "%%count%% players connected in the last %%days%% days",
+                placeholders));
+    }
+
+    private void sendUsage(CommandSource source) {
+        source.sendMessage(plugin.getMessagesConfig().getComponent(
+                "query.usage",
+                "Usage: /network query <lastserver <server>|awaiting [server]|seen [days]>",
+                null));
+    }
+}
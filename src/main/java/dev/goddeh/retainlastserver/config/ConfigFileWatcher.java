@@ -0,0 +1,154 @@
+package dev.goddeh.retainlastserver.config;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Reloads config files when they are edited on disk. Editors often write a file in several
+ * steps, so a file is only reloaded once it has been quiet for a short while, and only if its
+ * contents actually changed. Each reload validates the file and swaps the new settings in
+ * whole, so a file saved with errors leaves the settings in use untouched.
+ */
+public class ConfigFileWatcher {
+
+    // How long a file must go without changes before it is reloaded
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private final Path dataDirectory;
+    private final Logger logger;
+    private final BooleanSupplier enabled;
+    private final Map<String, BooleanSupplier> reloaders = new LinkedHashMap<>();
+    private final Map<String, Integer> contentHashes = new HashMap<>();
+    private WatchService watchService;
+
+    /**
+     * @param dataDirectory The directory holding the config files
+     * @param logger The logger
+     * @param enabled Whether edits should be reloaded right now, checked on every edit
+     */
+    public ConfigFileWatcher(Path dataDirectory, Logger logger, BooleanSupplier enabled) {
+        this.dataDirectory = dataDirectory;
+        this.logger = logger;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Registers a file to reload. Files not registered, such as player data, are ignored.
+     *
+     * @param fileName The file name inside the data directory
+     * @param reload Reloads the file, returning false if the settings in use were kept
+     */
+    public void watch(String fileName, BooleanSupplier reload) {
+        reloaders.put(fileName, reload);
+        contentHashes.put(fileName, hashContents(fileName));
+    }
+
+    public void start() {
+        try {
+            watchService = dataDirectory.getFileSystem().newWatchService();
+            dataDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.error("Failed to watch config files, edits need /network config reload", e);
+            return;
+        }
+
+        Thread thread = new Thread(this::run, "bloxyproxy-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        if (watchService == null) return;
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.error("Failed to stop watching config files", e);
+        }
+        watchService = null;
+    }
+
+    private void run() {
+        WatchService service = watchService;
+        // File name -> when it was last seen changing
+        Map<String, Long> pending = new HashMap<>();
+
+        try {
+            while (true) {
+                WatchKey key = service.poll(pending.isEmpty() ? 1000 : DEBOUNCE_MILLIS / 5, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // Lost track of what changed, check everything
+                            reloaders.keySet().forEach(name -> pending.put(name, System.nanoTime()));
+                            continue;
+                        }
+                        String fileName = event.context().toString();
+                        if (reloaders.containsKey(fileName)) {
+                            pending.put(fileName, System.nanoTime());
+                        }
+                    }
+                    key.reset();
+                }
+
+                long now = System.nanoTime();
+                Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (now - entry.getValue() >= TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS)) {
+                        it.remove();
+                        reloadIfChanged(entry.getKey());
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reloadIfChanged(String fileName) {
+        int hash = hashContents(fileName);
+        if (contentHashes.get(fileName) == hash) {
+            // Only touched, the contents are what was last seen
+            return;
+        }
+        contentHashes.put(fileName, hash);
+
+        if (!enabled.getAsBoolean()) return;
+
+        try {
+            if (reloaders.get(fileName).getAsBoolean()) {
+                logger.info("Reloaded {} after it was edited", fileName);
+            } else {
+                logger.warn("{} was edited but could not be used, the old settings are still in use", fileName);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reload {}", fileName, e);
+        }
+    }
+
+    private int hashContents(String fileName) {
+        try {
+            return Arrays.hashCode(Files.readAllBytes(dataDirectory.resolve(fileName)));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
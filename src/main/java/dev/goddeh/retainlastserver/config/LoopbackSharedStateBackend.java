@@ -0,0 +1,142 @@
+package dev.goddeh.retainlastserver.config;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Shares player state between proxies running in the same JVM, for tests and simulations.
+ * Proxies sharing a {@link Hub} see each other's changes as if through a real backend:
+ * published batches arrive on another thread, after the hub's latency.
+ */
+public final class LoopbackSharedStateBackend implements SharedStateBackend {
+
+    private static final Hub SHARED = new Hub(0);
+
+    private final Hub hub;
+    private final List<Consumer<List<SharedPlayerChange>>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Connects to the hub shared by every proxy in this JVM
+     */
+    public LoopbackSharedStateBackend() {
+        this(SHARED);
+    }
+
+    /**
+     * Connects to a hub, e.g. one per simulated network
+     *
+     * @param hub The hub
+     */
+    public LoopbackSharedStateBackend(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, List<SharedPlayerChange>>> fetch(Collection<UUID> uuids) {
+        List<UUID> requested = new ArrayList<>(uuids);
+        return CompletableFuture.supplyAsync(() -> hub.read(requested), hub.delayed());
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(List<SharedPlayerChange> changes) {
+        List<SharedPlayerChange> stored = hub.write(changes);
+        if (!stored.isEmpty()) {
+            hub.delayed().execute(() -> hub.deliver(stored));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void subscribe(Consumer<List<SharedPlayerChange>> subscriber) {
+        subscribers.add(subscriber);
+        hub.subscribers.add(subscriber);
+    }
+
+    @Override
+    public void close() {
+        hub.subscribers.removeAll(subscribers);
+        subscribers.clear();
+    }
+
+    /**
+     * The store and channel proxies connect to
+     */
+    public static final class Hub {
+        private final long latencyMillis;
+        private final Map<UUID, SharedPlayerChange[]> players = new ConcurrentHashMap<>();
+        private final List<Consumer<List<SharedPlayerChange>>> subscribers = new CopyOnWriteArrayList<>();
+        // One thread, so batches are delivered one at a time and in order
+        private final ExecutorService delivery = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "bloxyproxy-loopback");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        /**
+         * @param latencyMillis How long reads and published changes take to arrive
+         */
+        public Hub(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        private Executor delayed() {
+            return latencyMillis <= 0 ? delivery
+                    : CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS, delivery);
+        }
+
+        private Map<UUID, List<SharedPlayerChange>> read(List<UUID> uuids) {
+            Map<UUID, List<SharedPlayerChange>> result = new HashMap<>();
+            for (UUID uuid : uuids) {
+                SharedPlayerChange[] fields = players.get(uuid);
+                if (fields == null) {
+                    continue;
+                }
+                List<SharedPlayerChange> latest = new ArrayList<>(fields.length);
+                synchronized (fields) {
+                    for (SharedPlayerChange change : fields) {
+                        if (change != null) {
+                            latest.add(change);
+                        }
+                    }
+                }
+                result.put(uuid, latest);
+            }
+            return result;
+        }
+
+        /**
+         * Keeps each change that is newer than the one stored
+         *
+         * @return The changes kept
+         */
+        private List<SharedPlayerChange> write(List<SharedPlayerChange> changes) {
+            List<SharedPlayerChange> stored = new ArrayList<>(changes.size());
+            for (SharedPlayerChange change : changes) {
+                SharedPlayerChange[] fields = players.computeIfAbsent(change.getUuid(),
+                        uuid -> new SharedPlayerChange[SharedPlayerChange.Field.values().length]);
+                synchronized (fields) {
+                    int field = change.getField().ordinal();
+                    if (change.isNewerThan(fields[field])) {
+                        fields[field] = change;
+                        stored.add(change);
+                    }
+                }
+            }
+            return stored;
+        }
+
+        private void deliver(List<SharedPlayerChange> changes) {
+            List<SharedPlayerChange> batch = Collections.unmodifiableList(changes);
+            for (Consumer<List<SharedPlayerChange>> subscriber : subscribers) {
+                subscriber.accept(batch);
+            }
+        }
+    }
+}
@@ -10,6 +10,16 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MainConfig {
 
@@ -20,9 +30,14 @@ public class MainConfig {
     private ConfigurationLoader<CommentedConfigurationNode> loader;
     private CommentedConfigurationNode rootNode;
 
-    // Default values
-    private String limboServer = "limbo";
-    private int serverCheckIntervalSeconds = 5;
+    // Settings currently in use, replaced as a whole on every load
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Builder().build());
+
+    private static final List<String> FALLBACK_STRATEGIES = Arrays.asList("first", "least_loaded", "power_of_two", "latency_weighted");
+    private static final List<String> GROUP_STRATEGIES = Arrays.asList("consistent_hash", "balanced");
+    private static final List<String> PROBE_STRATEGIES = Arrays.asList("status", "tcp", "combined");
+    private static final List<String> PLAYER_DATA_FORMATS = Arrays.asList("hocon", "binary");
+    private static final List<String> SHARED_STATE_BACKENDS = Arrays.asList("none", "loopback");
 
     public MainConfig(ProxyServer proxy, Path dataDirectory, Logger logger) {
         this.proxy = proxy;
@@ -32,7 +47,7 @@ public class MainConfig {
         loadConfig();
     }
 
-    private void loadConfig() {
+    private synchronized boolean loadConfig() {
         try {
             if (!Files.exists(dataDirectory)) {
                 Files.createDirectories(dataDirectory);
@@ -50,10 +65,134 @@ public class MainConfig {
                 String defaultConfig =
                         "# BloxCore Main Configuration\n\n" +
                                 "server {\n" +
-                                "  # The name of the limbo server to use when a player is disconnected from another server\n" +
+                                "  # The name of the limbo server to use when a player is disconnected from another server.\n" +
+                                "  # Can be a list, e.g. [\"limbo-1\", \"limbo-2\"], to spread players over several limbos\n" +
                                 "  limbo_server = \"limbo\"\n\n" +
                                 "  # How often (in seconds) to check the status of all servers\n" +
-                                "  check_interval_seconds = 5\n" +
+                                "  check_interval_seconds = 5\n\n" +
+                                "  # Whether edits to config.conf, messages.conf and whitelist.conf are picked up without\n" +
+                                "  # running /network config reload. A file with errors is ignored and the old settings stay.\n" +
+                                "  auto_reload = false\n" +
+                                "}\n\n" +
+                                "redirect {\n" +
+                                "  # How often (in milliseconds) players waiting in limbo are redirected, as one batch\n" +
+                                "  tick_millis = 250\n\n" +
+                                "  # The most players redirected out of limbo per tick, the rest wait for the next one\n" +
+                                "  max_per_tick = 100\n\n" +
+                                "  # How the fallback server is picked when a player has no priority or last server:\n" +
+                                "  #   first            - the first online server, in registration order\n" +
+                                "  #   least_loaded     - the online server with the fewest players for its size\n" +
+                                "  #   power_of_two     - the less loaded of two random online servers\n" +
+                                "  #   latency_weighted - a random online server, favouring empty and fast ones\n" +
+                                "  # Servers that are full are never picked\n" +
+                                "  fallback_strategy = \"least_loaded\"\n\n" +
+                                "  # A server group to send fallback players to instead of any online server, empty for none\n" +
+                                "  fallback_group = \"\"\n" +
+                                "}\n\n" +
+                                "# Pools of interchangeable servers. Priority permissions (server.prioritise.<n>.<group>),\n" +
+                                "# last servers and the fallback can name a group instead of a single server.\n" +
+                                "# Group names must not be the same as a server name.\n" +
+                                "#   servers  - the members of the group\n" +
+                                "#   strategy - consistent_hash keeps each player on the same member while it is up,\n" +
+                                "#              balanced sends them to the least busy member\n" +
+                                "groups {\n" +
+                                "  # lobby {\n" +
+                                "  #   servers = [\"lobby-1\", \"lobby-2\", \"lobby-3\"]\n" +
+                                "  #   strategy = \"consistent_hash\"\n" +
+                                "  # }\n" +
+                                "}\n\n" +
+                                "# The player count shown in the server list. Counts come from the health checks, so\n" +
+                                "# showing them never pings a backend.\n" +
+                                "server_list {\n" +
+                                "  # Show the players on every backend instead of only this proxy's\n" +
+                                "  enabled = true\n\n" +
+                                "  # The maximum shown: 'proxy' keeps this proxy's own, 'backends' adds up the backends' limits\n" +
+                                "  max_players = \"proxy\"\n\n" +
+                                "  # What hovering over the count lists: 'groups', 'servers' or 'none'\n" +
+                                "  sample = \"groups\"\n" +
+                                "}\n\n" +
+                                "player_data {\n" +
+                                "  # How player data is stored:\n" +
+                                "  #   hocon  - data.conf, readable and editable by hand\n" +
+                                "  #   binary - data.bin, much smaller and faster to load at startup. /network data export\n" +
+                                "  #            writes a data.conf copy to read or edit.\n" +
+                                "  # Switching converts the data on the next start.\n" +
+                                "  format = \"hocon\"\n\n" +
+                                "  # Whitelist and server changes are appended to data.journal instead of saving the whole\n" +
+                                "  # file. How long (in milliseconds) to gather changes so one disk flush covers them all.\n" +
+                                "  journal_commit_millis = 10\n\n" +
+                                "  # Forget players who are not whitelisted and have not joined for this many days, 0 keeps\n" +
+                                "  # everyone. Checked in the background, then the data file is rewritten without them.\n" +
+                                "  retention_days = 0\n\n" +
+                                "  # How many players the retention check looks at per second\n" +
+                                "  retention_batch = 5000\n" +
+                                "}\n\n" +
+                                "shared_state {\n" +
+                                "  # Share last servers, reconnects and the whitelist with the other proxies in front of the\n" +
+                                "  # same servers. 'none' keeps them on this proxy only, 'loopback' shares them with proxies\n" +
+                                "  # in this same JVM, for testing. Other plugins can plug in a real backend.\n" +
+                                "  backend = \"none\"\n\n" +
+                                "  # How often (in milliseconds) this proxy's changes are written to the backend in one batch.\n" +
+                                "  # Other proxies see a change about this long after it is made.\n" +
+                                "  flush_millis = 50\n\n" +
+                                "  # How long (in milliseconds) a login may wait for the player's state from the backend\n" +
+                                "  login_fetch_timeout_millis = 250\n" +
+                                "}\n\n" +
+                                "health {\n" +
+                                "  # Consecutive successful probes before an offline server is announced online again\n" +
+                                "  success_threshold = 2\n\n" +
+                                "  # Consecutive failed probes before a server is announced offline and its players sent to limbo\n" +
+                                "  failure_threshold = 3\n\n" +
+                                "  # How often (in milliseconds) a server that missed a probe is probed until it is confirmed up or down\n" +
+                                "  suspect_interval_millis = 1000\n\n" +
+                                "  # Offline servers are probed less and less often, up to this many seconds apart\n" +
+                                "  max_backoff_seconds = 60\n\n" +
+                                "  # How long (in milliseconds) a probe may take in total, hedges included\n" +
+                                "  probe_timeout_millis = 3000\n\n" +
+                                "  # How servers are probed:\n" +
+                                "  #   status   - a full status ping every time, which also reads player counts\n" +
+                                "  #   tcp      - only open and close a TCP connection. Cheap, and busy servers are not\n" +
+                                "  #              marked offline for answering status pings slowly, but player counts\n" +
+                                "  #              are never refreshed\n" +
+                                "  #   combined - tcp decides whether the server is up, and every 'status_every' probes\n" +
+                                "  #              a status ping refreshes the player counts\n" +
+                                "  probe {\n" +
+                                "    strategy = \"status\"\n" +
+                                "    status_every = 6\n\n" +
+                                "    # Per server overrides\n" +
+                                "    servers {\n" +
+                                "      # survival = \"combined\"\n" +
+                                "    }\n\n" +
+                                "    # When a probe has not answered by the time 'percentile' percent of recent answers from\n" +
+                                "    # that server arrived, or fails straight away, send one more and use whichever answers\n" +
+                                "    # first. Never sooner than 'min_delay_millis'.\n" +
+                                "    hedge {\n" +
+                                "      enabled = true\n" +
+                                "      percentile = 95\n" +
+                                "      min_delay_millis = 50\n" +
+                                "    }\n" +
+                                "  }\n\n" +
+                                "  # Save server health at shutdown and start from it, so players are routed straight away\n" +
+                                "  # after a restart while the first probes confirm it. Ignored if older than 'max_age_seconds'.\n" +
+                                "  snapshot {\n" +
+                                "    enabled = true\n" +
+                                "    max_age_seconds = 600\n" +
+                                "  }\n\n" +
+                                "  # Servers that keep going offline and online are held offline until they settle.\n" +
+                                "  # Each change adds 'penalty', which halves every 'half_life_seconds'. Above\n" +
+                                "  # 'suppress_threshold' the server is held offline until it decays below 'reuse_threshold'.\n" +
+                                "  flap_damping {\n" +
+                                "    penalty = 1000\n" +
+                                "    suppress_threshold = 2500\n" +
+                                "    reuse_threshold = 750\n" +
+                                "    half_life_seconds = 60\n" +
+                                "  }\n\n" +
+                                "  # Treat failed connections and kicks as failed probes between checks, and probe straight away\n" +
+                                "  passive {\n" +
+                                "    enabled = true\n\n" +
+                                "    # Kicks whose reason contains one of these (ignoring case) mean the server itself is failing\n" +
+                                "    kick_reasons = [\"server closed\", \"restarting\", \"shutting down\", \"timed out\", \"connection reset\", \"internal exception\"]\n" +
+                                "  }\n" +
                                 "}\n";
 
                 Files.writeString(configFile, defaultConfig);
@@ -61,28 +200,200 @@ public class MainConfig {
 
             try {
                 // Load the config
-                rootNode = loader.load();
+                CommentedConfigurationNode loaded = loader.load();
+
+                // Read the values into a new snapshot, the one in use is untouched until it is complete
+                Builder next = new Builder();
+                ConfigurationNode limboNode = loaded.getNode("server", "limbo_server");
+                List<String> limbos = limboNode.hasListChildren()
+                        ? limboNode.getList(Object::toString)
+                        : Collections.singletonList(limboNode.getString(next.limboServers.get(0)));
+                if (!limbos.isEmpty()) {
+                    next.limboServers = Collections.unmodifiableList(new ArrayList<>(limbos));
+                }
+                next.serverCheckIntervalSeconds = loaded.getNode("server", "check_interval_seconds").getInt(next.serverCheckIntervalSeconds);
+                next.autoReload = loaded.getNode("server", "auto_reload").getBoolean(next.autoReload);
+                next.redirectTickMillis = Math.max(50, loaded.getNode("redirect", "tick_millis").getInt(next.redirectTickMillis));
+                next.redirectMaxPerTick = Math.max(1, loaded.getNode("redirect", "max_per_tick").getInt(next.redirectMaxPerTick));
+                next.fallbackStrategy = loaded.getNode("redirect", "fallback_strategy").getString(next.fallbackStrategy);
+                next.fallbackGroup = loaded.getNode("redirect", "fallback_group").getString(next.fallbackGroup);
+                next.serverGroups = loadServerGroups(loaded.getNode("groups"));
+                next.serverListEnabled = loaded.getNode("server_list", "enabled").getBoolean(next.serverListEnabled);
+                next.serverListMaxPlayers = loaded.getNode("server_list", "max_players").getString(next.serverListMaxPlayers);
+                next.serverListSample = loaded.getNode("server_list", "sample").getString(next.serverListSample);
+                next.playerDataFormat = loaded.getNode("player_data", "format").getString(next.playerDataFormat);
+                next.journalCommitMillis = Math.max(0, loaded.getNode("player_data", "journal_commit_millis").getInt(next.journalCommitMillis));
+                next.retentionDays = Math.max(0, loaded.getNode("player_data", "retention_days").getInt(next.retentionDays));
+                next.retentionBatch = Math.max(100, loaded.getNode("player_data", "retention_batch").getInt(next.retentionBatch));
+                next.sharedStateBackend = loaded.getNode("shared_state", "backend").getString(next.sharedStateBackend);
+                next.sharedStateFlushMillis = Math.max(1, loaded.getNode("shared_state", "flush_millis").getInt(next.sharedStateFlushMillis));
+                next.sharedStateFetchTimeoutMillis = Math.max(0, loaded.getNode("shared_state", "login_fetch_timeout_millis").getInt(next.sharedStateFetchTimeoutMillis));
+                next.healthSuccessThreshold = Math.max(1, loaded.getNode("health", "success_threshold").getInt(next.healthSuccessThreshold));
+                next.healthFailureThreshold = Math.max(1, loaded.getNode("health", "failure_threshold").getInt(next.healthFailureThreshold));
+                next.healthSuspectIntervalMillis = Math.max(100, loaded.getNode("health", "suspect_interval_millis").getInt(next.healthSuspectIntervalMillis));
+                next.healthMaxBackoffSeconds = Math.max(1, loaded.getNode("health", "max_backoff_seconds").getInt(next.healthMaxBackoffSeconds));
+                next.healthProbeTimeoutMillis = Math.max(100, loaded.getNode("health", "probe_timeout_millis").getInt(next.healthProbeTimeoutMillis));
+                next.probeStrategy = loaded.getNode("health", "probe", "strategy").getString(next.probeStrategy);
+                next.probeStatusEvery = Math.max(1, loaded.getNode("health", "probe", "status_every").getInt(next.probeStatusEvery));
+                next.serverProbeStrategies = loadServerProbeStrategies(loaded.getNode("health", "probe", "servers"));
+                next.hedgeEnabled = loaded.getNode("health", "probe", "hedge", "enabled").getBoolean(next.hedgeEnabled);
+                next.hedgePercentile = Math.max(1, Math.min(100, loaded.getNode("health", "probe", "hedge", "percentile").getDouble(next.hedgePercentile)));
+                next.hedgeMinDelayMillis = Math.max(1, loaded.getNode("health", "probe", "hedge", "min_delay_millis").getInt(next.hedgeMinDelayMillis));
+                next.healthSnapshot = loaded.getNode("health", "snapshot", "enabled").getBoolean(next.healthSnapshot);
+                next.healthSnapshotMaxAgeSeconds = Math.max(0, loaded.getNode("health", "snapshot", "max_age_seconds").getInt(next.healthSnapshotMaxAgeSeconds));
+                next.flapPenalty = loaded.getNode("health", "flap_damping", "penalty").getInt(next.flapPenalty);
+                next.flapSuppressThreshold = loaded.getNode("health", "flap_damping", "suppress_threshold").getInt(next.flapSuppressThreshold);
+                next.flapReuseThreshold = loaded.getNode("health", "flap_damping", "reuse_threshold").getInt(next.flapReuseThreshold);
+                next.flapHalfLifeSeconds = Math.max(1, loaded.getNode("health", "flap_damping", "half_life_seconds").getInt(next.flapHalfLifeSeconds));
+                next.passiveDetection = loaded.getNode("health", "passive", "enabled").getBoolean(next.passiveDetection);
+                next.passiveKickReasons = loaded.getNode("health", "passive", "kick_reasons").getList(Object::toString, next.passiveKickReasons);
 
-                // Read the values
-                limboServer = rootNode.getNode("server", "limbo_server").getString(limboServer);
-                serverCheckIntervalSeconds = rootNode.getNode("server", "check_interval_seconds").getInt(serverCheckIntervalSeconds);
+                Snapshot built = next.build();
+                List<String> problems = validate(built);
+                if (!problems.isEmpty()) {
+                    logger.error("Config has errors, keeping the settings in use: {}", problems);
+                    return false;
+                }
 
-                logger.info("Config loaded: Limbo server: '{}', Check interval: {}s",
-                        limboServer, serverCheckIntervalSeconds);
+                // Swap the whole snapshot in at once, readers see either the old or the new settings
+                boolean reloading = rootNode != null;
+                rootNode = loaded;
+                Snapshot previous = snapshot.getAndSet(built);
+                if (reloading) {
+                    List<String> restartOnly = restartOnlyChanges(previous, built);
+                    if (!restartOnly.isEmpty()) {
+                        logger.warn("Changes to {} take effect after a restart", restartOnly);
+                    }
+                }
+                logger.info("Config loaded: Limbo servers: {}, Check interval: {}s, Redirect tick: {}ms ({} per tick), Fallback: {}, Server groups: {}",
+                        built.limboServers, built.serverCheckIntervalSeconds, built.redirectTickMillis, built.redirectMaxPerTick, built.fallbackStrategy, built.serverGroups.keySet());
+                return true;
             } catch (Exception e) {
-                logger.error("Failed to load config, using default values", e);
-                // Continue with default values if loading fails
+                logger.error("Failed to load config, keeping the settings in use", e);
+                // Continue with the previous (or default) values if loading fails
             }
 
         } catch (IOException e) {
             logger.error("Failed to initialize main config", e);
         }
+        return false;
+    }
+
+    /**
+     * Checks a newly read snapshot for settings that cannot work
+     *
+     * @param next The snapshot
+     * @return A description of each problem, empty if there are none
+     */
+    private List<String> validate(Snapshot next) {
+        List<String> problems = new ArrayList<>();
+        for (String limbo : next.limboServers) {
+            if (limbo == null || limbo.isBlank()) {
+                problems.add("server.limbo_server contains an empty name");
+            }
+        }
+        if (!FALLBACK_STRATEGIES.contains(next.fallbackStrategy.toLowerCase(Locale.ROOT))) {
+            problems.add("redirect.fallback_strategy '" + next.fallbackStrategy + "' is not one of " + FALLBACK_STRATEGIES);
+        }
+        if (!next.fallbackGroup.isEmpty() && !next.serverGroups.containsKey(next.fallbackGroup)) {
+            problems.add("redirect.fallback_group '" + next.fallbackGroup + "' is not a configured group");
+        }
+        for (ServerGroupSettings group : next.serverGroups.values()) {
+            if (!GROUP_STRATEGIES.contains(group.getStrategy().toLowerCase(Locale.ROOT))) {
+                problems.add("groups." + group.getName() + ".strategy '" + group.getStrategy() + "' is not one of " + GROUP_STRATEGIES);
+            }
+        }
+        List<String> probeStrategies = new ArrayList<>(next.serverProbeStrategies.values());
+        probeStrategies.add(next.probeStrategy);
+        for (String strategy : probeStrategies) {
+            if (!PROBE_STRATEGIES.contains(strategy.toLowerCase(Locale.ROOT))) {
+                problems.add("health.probe strategy '" + strategy + "' is not one of " + PROBE_STRATEGIES);
+            }
+        }
+        if (!PLAYER_DATA_FORMATS.contains(next.playerDataFormat.toLowerCase(Locale.ROOT))) {
+            problems.add("player_data.format '" + next.playerDataFormat + "' is not one of " + PLAYER_DATA_FORMATS);
+        }
+        if (!SHARED_STATE_BACKENDS.contains(next.sharedStateBackend.toLowerCase(Locale.ROOT))) {
+            problems.add("shared_state.backend '" + next.sharedStateBackend + "' is not one of " + SHARED_STATE_BACKENDS);
+        }
+        if (next.flapReuseThreshold > next.flapSuppressThreshold) {
+            problems.add("health.flap_damping.reuse_threshold is above suppress_threshold");
+        }
+        return problems;
     }
 
-    public void saveConfig() {
+    private Map<String, ServerGroupSettings> loadServerGroups(ConfigurationNode groupsNode) {
+        Map<String, ServerGroupSettings> groups = new LinkedHashMap<>();
+        for (Map.Entry<Object, ? extends ConfigurationNode> entry : groupsNode.getChildrenMap().entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            List<String> servers = new ArrayList<>(entry.getValue().getNode("servers").getList(Object::toString));
+            if (servers.isEmpty()) {
+                logger.warn("Server group '{}' has no servers and will be ignored", name);
+                continue;
+            }
+            String strategy = entry.getValue().getNode("strategy").getString("consistent_hash");
+            groups.put(name, new ServerGroupSettings(name, servers, strategy));
+        }
+        return Collections.unmodifiableMap(groups);
+    }
+
+    private Map<String, String> loadServerProbeStrategies(ConfigurationNode serversNode) {
+        Map<String, String> strategies = new LinkedHashMap<>();
+        for (Map.Entry<Object, ? extends ConfigurationNode> entry : serversNode.getChildrenMap().entrySet()) {
+            String strategy = entry.getValue().getString();
+            if (strategy != null) {
+                strategies.put(String.valueOf(entry.getKey()), strategy);
+            }
+        }
+        return Collections.unmodifiableMap(strategies);
+    }
+
+    public synchronized void saveConfig() {
+        Snapshot s = snapshot.get();
         try {
-            rootNode.getNode("server", "limbo_server").setValue(limboServer);
-            rootNode.getNode("server", "check_interval_seconds").setValue(serverCheckIntervalSeconds);
+            rootNode.getNode("server", "limbo_server").setValue(
+                    s.limboServers.size() == 1 ? s.limboServers.get(0) : s.limboServers);
+            rootNode.getNode("server", "check_interval_seconds").setValue(s.serverCheckIntervalSeconds);
+            rootNode.getNode("server", "auto_reload").setValue(s.autoReload);
+            rootNode.getNode("redirect", "tick_millis").setValue(s.redirectTickMillis);
+            rootNode.getNode("redirect", "max_per_tick").setValue(s.redirectMaxPerTick);
+            rootNode.getNode("redirect", "fallback_strategy").setValue(s.fallbackStrategy);
+            rootNode.getNode("redirect", "fallback_group").setValue(s.fallbackGroup);
+            rootNode.getNode("server_list", "enabled").setValue(s.serverListEnabled);
+            rootNode.getNode("server_list", "max_players").setValue(s.serverListMaxPlayers);
+            rootNode.getNode("server_list", "sample").setValue(s.serverListSample);
+            rootNode.getNode("player_data", "format").setValue(s.playerDataFormat);
+            rootNode.getNode("player_data", "journal_commit_millis").setValue(s.journalCommitMillis);
+            rootNode.getNode("player_data", "retention_days").setValue(s.retentionDays);
+            rootNode.getNode("player_data", "retention_batch").setValue(s.retentionBatch);
+            rootNode.getNode("shared_state", "backend").setValue(s.sharedStateBackend);
+            rootNode.getNode("shared_state", "flush_millis").setValue(s.sharedStateFlushMillis);
+            rootNode.getNode("shared_state", "login_fetch_timeout_millis").setValue(s.sharedStateFetchTimeoutMillis);
+            rootNode.getNode("health", "success_threshold").setValue(s.healthSuccessThreshold);
+            rootNode.getNode("health", "failure_threshold").setValue(s.healthFailureThreshold);
+            rootNode.getNode("health", "suspect_interval_millis").setValue(s.healthSuspectIntervalMillis);
+            rootNode.getNode("health", "max_backoff_seconds").setValue(s.healthMaxBackoffSeconds);
+            rootNode.getNode("health", "probe_timeout_millis").setValue(s.healthProbeTimeoutMillis);
+            rootNode.getNode("health", "probe", "strategy").setValue(s.probeStrategy);
+            rootNode.getNode("health", "probe", "status_every").setValue(s.probeStatusEvery);
+            rootNode.getNode("health", "probe", "hedge", "enabled").setValue(s.hedgeEnabled);
+            rootNode.getNode("health", "probe", "hedge", "percentile").setValue(s.hedgePercentile);
+            rootNode.getNode("health", "probe", "hedge", "min_delay_millis").setValue(s.hedgeMinDelayMillis);
+            for (Map.Entry<String, String> entry : s.serverProbeStrategies.entrySet()) {
+                rootNode.getNode("health", "probe", "servers", entry.getKey()).setValue(entry.getValue());
+            }
+            rootNode.getNode("health", "snapshot", "enabled").setValue(s.healthSnapshot);
+            rootNode.getNode("health", "snapshot", "max_age_seconds").setValue(s.healthSnapshotMaxAgeSeconds);
+            rootNode.getNode("health", "flap_damping", "penalty").setValue(s.flapPenalty);
+            rootNode.getNode("health", "flap_damping", "suppress_threshold").setValue(s.flapSuppressThreshold);
+            rootNode.getNode("health", "flap_damping", "reuse_threshold").setValue(s.flapReuseThreshold);
+            rootNode.getNode("health", "flap_damping", "half_life_seconds").setValue(s.flapHalfLifeSeconds);
+            rootNode.getNode("health", "passive", "enabled").setValue(s.passiveDetection);
+            rootNode.getNode("health", "passive", "kick_reasons").setValue(s.passiveKickReasons);
+            for (ServerGroupSettings group : s.serverGroups.values()) {
+                rootNode.getNode("groups", group.getName(), "servers").setValue(group.getServers());
+                rootNode.getNode("groups", group.getName(), "strategy").setValue(group.getStrategy());
+            }
 
             loader.save(rootNode);
         } catch (IOException e) {
@@ -90,25 +401,571 @@ public class MainConfig {
         }
     }
 
+    /**
+     * Lists the settings only read at startup that differ between two snapshots
+     */
+    private static List<String> restartOnlyChanges(Snapshot previous, Snapshot next) {
+        List<String> changed = new ArrayList<>();
+        if (!previous.playerDataFormat.equalsIgnoreCase(next.playerDataFormat)) {
+            changed.add("player_data.format");
+        }
+        if (previous.journalCommitMillis != next.journalCommitMillis) {
+            changed.add("player_data.journal_commit_millis");
+        }
+        if (!previous.sharedStateBackend.equalsIgnoreCase(next.sharedStateBackend)) {
+            changed.add("shared_state.backend");
+        }
+        if (previous.sharedStateFlushMillis != next.sharedStateFlushMillis) {
+            changed.add("shared_state.flush_millis");
+        }
+        if (previous.redirectTickMillis != next.redirectTickMillis) {
+            changed.add("redirect.tick_millis");
+        }
+        return changed;
+    }
+
+    /**
+     * Gets every setting at once. Read it once per event and ask it everything, so a reload in
+     * between cannot give one event two different answers.
+     *
+     * @return The settings in use, never modified
+     */
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Gets the first configured limbo server
+     *
+     * @return The limbo server name
+     */
     public String getLimboServer() {
-        return limboServer;
+        return snapshot.get().limboServers.get(0);
     }
 
     public void setLimboServer(String limboServer) {
-        this.limboServer = limboServer;
+        snapshot.updateAndGet(current -> {
+            Builder next = new Builder(current);
+            next.limboServers = Collections.singletonList(limboServer);
+            return next.build();
+        });
         saveConfig();
     }
 
+    /**
+     * Gets every configured limbo server
+     *
+     * @return The limbo server names, in config order
+     */
+    public List<String> getLimboServers() {
+        return snapshot.get().limboServers;
+    }
+
+    /**
+     * Checks whether a server is one of the limbo servers
+     *
+     * @param serverName The server name
+     * @return true if it is a limbo server
+     */
+    public boolean isLimboServer(String serverName) {
+        return snapshot.get().limboServerSet.contains(serverName);
+    }
+
     public int getServerCheckIntervalSeconds() {
-        return serverCheckIntervalSeconds;
+        return snapshot.get().serverCheckIntervalSeconds;
     }
 
     public void setServerCheckIntervalSeconds(int serverCheckIntervalSeconds) {
-        this.serverCheckIntervalSeconds = serverCheckIntervalSeconds;
+        snapshot.updateAndGet(current -> {
+            Builder next = new Builder(current);
+            next.serverCheckIntervalSeconds = serverCheckIntervalSeconds;
+            return next.build();
+        });
         saveConfig();
     }
 
-    public void reload() {
-        loadConfig();
+    public int getRedirectTickMillis() {
+        return snapshot.get().redirectTickMillis;
+    }
+
+    public int getRedirectMaxPerTick() {
+        return snapshot.get().redirectMaxPerTick;
+    }
+
+    public String getFallbackStrategy() {
+        return snapshot.get().fallbackStrategy;
+    }
+
+    public String getFallbackGroup() {
+        return snapshot.get().fallbackGroup;
+    }
+
+    /**
+     * Gets the configured server groups, keyed by group name. The map is replaced, never
+     * modified, when the config is reloaded.
+     *
+     * @return The server groups in config order
+     */
+    public Map<String, ServerGroupSettings> getServerGroups() {
+        return snapshot.get().serverGroups;
+    }
+
+    public boolean isAutoReload() {
+        return snapshot.get().autoReload;
+    }
+
+    public boolean isServerListEnabled() {
+        return snapshot.get().serverListEnabled;
+    }
+
+    public String getServerListMaxPlayers() {
+        return snapshot.get().serverListMaxPlayers;
+    }
+
+    public String getServerListSample() {
+        return snapshot.get().serverListSample;
+    }
+
+    /**
+     * Checks whether player data is kept in data.bin. Only read at startup.
+     *
+     * @return true for the binary format, false for data.conf
+     */
+    public boolean isPlayerDataBinary() {
+        return "binary".equalsIgnoreCase(snapshot.get().playerDataFormat);
+    }
+
+    /**
+     * Gets how long player data changes are gathered before one journal flush. Only read at startup.
+     *
+     * @return The commit window in milliseconds
+     */
+    public int getJournalCommitMillis() {
+        return snapshot.get().journalCommitMillis;
+    }
+
+    /**
+     * Gets after how many days without joining a player who is not whitelisted is forgotten
+     *
+     * @return The number of days, 0 to keep every player
+     */
+    public int getRetentionDays() {
+        return snapshot.get().retentionDays;
+    }
+
+    public int getRetentionBatch() {
+        return snapshot.get().retentionBatch;
+    }
+
+    /**
+     * Gets the built-in backend player state is shared through. Only read at startup.
+     *
+     * @return "none" or "loopback"
+     */
+    public String getSharedStateBackend() {
+        return snapshot.get().sharedStateBackend.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets how often changes are written to the shared state backend. Only read at startup.
+     *
+     * @return The interval in milliseconds
+     */
+    public int getSharedStateFlushMillis() {
+        return snapshot.get().sharedStateFlushMillis;
+    }
+
+    /**
+     * Gets how long a login may wait for the player's shared state
+     *
+     * @return The timeout in milliseconds
+     */
+    public int getSharedStateFetchTimeoutMillis() {
+        return snapshot.get().sharedStateFetchTimeoutMillis;
+    }
+
+    public int getHealthSuccessThreshold() {
+        return snapshot.get().healthSuccessThreshold;
+    }
+
+    public int getHealthFailureThreshold() {
+        return snapshot.get().healthFailureThreshold;
+    }
+
+    public int getHealthSuspectIntervalMillis() {
+        return snapshot.get().healthSuspectIntervalMillis;
+    }
+
+    public int getHealthMaxBackoffSeconds() {
+        return snapshot.get().healthMaxBackoffSeconds;
+    }
+
+    public int getHealthProbeTimeoutMillis() {
+        return snapshot.get().healthProbeTimeoutMillis;
+    }
+
+    /**
+     * Gets the probe strategy for a server
+     *
+     * @param serverName The server name
+     * @return Its own strategy if it has one, otherwise the default strategy
+     */
+    public String getProbeStrategy(String serverName) {
+        return snapshot.get().getProbeStrategy(serverName);
+    }
+
+    public int getProbeStatusEvery() {
+        return snapshot.get().probeStatusEvery;
+    }
+
+    public boolean isHedgeEnabled() {
+        return snapshot.get().hedgeEnabled;
+    }
+
+    public double getHedgePercentile() {
+        return snapshot.get().hedgePercentile;
+    }
+
+    public int getHedgeMinDelayMillis() {
+        return snapshot.get().hedgeMinDelayMillis;
+    }
+
+    public boolean isHealthSnapshot() {
+        return snapshot.get().healthSnapshot;
+    }
+
+    public int getHealthSnapshotMaxAgeSeconds() {
+        return snapshot.get().healthSnapshotMaxAgeSeconds;
+    }
+
+    public int getFlapPenalty() {
+        return snapshot.get().flapPenalty;
+    }
+
+    public int getFlapSuppressThreshold() {
+        return snapshot.get().flapSuppressThreshold;
+    }
+
+    public int getFlapReuseThreshold() {
+        return snapshot.get().flapReuseThreshold;
+    }
+
+    public int getFlapHalfLifeSeconds() {
+        return snapshot.get().flapHalfLifeSeconds;
+    }
+
+    public boolean isPassiveDetection() {
+        return snapshot.get().passiveDetection;
+    }
+
+    public List<String> getPassiveKickReasons() {
+        return snapshot.get().passiveKickReasons;
+    }
+
+    /**
+     * Reads the config file again. The settings in use are only replaced if the whole file
+     * reads and validates.
+     *
+     * @return true if the new settings are now in use
+     */
+    public boolean reload() {
+        return loadConfig();
+    }
+
+    /**
+     * Every setting at one point in time. Immutable, a change builds and publishes a new one.
+     */
+    public static final class Snapshot {
+        private final List<String> limboServers;
+        private final int serverCheckIntervalSeconds;
+        private final boolean autoReload;
+        private final int redirectTickMillis;
+        private final int redirectMaxPerTick;
+        private final String fallbackStrategy;
+        private final String fallbackGroup;
+        private final Map<String, ServerGroupSettings> serverGroups;
+        private final boolean serverListEnabled;
+        private final String serverListMaxPlayers;
+        private final String serverListSample;
+        private final String playerDataFormat;
+        private final int journalCommitMillis;
+        private final int retentionDays;
+        private final int retentionBatch;
+        private final String sharedStateBackend;
+        private final int sharedStateFlushMillis;
+        private final int sharedStateFetchTimeoutMillis;
+        private final int healthSuccessThreshold;
+        private final int healthFailureThreshold;
+        private final int healthSuspectIntervalMillis;
+        private final int healthMaxBackoffSeconds;
+        private final int healthProbeTimeoutMillis;
+        private final String probeStrategy;
+        private final int probeStatusEvery;
+        private final Map<String, String> serverProbeStrategies;
+        private final boolean hedgeEnabled;
+        private final double hedgePercentile;
+        private final int hedgeMinDelayMillis;
+        private final boolean healthSnapshot;
+        private final int healthSnapshotMaxAgeSeconds;
+        private final int flapPenalty;
+        private final int flapSuppressThreshold;
+        private final int flapReuseThreshold;
+        private final int flapHalfLifeSeconds;
+        private final boolean passiveDetection;
+        private final List<String> passiveKickReasons;
+        private final Set<String> limboServerSet;
+
+        private Snapshot(Builder builder) {
+            limboServers = builder.limboServers;
+            serverCheckIntervalSeconds = builder.serverCheckIntervalSeconds;
+            autoReload = builder.autoReload;
+            redirectTickMillis = builder.redirectTickMillis;
+            redirectMaxPerTick = builder.redirectMaxPerTick;
+            fallbackStrategy = builder.fallbackStrategy;
+            fallbackGroup = builder.fallbackGroup;
+            serverGroups = builder.serverGroups;
+            serverListEnabled = builder.serverListEnabled;
+            serverListMaxPlayers = builder.serverListMaxPlayers;
+            serverListSample = builder.serverListSample;
+            playerDataFormat = builder.playerDataFormat;
+            journalCommitMillis = builder.journalCommitMillis;
+            retentionDays = builder.retentionDays;
+            retentionBatch = builder.retentionBatch;
+            sharedStateBackend = builder.sharedStateBackend;
+            sharedStateFlushMillis = builder.sharedStateFlushMillis;
+            sharedStateFetchTimeoutMillis = builder.sharedStateFetchTimeoutMillis;
+            healthSuccessThreshold = builder.healthSuccessThreshold;
+            healthFailureThreshold = builder.healthFailureThreshold;
+            healthSuspectIntervalMillis = builder.healthSuspectIntervalMillis;
+            healthMaxBackoffSeconds = builder.healthMaxBackoffSeconds;
+            healthProbeTimeoutMillis = builder.healthProbeTimeoutMillis;
+            probeStrategy = builder.probeStrategy;
+            probeStatusEvery = builder.probeStatusEvery;
+            serverProbeStrategies = builder.serverProbeStrategies;
+            hedgeEnabled = builder.hedgeEnabled;
+            hedgePercentile = builder.hedgePercentile;
+            hedgeMinDelayMillis = builder.hedgeMinDelayMillis;
+            healthSnapshot = builder.healthSnapshot;
+            healthSnapshotMaxAgeSeconds = builder.healthSnapshotMaxAgeSeconds;
+            flapPenalty = builder.flapPenalty;
+            flapSuppressThreshold = builder.flapSuppressThreshold;
+            flapReuseThreshold = builder.flapReuseThreshold;
+            flapHalfLifeSeconds = builder.flapHalfLifeSeconds;
+            passiveDetection = builder.passiveDetection;
+            passiveKickReasons = builder.passiveKickReasons;
+            limboServerSet = Collections.unmodifiableSet(new HashSet<>(limboServers));
+        }
+
+        /**
+         * @return The first configured limbo server
+         */
+        public String getLimboServer() {
+            return limboServers.get(0);
+        }
+
+        /**
+         * @return The limbo server names, in config order
+         */
+        public List<String> getLimboServers() {
+            return limboServers;
+        }
+
+        public boolean isLimboServer(String serverName) {
+            return limboServerSet.contains(serverName);
+        }
+
+        public int getRedirectMaxPerTick() {
+            return redirectMaxPerTick;
+        }
+
+        public int getServerCheckIntervalSeconds() {
+            return serverCheckIntervalSeconds;
+        }
+
+        public int getHealthSuccessThreshold() {
+            return healthSuccessThreshold;
+        }
+
+        public int getHealthFailureThreshold() {
+            return healthFailureThreshold;
+        }
+
+        public int getHealthSuspectIntervalMillis() {
+            return healthSuspectIntervalMillis;
+        }
+
+        public int getHealthMaxBackoffSeconds() {
+            return healthMaxBackoffSeconds;
+        }
+
+        public int getHealthProbeTimeoutMillis() {
+            return healthProbeTimeoutMillis;
+        }
+
+        /**
+         * @param serverName The server name
+         * @return Its own probe strategy if it has one, otherwise the default strategy
+         */
+        public String getProbeStrategy(String serverName) {
+            return serverProbeStrategies.getOrDefault(serverName, probeStrategy);
+        }
+
+        public int getProbeStatusEvery() {
+            return probeStatusEvery;
+        }
+
+        public boolean isHedgeEnabled() {
+            return hedgeEnabled;
+        }
+
+        public double getHedgePercentile() {
+            return hedgePercentile;
+        }
+
+        public int getHedgeMinDelayMillis() {
+            return hedgeMinDelayMillis;
+        }
+
+        public int getFlapPenalty() {
+            return flapPenalty;
+        }
+
+        public int getFlapSuppressThreshold() {
+            return flapSuppressThreshold;
+        }
+
+        public int getFlapReuseThreshold() {
+            return flapReuseThreshold;
+        }
+
+        public int getFlapHalfLifeSeconds() {
+            return flapHalfLifeSeconds;
+        }
+
+        public boolean isPassiveDetection() {
+            return passiveDetection;
+        }
+
+        public List<String> getPassiveKickReasons() {
+            return passiveKickReasons;
+        }
+    }
+
+    /**
+     * Collects the settings of a new snapshot while they are read or changed
+     */
+    private static final class Builder {
+        private List<String> limboServers = Collections.singletonList("limbo");
+        private int serverCheckIntervalSeconds = 5;
+        private boolean autoReload = false;
+        private int redirectTickMillis = 250;
+        private int redirectMaxPerTick = 100;
+        private String fallbackStrategy = "least_loaded";
+        private String fallbackGroup = "";
+        private Map<String, ServerGroupSettings> serverGroups = Collections.emptyMap();
+        private boolean serverListEnabled = true;
+        private String serverListMaxPlayers = "proxy";
+        private String serverListSample = "groups";
+        private String playerDataFormat = "hocon";
+        private int journalCommitMillis = 10;
+        private int retentionDays = 0;
+        private int retentionBatch = 5000;
+        private String sharedStateBackend = "none";
+        private int sharedStateFlushMillis = 50;
+        private int sharedStateFetchTimeoutMillis = 250;
+        private int healthSuccessThreshold = 2;
+        private int healthFailureThreshold = 3;
+        private int healthSuspectIntervalMillis = 1000;
+        private int healthMaxBackoffSeconds = 60;
+        private int healthProbeTimeoutMillis = 3000;
+        private String probeStrategy = "status";
+        private int probeStatusEvery = 6;
+        private Map<String, String> serverProbeStrategies = Collections.emptyMap();
+        private boolean hedgeEnabled = true;
+        private double hedgePercentile = 95;
+        private int hedgeMinDelayMillis = 50;
+        private boolean healthSnapshot = true;
+        private int healthSnapshotMaxAgeSeconds = 600;
+        private int flapPenalty = 1000;
+        private int flapSuppressThreshold = 2500;
+        private int flapReuseThreshold = 750;
+        private int flapHalfLifeSeconds = 60;
+        private boolean passiveDetection = true;
+        private List<String> passiveKickReasons = Arrays.asList(
+            "server closed", "restarting", "shutting down", "timed out", "connection reset", "internal exception");
+
+        private Builder() {
+        }
+
+        private Builder(Snapshot from) {
+            limboServers = from.limboServers;
+            serverCheckIntervalSeconds = from.serverCheckIntervalSeconds;
+            autoReload = from.autoReload;
+            redirectTickMillis = from.redirectTickMillis;
+            redirectMaxPerTick = from.redirectMaxPerTick;
+            fallbackStrategy = from.fallbackStrategy;
+            fallbackGroup = from.fallbackGroup;
+            serverGroups = from.serverGroups;
+            serverListEnabled = from.serverListEnabled;
+            serverListMaxPlayers = from.serverListMaxPlayers;
+            serverListSample = from.serverListSample;
+            playerDataFormat = from.playerDataFormat;
+            journalCommitMillis = from.journalCommitMillis;
+            retentionDays = from.retentionDays;
+            retentionBatch = from.retentionBatch;
+            sharedStateBackend = from.sharedStateBackend;
+            sharedStateFlushMillis = from.sharedStateFlushMillis;
+            sharedStateFetchTimeoutMillis = from.sharedStateFetchTimeoutMillis;
+            healthSuccessThreshold = from.healthSuccessThreshold;
+            healthFailureThreshold = from.healthFailureThreshold;
+            healthSuspectIntervalMillis = from.healthSuspectIntervalMillis;
+            healthMaxBackoffSeconds = from.healthMaxBackoffSeconds;
+            healthProbeTimeoutMillis = from.healthProbeTimeoutMillis;
+            probeStrategy = from.probeStrategy;
+            probeStatusEvery = from.probeStatusEvery;
+            serverProbeStrategies = from.serverProbeStrategies;
+            hedgeEnabled = from.hedgeEnabled;
+            hedgePercentile = from.hedgePercentile;
+            hedgeMinDelayMillis = from.hedgeMinDelayMillis;
+            healthSnapshot = from.healthSnapshot;
+            healthSnapshotMaxAgeSeconds = from.healthSnapshotMaxAgeSeconds;
+            flapPenalty = from.flapPenalty;
+            flapSuppressThreshold = from.flapSuppressThreshold;
+            flapReuseThreshold = from.flapReuseThreshold;
+            flapHalfLifeSeconds = from.flapHalfLifeSeconds;
+            passiveDetection = from.passiveDetection;
+            passiveKickReasons = from.passiveKickReasons;
+        }
+
+        private Snapshot build() {
+            return new Snapshot(this);
+        }
+    }
+
+    /**
+     * A server group as written in the config
+     */
+    public static class ServerGroupSettings {
+        private final String name;
+        private final List<String> servers;
+        private final String strategy;
+
+        public ServerGroupSettings(String name, List<String> servers, String strategy) {
+            this.name = name;
+            this.servers = Collections.unmodifiableList(servers);
+            this.strategy = strategy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getServers() {
+            return servers;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
     }
-}
\ No newline at end of file
+}
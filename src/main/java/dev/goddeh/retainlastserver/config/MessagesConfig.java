@@ -15,8 +15,10 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,6 +31,9 @@ public class MessagesConfig {
     private ConfigurationLoader<CommentedConfigurationNode> loader;
     private CommentedConfigurationNode rootNode;
 
+    // Every message keyed by its dot-separated path, replaced as a whole on every load
+    private final AtomicReference<Map<String, String>> messages = new AtomicReference<>(Collections.emptyMap());
+
     // Pattern to match placeholders like %%placeholder%%
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("%%([^%]+)%%");
 
@@ -40,7 +45,7 @@ public class MessagesConfig {
         loadConfig();
     }
 
-    private void loadConfig() {
+    private synchronized boolean loadConfig() {
         try {
             if (!Files.exists(dataDirectory)) {
                 Files.createDirectories(dataDirectory);
@@ -61,16 +66,42 @@ public class MessagesConfig {
 
             try {
                 // Load the config
-                rootNode = loader.load();
-                logger.info("Messages config loaded");
+                CommentedConfigurationNode loaded = loader.load();
+                Map<String, String> next = new HashMap<>();
+                flatten(loaded, "", next);
+
+                // Swap every message in at once, readers see either the old or the new set
+                rootNode = loaded;
+                messages.set(Collections.unmodifiableMap(next));
+                logger.info("Messages config loaded ({} messages)", next.size());
+                return true;
             } catch (Exception e) {
-                logger.error("Failed to load messages config, using default messages", e);
-                // Continue with default values if loading fails
+                logger.error("Failed to load messages config, keeping the messages in use", e);
+                // Continue with the previous (or default) messages if loading fails
             }
 
         } catch (IOException e) {
             logger.error("Failed to initialize messages config", e);
         }
+        return false;
+    }
+
+    /**
+     * Collects every message under a node by its dot-separated path
+     *
+     * @param node The node to read
+     * @param path The node's path, empty for the root
+     * @param into Where to put the messages
+     */
+    private void flatten(CommentedConfigurationNode node, String path, Map<String, String> into) {
+        if (node.hasMapChildren()) {
+            for (Map.Entry<Object, ? extends CommentedConfigurationNode> child : node.getChildrenMap().entrySet()) {
+                String key = String.valueOf(child.getKey());
+                flatten(child.getValue(), path.isEmpty() ? key : path + "." + key, into);
+            }
+        } else if (!path.isEmpty() && node.getValue() != null) {
+            into.put(path, node.getString());
+        }
     }
 
     private String createDefaultMessagesConfig() {
@@ -128,7 +159,7 @@ public class MessagesConfig {
                 "}\n";
     }
 
-    public void saveConfig() {
+    public synchronized void saveConfig() {
         try {
             loader.save(rootNode);
         } catch (IOException e) {
@@ -144,14 +175,7 @@ public class MessagesConfig {
      * @return The raw message
      */
     public String getRawMessage(String path, String defaultValue) {
-        String[] parts = path.split("\\.");
-        CommentedConfigurationNode node = rootNode;
-
-        for (String part : parts) {
-            node = node.getNode(part);
-        }
-
-        return node.getString(defaultValue);
+        return messages.get().getOrDefault(path, defaultValue);
     }
 
     /**
@@ -214,7 +238,12 @@ public class MessagesConfig {
         return TextComponent.ofChildren(message, Component.space(), connectButton);
     }
 
-    public void reload() {
-        loadConfig();
+    /**
+     * Reads messages.conf again. If it cannot be read the messages in use are kept.
+     *
+     * @return true if the new messages are now in use
+     */
+    public boolean reload() {
+        return loadConfig();
     }
 }
\ No newline at end of file
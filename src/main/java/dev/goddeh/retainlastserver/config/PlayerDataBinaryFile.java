@@ -0,0 +1,341 @@
+package dev.goddeh.retainlastserver.config;
+
+import dev.goddeh.retainlastserver.config.PlayerDataConfig.PlayerData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary snapshot of player data (data.bin), several times smaller than data.conf and
+ * loaded in parallel straight from a memory-mapped file.
+ *
+ * <pre>
+ * header   magic, version, base time, footer offset
+ * chunks   up to CHUNK_RECORDS records each:
+ *            uuid (16 bytes), flags, name, last server, last connected, first connected,
+ *            total connections, awaiting reconnect
+ * footer   server name dictionary, chunk table (offset, length, records, CRC32C each),
+ *          record count, CRC32C of the header and footer
+ * </pre>
+ *
+ * Server names are indexes into the dictionary, times are zigzag varints relative to the base
+ * time, and counters are varints. Every chunk carries its own checksum, so chunks are verified
+ * and decoded independently.
+ */
+final class PlayerDataBinaryFile {
+
+    private static final int MAGIC = 0x42585044; // BXPD
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int CHUNK_RECORDS = 1 << 16;
+
+    private static final int WHITELISTED = 1;
+    private static final int HAS_LAST_SERVER = 1 << 1;
+    private static final int HAS_AWAITING_RECONNECT = 1 << 2;
+
+    private PlayerDataBinaryFile() {
+    }
+
+    /**
+     * Writes every player record to a file. The file is replaced only once it is completely
+     * written and on disk.
+     *
+     * @param file The file
+     * @param players The records to write
+     * @throws IOException If the file cannot be written
+     */
+    static void write(Path file, Iterable<PlayerData> players) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long baseTime = System.currentTimeMillis();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Out chunk = new Out(CHUNK_RECORDS * 48);
+        Out footer = new Out(4096);
+        List<long[]> chunks = new ArrayList<>();
+        long total = 0;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            int records = 0;
+
+            for (PlayerData data : players) {
+                UUID uuid = data.getUuid();
+                chunk.putLong(uuid.getMostSignificantBits());
+                chunk.putLong(uuid.getLeastSignificantBits());
+                String lastServer = data.getLastServer();
+                String awaiting = data.getAwaitingReconnect();
+                chunk.put((data.isWhitelisted() ? WHITELISTED : 0)
+                        | (lastServer != null ? HAS_LAST_SERVER : 0)
+                        | (awaiting != null ? HAS_AWAITING_RECONNECT : 0));
+                chunk.putString(data.getName() != null ? data.getName() : "Unknown");
+                if (lastServer != null) {
+                    chunk.putVarLong(index(lastServer, dictionary, names));
+                }
+                chunk.putVarLong(zigzag(baseTime - data.getLastConnected()));
+                chunk.putVarLong(zigzag(baseTime - data.getFirstConnected()));
+                chunk.putVarLong(zigzag(data.getTotalConnections()));
+                if (awaiting != null) {
+                    chunk.putVarLong(index(awaiting, dictionary, names));
+                }
+                if (++records == CHUNK_RECORDS) {
+                    chunks.add(flushChunk(channel, chunk, records));
+                    total += records;
+                    records = 0;
+                }
+            }
+            if (records > 0) {
+                chunks.add(flushChunk(channel, chunk, records));
+                total += records;
+            }
+
+            long footerOffset = channel.position();
+            footer.putInt(names.size());
+            for (String name : names) {
+                footer.putString(name);
+            }
+            footer.putInt(chunks.size());
+            for (long[] entry : chunks) {
+                footer.putLong(entry[0]);
+                footer.putInt((int) entry[1]);
+                footer.putInt((int) entry[2]);
+                footer.putInt((int) entry[3]);
+            }
+            footer.putLong(total);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putLong(baseTime).putLong(footerOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(header.array(), 0, HEADER_SIZE);
+            crc.update(footer.bytes, 0, footer.size);
+            footer.putInt((int) crc.getValue());
+
+            writeFully(channel, ByteBuffer.wrap(footer.bytes, 0, footer.size), footerOffset);
+            writeFully(channel, header.flip(), 0);
+            channel.force(false);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads every player record in a file, decoding chunks in parallel
+     *
+     * @param file The file
+     * @param sink Receives each record, called from several threads at once
+     * @return The number of records read
+     * @throws IOException If the file cannot be read or fails its checksums
+     */
+    static long read(Path file, Consumer<PlayerData> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("data.bin is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("data.bin is not a player data snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("data.bin has unknown version " + version);
+            }
+            long baseTime = header.getLong();
+            long footerOffset = header.getLong();
+            if (footerOffset < HEADER_SIZE || footerOffset > size - 4) {
+                throw new IOException("data.bin is truncated");
+            }
+
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - footerOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(header.flip());
+            crc.update(footer.duplicate().limit(footer.limit() - 4));
+            if ((int) crc.getValue() != footer.getInt(footer.limit() - 4)) {
+                throw new IOException("data.bin failed its checksum");
+            }
+
+            String[] names = new String[footer.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = getString(footer, scratch);
+            }
+            int chunkCount = footer.getInt();
+            long[][] chunks = new long[chunkCount][];
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = new long[]{footer.getLong(), footer.getInt(), footer.getInt(), footer.getInt()};
+            }
+            long total = footer.getLong();
+
+            try {
+                IntStream.range(0, chunkCount).parallel().forEach(i -> {
+                    try {
+                        readChunk(channel, chunks[i], baseTime, names, sink);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return total;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("data.bin is corrupt", e);
+        }
+    }
+
+    private static void readChunk(FileChannel channel, long[] entry, long baseTime, String[] names,
+                                  Consumer<PlayerData> sink) throws IOException {
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, entry[0], entry[1]);
+        CRC32C crc = new CRC32C();
+        crc.update(in.duplicate());
+        if ((int) crc.getValue() != (int) entry[3]) {
+            throw new IOException("data.bin chunk at " + entry[0] + " failed its checksum");
+        }
+
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < entry[2]; i++) {
+            UUID uuid = new UUID(in.getLong(), in.getLong());
+            int flags = in.get();
+            String name = getString(in, scratch);
+            String lastServer = (flags & HAS_LAST_SERVER) != 0 ? names[(int) getVarLong(in)] : null;
+            long lastConnected = baseTime - unzigzag(getVarLong(in));
+            long firstConnected = baseTime - unzigzag(getVarLong(in));
+            int totalConnections = (int) unzigzag(getVarLong(in));
+            String awaiting = (flags & HAS_AWAITING_RECONNECT) != 0 ? names[(int) getVarLong(in)] : null;
+            sink.accept(new PlayerData(uuid, name, lastServer, lastConnected, firstConnected,
+                    totalConnections, (flags & WHITELISTED) != 0, awaiting));
+        }
+    }
+
+    private static long[] flushChunk(FileChannel channel, Out chunk, int records) throws IOException {
+        long offset = channel.position();
+        CRC32C crc = new CRC32C();
+        crc.update(chunk.bytes, 0, chunk.size);
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.bytes, 0, chunk.size);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        long[] entry = {offset, chunk.size, records, (int) crc.getValue()};
+        chunk.size = 0;
+        return entry;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int index(String name, Map<String, Integer> dictionary, List<String> names) {
+        Integer index = dictionary.get(name);
+        if (index == null) {
+            index = names.size();
+            dictionary.put(name, index);
+            names.add(name);
+        }
+        return index;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("data.bin has a malformed number");
+    }
+
+    private static String getString(ByteBuffer in, byte[] scratch) throws IOException {
+        int length = (int) getVarLong(in);
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A growable byte buffer, reused for every chunk
+     */
+    private static final class Out {
+        private byte[] bytes;
+        private int size;
+
+        private Out(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private void put(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        private void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void putString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+    }
+}
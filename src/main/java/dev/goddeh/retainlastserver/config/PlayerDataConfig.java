@@ -8,30 +8,96 @@ import ninja.leaping.configurate.loader.ConfigurationLoader;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 public class PlayerDataConfig {
 
+    // A journal this big is folded into the player data file without waiting for the autosave
+    private static final long COMPACT_JOURNAL_BYTES = 16L << 20;
+
     private final ProxyServer proxy;
     private final Path dataDirectory;
     private final Logger logger;
     private final Path configFile;
+    private final Path binaryFile;
+    // Whether data.bin is the file in use rather than data.conf
+    private final boolean binary;
+    // Only used for files the streaming reader cannot handle
     private ConfigurationLoader<CommentedConfigurationNode> loader;
-    private CommentedConfigurationNode rootNode;
+    // Commit window of the journal, negative to keep no journal
+    private final int journalCommitMillis;
+    // Whitelist and server changes since the last save, null while there is no journal
+    private volatile PlayerDataJournal journal;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // Held for reading from a journal append until the update making it is in the cache, and
+    // for writing while a save rotates the journal and copies the cache, so a save never drops
+    // a journal holding a change its copy is missing
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
 
     // In-memory cache to reduce file I/O
     private final Map<UUID, PlayerData> playerDataCache = new ConcurrentHashMap<>();
+    // Every change to the cache goes through indexed() inside the compute making it
+    private final PlayerDataIndex index = new PlayerDataIndex();
+    // Told about every change from inside the compute making it
+    private final List<BiConsumer<PlayerData, PlayerData>> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Modification time of the file in use when this plugin last read or wrote it, to tell outside edits apart
+    private volatile long lastSeenModified;
+    // Every player as the file in use held them then, so a reload only takes what an outside edit changed
+    private volatile Map<UUID, PlayerData> lastSeenPlayers = Collections.emptyMap();
 
     public PlayerDataConfig(ProxyServer proxy, Path dataDirectory, Logger logger) {
+        this(proxy, dataDirectory, logger, false);
+    }
+
+    /**
+     * @param proxy The proxy
+     * @param dataDirectory The plugin's data directory
+     * @param logger The logger
+     * @param binary Whether to keep player data in the binary data.bin instead of data.conf
+     */
+    public PlayerDataConfig(ProxyServer proxy, Path dataDirectory, Logger logger, boolean binary) {
+        this(proxy, dataDirectory, logger, binary, -1);
+    }
+
+    /**
+     * @param proxy The proxy
+     * @param dataDirectory The plugin's data directory
+     * @param logger The logger
+     * @param binary Whether to keep player data in the binary data.bin instead of data.conf
+     * @param journalCommitMillis How long to gather changes before one journal flush, negative
+     *                            to keep no journal and save the whole file on whitelist changes
+     */
+    public PlayerDataConfig(ProxyServer proxy, Path dataDirectory, Logger logger, boolean binary, int journalCommitMillis) {
         this.proxy = proxy;
         this.dataDirectory = dataDirectory;
         this.logger = logger;
         this.configFile = dataDirectory.resolve("data.conf");
+        this.binaryFile = dataDirectory.resolve("data.bin");
+        this.binary = binary;
+        this.journalCommitMillis = journalCommitMillis;
         loadConfig();
+        if (journalCommitMillis >= 0) {
+            openJournal();
+        }
     }
 
     private void loadConfig() {
@@ -40,7 +106,7 @@ public class PlayerDataConfig {
                 Files.createDirectories(dataDirectory);
             }
 
-            boolean needsCreate = !Files.exists(configFile);
+            boolean needsCreate = !binary && !Files.exists(configFile) && !Files.exists(binaryFile);
 
             // Initialize the loader
             loader = HoconConfigurationLoader.builder()
@@ -73,36 +139,32 @@ public class PlayerDataConfig {
 
             try {
                 // Load the config
-                rootNode = loader.load();
+                long modified = lastModified(activeFile());
                 playerDataCache.clear();
 
-                // Load all player data into cache
-                CommentedConfigurationNode playersNode = rootNode.getNode("players");
-                Map<Object, ? extends CommentedConfigurationNode> players = playersNode.getChildrenMap();
-
-                for (Map.Entry<Object, ? extends CommentedConfigurationNode> entry : players.entrySet()) {
+                // Load all player data straight into the cache, one record at a time
+                Path source = sourceFile();
+                if (source == binaryFile) {
                     try {
-                        UUID uuid = UUID.fromString(entry.getKey().toString());
-                        CommentedConfigurationNode playerNode = entry.getValue();
-
-                        PlayerData playerData = new PlayerData(
-                                uuid,
-                                playerNode.getNode("name").getString("Unknown"),
-                                playerNode.getNode("lastServer").getString(null),
-                                playerNode.getNode("lastConnected").getLong(0),
-                                playerNode.getNode("firstConnected").getLong(System.currentTimeMillis()),
-                                playerNode.getNode("totalConnections").getInt(0),
-                                playerNode.getNode("whitelisted").getBoolean(false),
-                                playerNode.getNode("awaitingReconnect").getString(null)
-                        );
-
-                        playerDataCache.put(uuid, playerData);
-                    } catch (IllegalArgumentException e) {
-                        logger.warn("Invalid UUID in player data config: {}", entry.getKey());
+                        readFile(binaryFile, data -> playerDataCache.put(data.getUuid(), data));
+                    } catch (IOException e) {
+                        source = setAsideBinaryFile(e);
                     }
                 }
+                if (source == configFile) {
+                    readFile(configFile, data -> playerDataCache.put(data.getUuid(), data));
+                }
+                // Indexed in one go afterwards, cheaper than from every loading thread at once
+                index.rebuild(playerDataCache.values());
+                lastSeenModified = modified;
+                lastSeenPlayers = byUuid(playerDataCache.values());
 
                 logger.info("Loaded data for {} players", playerDataCache.size());
+                if (source != null && source != activeFile()) {
+                    // The other format is newer, e.g. on the first start after switching
+                    logger.info("Converting player data from {} to {}", source.getFileName(), activeFile().getFileName());
+                    saveConfig();
+                }
             } catch (Exception e) {
                 logger.error("Failed to load player data, starting with empty cache", e);
                 // Continue with empty cache if loading fails
@@ -113,32 +175,167 @@ public class PlayerDataConfig {
         }
     }
 
-    public void saveConfig() {
+    /**
+     * Applies the changes journaled since the last save on top of the loaded data, then starts
+     * journaling new ones
+     */
+    private void openJournal() {
+        PlayerDataJournal opened = new PlayerDataJournal(dataDirectory, logger, journalCommitMillis);
         try {
-            // Create a new root node if it doesn't exist
-            if (rootNode == null) {
-                rootNode = loader.createEmptyNode();
+            boolean leftOver = opened.hasOld();
+            int replayed = opened.replayAndOpen((uuid, change) -> playerDataCache.compute(uuid, (id, data) -> indexed(data,
+                    change.apply(data != null ? data : new PlayerData(id, "Unknown", null, 0, System.currentTimeMillis(), 0, false, null)))));
+            journal = opened;
+            if (replayed > 0 || leftOver) {
+                logger.info("Replayed {} player data changes from the journal", replayed);
+                // Fold them into the file so the journal starts out empty
+                saveConfig();
             }
+        } catch (IOException e) {
+            logger.error("Failed to open the player data journal, whitelist changes will save the whole file", e);
+        }
+    }
+
+    private Path activeFile() {
+        return binary ? binaryFile : configFile;
+    }
 
-            // Clear the players node before saving
-            rootNode.getNode("players").setValue(null);
-
-            // Save all player data from cache
-            for (Map.Entry<UUID, PlayerData> entry : playerDataCache.entrySet()) {
-                UUID uuid = entry.getKey();
-                PlayerData data = entry.getValue();
-
-                CommentedConfigurationNode playerNode = rootNode.getNode("players", uuid.toString());
-                playerNode.getNode("name").setValue(data.getName());
-                playerNode.getNode("lastServer").setValue(data.getLastServer());
-                playerNode.getNode("lastConnected").setValue(data.getLastConnected());
-                playerNode.getNode("firstConnected").setValue(data.getFirstConnected());
-                playerNode.getNode("totalConnections").setValue(data.getTotalConnections());
-                playerNode.getNode("whitelisted").setValue(data.isWhitelisted());
-                playerNode.getNode("awaitingReconnect").setValue(data.getAwaitingReconnect());
+    /**
+     * Picks the file to load at startup: the newer of data.conf and data.bin
+     *
+     * @return The file, or null if neither exists
+     */
+    private Path sourceFile() {
+        boolean hocon = Files.exists(configFile);
+        boolean snapshot = Files.exists(binaryFile);
+        if (hocon && snapshot) {
+            long hoconModified = lastModified(configFile);
+            long snapshotModified = lastModified(binaryFile);
+            if (hoconModified == snapshotModified) {
+                return activeFile();
             }
+            return hoconModified > snapshotModified ? configFile : binaryFile;
+        }
+        return hocon ? configFile : snapshot ? binaryFile : null;
+    }
 
-            loader.save(rootNode);
+    /**
+     * Moves a data.bin that failed to load to data.bin.corrupt, so no save can overwrite what
+     * may still be recovered from it, and drops whatever was read from it
+     *
+     * @param cause Why it failed to load
+     * @return data.conf to load instead if it exists, otherwise null
+     */
+    private Path setAsideBinaryFile(IOException cause) {
+        playerDataCache.clear();
+        Path corrupt = dataDirectory.resolve("data.bin.corrupt");
+        try {
+            Files.move(binaryFile, corrupt, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+        if (!Files.exists(configFile)) {
+            logger.error("Failed to read data.bin, moved it to {} and starting with no player data", corrupt.getFileName(), cause);
+            return null;
+        }
+        logger.error("Failed to read data.bin, moved it to {} and loading the older data.conf instead",
+                corrupt.getFileName(), cause);
+        return configFile;
+    }
+
+    /**
+     * Reads every player record in data.bin or data.conf. data.conf is read with the streaming
+     * reader, or with Configurate if it uses HOCON the streaming reader does not handle.
+     *
+     * @param file The file to read
+     * @param sink Receives each record, possibly from several threads at once
+     * @throws IOException If the file cannot be read
+     */
+    private void readFile(Path file, Consumer<PlayerData> sink) throws IOException {
+        if (file == binaryFile) {
+            PlayerDataBinaryFile.read(binaryFile, sink);
+            return;
+        }
+        try {
+            PlayerDataFile.read(configFile, logger, sink);
+        } catch (PlayerDataFile.UnsupportedSyntaxException e) {
+            logger.info("data.conf needs the full HOCON parser ({}), reading it with Configurate", e.getMessage());
+            readPlayers(loader.load(), sink);
+        }
+    }
+
+    /**
+     * Reads every player record under a loaded root node
+     *
+     * @param root The loaded data.conf
+     * @param sink Receives each record
+     */
+    private void readPlayers(CommentedConfigurationNode root, Consumer<PlayerData> sink) {
+        Map<Object, ? extends CommentedConfigurationNode> players = root.getNode("players").getChildrenMap();
+
+        for (Map.Entry<Object, ? extends CommentedConfigurationNode> entry : players.entrySet()) {
+            try {
+                UUID uuid = UUID.fromString(entry.getKey().toString());
+                CommentedConfigurationNode playerNode = entry.getValue();
+
+                PlayerData playerData = new PlayerData(
+                        uuid,
+                        playerNode.getNode("name").getString("Unknown"),
+                        playerNode.getNode("lastServer").getString(null),
+                        playerNode.getNode("lastConnected").getLong(0),
+                        playerNode.getNode("firstConnected").getLong(System.currentTimeMillis()),
+                        playerNode.getNode("totalConnections").getInt(0),
+                        playerNode.getNode("whitelisted").getBoolean(false),
+                        playerNode.getNode("awaitingReconnect").getString(null)
+                );
+
+                sink.accept(playerData);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid UUID in player data config: {}", entry.getKey());
+            }
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public synchronized void saveConfig() {
+        PlayerDataJournal current = journal;
+        boolean rotated = false;
+        List<PlayerData> players;
+        journalLock.writeLock().lock();
+        try {
+            if (current != null) {
+                try {
+                    // Changes from here on go to a new journal, this save covers everything before
+                    current.rotate();
+                    rotated = true;
+                } catch (IOException e) {
+                    logger.error("Failed to start a new player data journal", e);
+                }
+            }
+            // Every change in the rotated journal has reached the cache, copy it before any more do
+            players = new ArrayList<>(playerDataCache.values());
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+        try {
+            // Written straight from the copy, no node tree is built
+            if (binary) {
+                PlayerDataBinaryFile.write(binaryFile, players);
+            } else {
+                PlayerDataFile.write(configFile, players);
+            }
+            lastSeenModified = lastModified(activeFile());
+            lastSeenPlayers = byUuid(players);
+            if (rotated) {
+                current.discardOld();
+            }
         } catch (IOException e) {
             logger.error("Failed to save player data config", e);
         }
@@ -151,50 +348,198 @@ public class PlayerDataConfig {
      * @return The player's data
      */
     public PlayerData getPlayerData(UUID uuid) {
-        return playerDataCache.computeIfAbsent(uuid, id -> {
-            // Try to get the player name from the online player
-            String name = proxy.getPlayer(id).map(Player::getUsername).orElse("Unknown");
-
-            // Create new player data
-            PlayerData data = new PlayerData(
-                    id,
-                    name,
-                    null,
-                    0,
-                    System.currentTimeMillis(),
-                    0,
-                    false,
-                    null
-            );
-
-            return data;
-        });
+        return playerDataCache.computeIfAbsent(uuid, id -> indexed(null, createPlayerData(id)));
+    }
+
+    /**
+     * Gets a player's data without creating it
+     *
+     * @param uuid Player UUID
+     * @return The player's data, or null if there is none
+     */
+    public PlayerData getPlayerDataIfPresent(UUID uuid) {
+        return playerDataCache.get(uuid);
+    }
+
+    private PlayerData createPlayerData(UUID uuid) {
+        // Created here, so it is newer than anything already in the file
+        return newPlayerData(uuid).markedChanged();
+    }
+
+    private PlayerData newPlayerData(UUID uuid) {
+        // Try to get the player name from the online player
+        String name = proxy.getPlayer(uuid).map(Player::getUsername).orElse("Unknown");
+
+        // Create new player data
+        return new PlayerData(
+                uuid,
+                name,
+                null,
+                0,
+                System.currentTimeMillis(),
+                0,
+                false,
+                null
+        );
     }
 
     /**
-     * Updates a player's data
+     * Replaces a player's data
      *
-     * @param data The updated player data
+     * @param data The new player data
      */
     public void updatePlayerData(PlayerData data) {
-        playerDataCache.put(data.getUuid(), data);
+        playerDataCache.compute(data.getUuid(), (id, old) -> indexed(old, data));
         // We don't save on every update to reduce I/O
     }
 
+    /**
+     * Changes a player's data atomically, creating it first if needed. Other changes to the same
+     * player wait until the update returns, so none is lost, and readers see either the old or
+     * the new data. The update runs once and should be quick.
+     *
+     * @param uuid Player UUID
+     * @param update Makes the new data from the current data
+     * @return The new data
+     */
+    public PlayerData updatePlayerData(UUID uuid, UnaryOperator<PlayerData> update) {
+        return playerDataCache.compute(uuid, (id, data) -> indexed(data, update.apply(data != null ? data : createPlayerData(id))));
+    }
+
+    /**
+     * Applies changes another proxy made to a player's shared fields, keeping any field set here
+     * later. The changes taken are journaled.
+     *
+     * @param uuid Player UUID
+     * @param changes Changes to this player
+     * @param create Whether to create the player if they are not cached
+     * @return The player's data, or null if they are not cached and were not created
+     */
+    PlayerData applySharedChanges(UUID uuid, List<SharedPlayerChange> changes, boolean create) {
+        BiFunction<UUID, PlayerData, PlayerData> apply = (id, data) -> {
+            // A new record takes the shared fields whenever they were set
+            PlayerData before = data != null ? data : newPlayerData(id);
+            PlayerData after = before;
+            for (SharedPlayerChange change : changes) {
+                after = after.withSharedChange(change);
+            }
+            journalChanges(before, after, new ArrayList<>());
+            return indexed(data, after);
+        };
+        return journaled(() -> create ? playerDataCache.compute(uuid, apply) : playerDataCache.computeIfPresent(uuid, apply));
+    }
+
+    /**
+     * Changes several players at once, journaling each change. Whitelist changes are on disk
+     * once the returned future completes, as with {@link #setWhitelisted(UUID, boolean)}, but
+     * the caller does not wait for each one in turn.
+     *
+     * @param uuids Player UUIDs, players not known yet are created
+     * @param update Makes each player's new data from their current data
+     * @return Every player's new data, once the changes are on disk
+     */
+    public CompletableFuture<Map<UUID, PlayerData>> updateAll(Collection<UUID> uuids, UnaryOperator<PlayerData> update) {
+        Map<UUID, PlayerData> updated = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        boolean[] unjournaled = new boolean[1];
+        for (UUID uuid : uuids) {
+            updated.put(uuid, journaled(() -> updatePlayerData(uuid, data -> {
+                PlayerData changed = update.apply(data);
+                if (!journalChanges(data, changed, commits)) {
+                    unjournaled[0] = true;
+                }
+                return changed;
+            })));
+        }
+
+        Map<UUID, PlayerData> result = Collections.unmodifiableMap(updated);
+        if (commits.isEmpty() && !unjournaled[0]) {
+            return CompletableFuture.completedFuture(result);
+        }
+        return CompletableFuture.allOf(commits.toArray(new CompletableFuture[0]))
+                .handleAsync((ignored, error) -> {
+                    // Whitelist changes the journal could not take are saved the slow way
+                    if (error != null || unjournaled[0]) {
+                        saveConfig();
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Journals the journaled fields that differ between two copies of a player's data
+     *
+     * @param before The data before
+     * @param after The data after
+     * @param commits Receives a future for each change written
+     * @return false if a whitelist change could not be journaled
+     */
+    private boolean journalChanges(PlayerData before, PlayerData after, List<CompletableFuture<Void>> commits) {
+        UUID uuid = after.getUuid();
+        if (before.lastServerId() != after.lastServerId()) {
+            addCommit(commits, journal(PlayerDataJournal.LAST_SERVER, uuid, false, after.getLastServer()));
+        }
+        if (before.awaitingReconnectId() != after.awaitingReconnectId()) {
+            addCommit(commits, journal(PlayerDataJournal.AWAITING_RECONNECT, uuid, false, after.getAwaitingReconnect()));
+        }
+        if (before.isWhitelisted() != after.isWhitelisted()) {
+            return addCommit(commits, journal(PlayerDataJournal.WHITELISTED, uuid, after.isWhitelisted(), after.getName()));
+        }
+        return true;
+    }
+
+    private static boolean addCommit(List<CompletableFuture<Void>> commits, CompletableFuture<Void> committed) {
+        if (committed == null) {
+            return false;
+        }
+        commits.add(committed);
+        return true;
+    }
+
+    /**
+     * Adds a listener told about every change to a player's data: (before, after), before null
+     * for a new player and after null for a removed one. It is called from inside the update,
+     * so it must be quick and must not touch player data itself. Loading the file at startup
+     * is not reported.
+     *
+     * @param listener The listener
+     */
+    public void addChangeListener(BiConsumer<PlayerData, PlayerData> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(BiConsumer<PlayerData, PlayerData> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Keeps the indexes and change listeners in step with a change to the cache
+     *
+     * @param old The player's data before, or null
+     * @param now The player's data after, or null to remove it
+     * @return now, to return from the compute making the change
+     */
+    private PlayerData indexed(PlayerData old, PlayerData now) {
+        if (old != now) {
+            index.replaced(old, now);
+            for (BiConsumer<PlayerData, PlayerData> listener : changeListeners) {
+                listener.accept(old, now);
+            }
+        }
+        return now;
+    }
+
     /**
      * Called when a player connects to the proxy
      *
      * @param player The player that connected
      */
     public void playerConnected(Player player) {
-        UUID uuid = player.getUniqueId();
-        PlayerData data = getPlayerData(uuid);
-
-        data.setName(player.getUsername());
-        data.setLastConnected(System.currentTimeMillis());
-        data.setTotalConnections(data.getTotalConnections() + 1);
-
-        updatePlayerData(data);
+        long now = System.currentTimeMillis();
+        updatePlayerData(player.getUniqueId(), data -> data
+                .withName(player.getUsername())
+                .withLastConnected(now)
+                .withTotalConnections(data.getTotalConnections() + 1));
     }
 
     /**
@@ -204,9 +549,15 @@ public class PlayerDataConfig {
      * @param serverName Server name
      */
     public void setLastServer(UUID uuid, String serverName) {
-        PlayerData data = getPlayerData(uuid);
-        data.setLastServer(serverName);
-        updatePlayerData(data);
+        char server = ServerNameDictionary.shared().id(serverName);
+        journaled(() -> updatePlayerData(uuid, data -> {
+            // Most connects set the same server again, that is not a change to journal or share
+            if (data.lastServerId() == server) {
+                return data;
+            }
+            journal(PlayerDataJournal.LAST_SERVER, uuid, false, serverName);
+            return data.withLastServer(serverName);
+        }));
     }
 
     /**
@@ -216,9 +567,15 @@ public class PlayerDataConfig {
      * @param serverName Server name, or null if not waiting
      */
     public void setAwaitingReconnect(UUID uuid, String serverName) {
-        PlayerData data = getPlayerData(uuid);
-        data.setAwaitingReconnect(serverName);
-        updatePlayerData(data);
+        char server = ServerNameDictionary.shared().id(serverName);
+        journaled(() -> updatePlayerData(uuid, data -> {
+            // Every connect and disconnect clears it, usually when it is already clear
+            if (data.awaitingReconnectId() == server) {
+                return data;
+            }
+            journal(PlayerDataJournal.AWAITING_RECONNECT, uuid, false, serverName);
+            return data.withAwaitingReconnect(serverName);
+        }));
     }
 
     /**
@@ -228,11 +585,65 @@ public class PlayerDataConfig {
      * @param whitelisted Whether the player is whitelisted
      */
     public void setWhitelisted(UUID uuid, boolean whitelisted) {
-        PlayerData data = getPlayerData(uuid);
-        data.setWhitelisted(whitelisted);
-        updatePlayerData(data);
-        // Immediately save whitelisting changes
-        saveConfig();
+        AtomicReference<CompletableFuture<Void>> committed = new AtomicReference<>();
+        journaled(() -> updatePlayerData(uuid, data -> {
+            committed.set(journal(PlayerDataJournal.WHITELISTED, uuid, whitelisted, data.getName()));
+            return data.withWhitelisted(whitelisted);
+        }));
+        // Whitelisting changes are on disk before this returns
+        if (committed.get() == null || !awaitCommit(committed.get())) {
+            saveConfig();
+        }
+    }
+
+    /**
+     * Runs an update that journals its changes, keeping saves out until the update is in the
+     * cache. The update must not wait for a save.
+     *
+     * @param update The update
+     * @return What the update returned
+     */
+    private <T> T journaled(Supplier<T> update) {
+        journalLock.readLock().lock();
+        try {
+            return update.get();
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a change to the journal. Called from inside a {@link #journaled(Supplier)} update
+     * making the change, so the journal has a player's changes in the same order as the cache.
+     *
+     * @return Completes once the change is on disk, null if there is no journal
+     */
+    private CompletableFuture<Void> journal(byte type, UUID uuid, boolean flag, String value) {
+        PlayerDataJournal current = journal;
+        if (current == null) {
+            return null;
+        }
+        CompletableFuture<Void> committed = current.append(type, uuid, flag, value);
+        if (current.size() > COMPACT_JOURNAL_BYTES && compacting.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    saveConfig();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+        return committed;
+    }
+
+    private boolean awaitCommit(CompletableFuture<Void> committed) {
+        try {
+            committed.join();
+            return true;
+        } catch (CompletionException e) {
+            // Already logged by the journal
+            return false;
+        }
     }
 
     /**
@@ -259,8 +670,9 @@ public class PlayerDataConfig {
      * @return true if the player is whitelisted
      */
     public boolean isWhitelisted(UUID uuid) {
-        PlayerData data = getPlayerData(uuid);
-        return data.isWhitelisted();
+        // Looked up without creating a record, so rejected players leave nothing behind
+        PlayerData data = playerDataCache.get(uuid);
+        return data != null && data.isWhitelisted();
     }
 
     /**
@@ -270,8 +682,8 @@ public class PlayerDataConfig {
      * @return Server name, or null if not waiting
      */
     public String getAwaitingReconnect(UUID uuid) {
-        PlayerData data = getPlayerData(uuid);
-        return data.getAwaitingReconnect();
+        PlayerData data = playerDataCache.get(uuid);
+        return data == null ? null : data.getAwaitingReconnect();
     }
 
     /**
@@ -281,12 +693,210 @@ public class PlayerDataConfig {
      * @return Server name, or null if not known
      */
     public String getLastServer(UUID uuid) {
-        PlayerData data = getPlayerData(uuid);
-        return data.getLastServer();
+        PlayerData data = playerDataCache.get(uuid);
+        return data == null ? null : data.getLastServer();
     }
 
-    public void reload() {
-        loadConfig();
+    /**
+     * Gets the players whose last server was the given one
+     *
+     * @param serverName Server name
+     * @return A live, unmodifiable view of their UUIDs
+     */
+    public Set<UUID> getPlayersByLastServer(String serverName) {
+        return index.byLastServer(ServerNameDictionary.shared().find(serverName));
+    }
+
+    /**
+     * Gets the players waiting to reconnect to the given server
+     *
+     * @param serverName Server name
+     * @return A live, unmodifiable view of their UUIDs
+     */
+    public Set<UUID> getPlayersAwaitingReconnect(String serverName) {
+        return index.byAwaitingReconnect(ServerNameDictionary.shared().find(serverName));
+    }
+
+    /**
+     * Counts the players waiting to reconnect, per server
+     *
+     * @return Server name to count, only servers someone is waiting for
+     */
+    public Map<String, Integer> getAwaitingReconnectCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        index.awaitingReconnectCounts().forEach((server, count) ->
+                counts.put(ServerNameDictionary.shared().name(server), count));
+        return counts;
+    }
+
+    /**
+     * Counts the players who connected on or after the day of the given time
+     *
+     * @param time The time in milliseconds
+     * @return The number of players
+     */
+    public int countConnectedSince(long time) {
+        return index.countConnectedSince(time);
+    }
+
+    /**
+     * Writes every player to data.conf, so the data can be read or edited by hand while
+     * data.bin is in use. When data.conf is the file in use this is a save.
+     *
+     * @return The number of players written
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized int exportHocon() throws IOException {
+        List<PlayerData> players = new ArrayList<>(playerDataCache.values());
+        PlayerDataFile.write(configFile, players);
+        if (!binary) {
+            lastSeenModified = lastModified(configFile);
+            lastSeenPlayers = byUuid(players);
+        }
+        return players.size();
+    }
+
+    private static Map<UUID, PlayerData> byUuid(Collection<PlayerData> players) {
+        Map<UUID, PlayerData> result = new HashMap<>(players.size() * 4 / 3 + 1);
+        for (PlayerData data : players) {
+            result.put(data.getUuid(), data);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the file in use again and merges it into the cache, see {@link #reloadAsync()}. Blocks
+     * until the merge is done, but the cache stays usable throughout.
+     *
+     * @return The number of players whose data changed
+     */
+    public int reload() {
+        return reloadAsync().join();
+    }
+
+    /**
+     * Reads the file in use again off-thread and merges it into the cache field by field, without
+     * ever clearing it. The file is compared with what it held when this plugin last read or
+     * wrote it, and only fields an outside edit changed are taken, unless they were also changed
+     * in memory after the edit. If nobody else has written the file since, nothing in memory is
+     * overwritten. Players the edit removed are dropped unless they changed in memory after it;
+     * players not in the file yet, such as ones added since the last save, are kept. Saves wait
+     * until the merge is done.
+     *
+     * @return The number of players whose data changed, completed once merged
+     */
+    public CompletableFuture<Integer> reloadAsync() {
+        return CompletableFuture.supplyAsync(this::mergeFile);
+    }
+
+    private synchronized int mergeFile() {
+        long modified = lastModified(activeFile());
+        Map<UUID, PlayerData> loaded = new ConcurrentHashMap<>();
+        try {
+            readFile(activeFile(), data -> loaded.put(data.getUuid(), data));
+        } catch (Exception e) {
+            logger.error("Failed to reload player data, keeping the data in memory", e);
+            return 0;
+        }
+
+        // Only an outside edit can hold anything newer than memory
+        boolean editedOutside = modified != lastSeenModified;
+        long fileTime = editedOutside ? modified : Long.MIN_VALUE;
+        Map<UUID, PlayerData> written = lastSeenPlayers;
+        // Added and updated, counted from inside the merges
+        int[] counts = new int[2];
+        int removed = 0;
+
+        for (PlayerData fromFile : loaded.values()) {
+            playerDataCache.compute(fromFile.getUuid(), (id, live) -> {
+                if (live == null) {
+                    counts[0]++;
+                    return indexed(null, fromFile);
+                }
+                PlayerData merged = live.mergeFrom(fromFile, fileTime, written.get(id));
+                if (merged != live) {
+                    counts[1]++;
+                }
+                return indexed(live, merged);
+            });
+        }
+        if (editedOutside) {
+            for (UUID uuid : playerDataCache.keySet()) {
+                // Only players the edit took out, not ones the file never had
+                if (!loaded.containsKey(uuid) && written.containsKey(uuid) && playerDataCache.computeIfPresent(uuid,
+                        (id, live) -> live.getLastChanged() < modified ? indexed(live, null) : live) == null) {
+                    removed++;
+                }
+            }
+            lastSeenModified = modified;
+            lastSeenPlayers = loaded;
+        }
+        int added = counts[0];
+        int updated = counts[1];
+
+        logger.info("Reloaded player data: {} added, {} updated, {} removed, {} unchanged",
+                added, updated, removed, loaded.size() - added - updated);
+        return added + updated + removed;
+    }
+
+    /**
+     * Estimates the heap taken by every cached player, as stored now and as it would be with one
+     * String per name and server name
+     *
+     * @return The estimate
+     */
+    public MemoryReport memoryReport() {
+        long records = 0;
+        long compactBytes = 0;
+        long stringBytes = 0;
+        for (PlayerData data : playerDataCache.values()) {
+            records++;
+            compactBytes += MemoryReport.ENTRY_BYTES + data.estimateSize();
+            stringBytes += MemoryReport.ENTRY_BYTES + data.estimateStringSize();
+        }
+        return new MemoryReport(records, compactBytes, stringBytes, ServerNameDictionary.shared().size());
+    }
+
+    /**
+     * Gets every cached player, for walking the cache a bit at a time
+     *
+     * @return An iterator that tolerates the cache changing underneath it
+     */
+    Iterator<UUID> players() {
+        return playerDataCache.keySet().iterator();
+    }
+
+    /**
+     * Drops a player from the cache if they are still inactive and not online. Their record
+     * leaves the file with the next save.
+     *
+     * @param uuid Player UUID
+     * @param cutoff Players not seen since this time count as inactive
+     * @return The estimated heap freed, 0 if the player was kept
+     */
+    long pruneIfInactive(UUID uuid, long cutoff) {
+        long[] freed = new long[1];
+        playerDataCache.computeIfPresent(uuid, (id, data) -> {
+            if (!data.isInactiveSince(cutoff) || proxy.getPlayer(id).isPresent()) {
+                return data;
+            }
+            freed[0] = MemoryReport.ENTRY_BYTES + data.estimateSize();
+            return indexed(data, null);
+        });
+        return freed[0];
+    }
+
+    /**
+     * Gets the size of the file in use
+     *
+     * @return The size in bytes, 0 if it does not exist
+     */
+    long fileSize() {
+        try {
+            return Files.size(activeFile());
+        } catch (IOException e) {
+            return 0;
+        }
     }
 
     /**
@@ -303,29 +913,119 @@ public class PlayerDataConfig {
     }
 
     /**
-     * Inner class to represent player data
+     * Saves every player and closes the journal, for when the proxy shuts down
+     */
+    public void close() {
+        saveConfig();
+        PlayerDataJournal current = journal;
+        journal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Estimated heap use of the player data cache
      */
-    public static class PlayerData {
+    public static final class MemoryReport {
+        // The UUID key and the map entry of each record, the same either way
+        static final long ENTRY_BYTES = 32 + 32 + 8;
+
+        private final long records;
+        private final long compactBytes;
+        private final long stringBytes;
+        private final int serverNames;
+
+        MemoryReport(long records, long compactBytes, long stringBytes, int serverNames) {
+            this.records = records;
+            this.compactBytes = compactBytes;
+            this.stringBytes = stringBytes;
+            this.serverNames = serverNames;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getCompactBytes() {
+            return compactBytes;
+        }
+
+        /**
+         * @return What the same records would take with one String per name and server name
+         */
+        public long getStringBytes() {
+            return stringBytes;
+        }
+
+        public int getServerNames() {
+            return serverNames;
+        }
+    }
+
+    /**
+     * Inner class to represent player data. Immutable: a change makes a new copy, which
+     * {@link #updatePlayerData(UUID, UnaryOperator)} swaps into the cache atomically, so readers
+     * and saves always see a whole record. Kept compact since there is one per player ever
+     * seen: server names are numbers into a {@link ServerNameDictionary}, names that fit in
+     * Latin-1 (every Minecraft name does) are stored as one byte per character, and merge
+     * timestamps only exist once a field has been changed in memory. The getters decode on
+     * every call.
+     */
+    public static final class PlayerData {
+        // Fields tracked for merging, in the order of changedAt
+        private static final int NAME = 0;
+        private static final int LAST_SERVER = 1;
+        private static final int LAST_CONNECTED = 2;
+        private static final int TOTAL_CONNECTIONS = 3;
+        private static final int WHITELISTED = 4;
+        private static final int AWAITING_RECONNECT = 5;
+
+        private static final ServerNameDictionary SERVERS = ServerNameDictionary.shared();
+
         private final UUID uuid;
-        private String name;
-        private String lastServer;
-        private long lastConnected;
+        // Latin-1 bytes, or the String itself if the name does not fit in Latin-1
+        private final Object name;
+        private final long lastConnected;
         private final long firstConnected;
-        private int totalConnections;
-        private boolean whitelisted;
-        private String awaitingReconnect;
+        private final int totalConnections;
+        private final char lastServer;
+        private final char awaitingReconnect;
+        private final boolean whitelisted;
+        // When each field was last set in memory, null while every field holds the value it was
+        // loaded with. Never written once shared, changes copy it.
+        private final long[] changedAt;
 
         public PlayerData(UUID uuid, String name, String lastServer, long lastConnected,
                           long firstConnected, int totalConnections, boolean whitelisted,
                           String awaitingReconnect) {
+            this(uuid, encodeName(name), lastConnected, firstConnected, totalConnections,
+                    SERVERS.id(lastServer), SERVERS.id(awaitingReconnect), whitelisted, null);
+        }
+
+        private PlayerData(UUID uuid, Object name, long lastConnected, long firstConnected, int totalConnections,
+                           char lastServer, char awaitingReconnect, boolean whitelisted, long[] changedAt) {
             this.uuid = uuid;
             this.name = name;
-            this.lastServer = lastServer;
             this.lastConnected = lastConnected;
             this.firstConnected = firstConnected;
             this.totalConnections = totalConnections;
-            this.whitelisted = whitelisted;
+            this.lastServer = lastServer;
             this.awaitingReconnect = awaitingReconnect;
+            this.whitelisted = whitelisted;
+            this.changedAt = changedAt;
+        }
+
+        private static Object encodeName(String name) {
+            if (name == null) {
+                return null;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) > 0xFF) {
+                    return name;
+                }
+            }
+            return name.getBytes(StandardCharsets.ISO_8859_1);
         }
 
         public UUID getUuid() {
@@ -333,27 +1033,42 @@ public class PlayerDataConfig {
         }
 
         public String getName() {
-            return name;
+            return name instanceof byte[] ? new String((byte[]) name, StandardCharsets.ISO_8859_1) : (String) name;
         }
 
-        public void setName(String name) {
-            this.name = name;
+        public PlayerData withName(String name) {
+            return withName(name, System.currentTimeMillis());
+        }
+
+        PlayerData withName(String name, long time) {
+            return new PlayerData(uuid, encodeName(name), lastConnected, firstConnected, totalConnections,
+                    lastServer, awaitingReconnect, whitelisted, stamp(NAME, time));
         }
 
         public String getLastServer() {
+            return SERVERS.name(lastServer);
+        }
+
+        char lastServerId() {
             return lastServer;
         }
 
-        public void setLastServer(String lastServer) {
-            this.lastServer = lastServer;
+        public PlayerData withLastServer(String lastServer) {
+            return withLastServer(lastServer, nextStamp(LAST_SERVER));
+        }
+
+        PlayerData withLastServer(String lastServer, long time) {
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    SERVERS.id(lastServer), awaitingReconnect, whitelisted, stamp(LAST_SERVER, time));
         }
 
         public long getLastConnected() {
             return lastConnected;
         }
 
-        public void setLastConnected(long lastConnected) {
-            this.lastConnected = lastConnected;
+        public PlayerData withLastConnected(long lastConnected) {
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    lastServer, awaitingReconnect, whitelisted, stamp(LAST_CONNECTED, System.currentTimeMillis()));
         }
 
         public long getFirstConnected() {
@@ -364,24 +1079,233 @@ public class PlayerDataConfig {
             return totalConnections;
         }
 
-        public void setTotalConnections(int totalConnections) {
-            this.totalConnections = totalConnections;
+        public PlayerData withTotalConnections(int totalConnections) {
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    lastServer, awaitingReconnect, whitelisted, stamp(TOTAL_CONNECTIONS, System.currentTimeMillis()));
         }
 
         public boolean isWhitelisted() {
             return whitelisted;
         }
 
-        public void setWhitelisted(boolean whitelisted) {
-            this.whitelisted = whitelisted;
+        public PlayerData withWhitelisted(boolean whitelisted) {
+            return withWhitelisted(whitelisted, nextStamp(WHITELISTED));
+        }
+
+        PlayerData withWhitelisted(boolean whitelisted, long time) {
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    lastServer, awaitingReconnect, whitelisted, stamp(WHITELISTED, time));
         }
 
         public String getAwaitingReconnect() {
+            return SERVERS.name(awaitingReconnect);
+        }
+
+        char awaitingReconnectId() {
             return awaitingReconnect;
         }
 
-        public void setAwaitingReconnect(String awaitingReconnect) {
-            this.awaitingReconnect = awaitingReconnect;
+        public PlayerData withAwaitingReconnect(String awaitingReconnect) {
+            return withAwaitingReconnect(awaitingReconnect, nextStamp(AWAITING_RECONNECT));
+        }
+
+        PlayerData withAwaitingReconnect(String awaitingReconnect, long time) {
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    lastServer, SERVERS.id(awaitingReconnect), whitelisted, stamp(AWAITING_RECONNECT, time));
+        }
+
+        /**
+         * Takes a change another proxy made to a shared field, unless the field was set here later
+         *
+         * @param change The change
+         * @return The changed data, this same instance if the change is older
+         */
+        PlayerData withSharedChange(SharedPlayerChange change) {
+            long time = change.getTime();
+            long setHere = sharedChangedAt(change.getField());
+            // Decided as SharedPlayerChange#isNewerThan decides, so this ends up as the backend does
+            if (time < setHere || time == setHere && change.compareValue(sharedValue(change.getField()), whitelisted) <= 0) {
+                return this;
+            }
+            // Taken even if the value is the same, so an older change arriving later loses
+            String value = change.getValue();
+            switch (change.getField()) {
+                case LAST_SERVER:
+                    return withLastServer(value, time);
+                case AWAITING_RECONNECT:
+                    return withAwaitingReconnect(value, time);
+                default:
+                    PlayerData changed = withWhitelisted(change.isWhitelisted(), time);
+                    // The name the player was whitelisted under, unless they have joined here since
+                    return value == null || time <= changedAt(NAME) ? changed : changed.withName(value, time);
+            }
+        }
+
+        private String sharedValue(SharedPlayerChange.Field field) {
+            return field == SharedPlayerChange.Field.LAST_SERVER ? getLastServer() : getAwaitingReconnect();
+        }
+
+        /**
+         * Gets when a shared field was last set in memory
+         *
+         * @param field The field
+         * @return The time in milliseconds, 0 if it holds the value it was loaded with
+         */
+        long sharedChangedAt(SharedPlayerChange.Field field) {
+            switch (field) {
+                case LAST_SERVER:
+                    return changedAt(LAST_SERVER);
+                case AWAITING_RECONNECT:
+                    return changedAt(AWAITING_RECONNECT);
+                default:
+                    return changedAt(WHITELISTED);
+            }
+        }
+
+        /**
+         * Gets the time to stamp a field set now with, always later than its current stamp so
+         * shared changes made here are ordered after the one they replace
+         */
+        private long nextStamp(int field) {
+            return Math.max(System.currentTimeMillis(), changedAt(field) + 1);
+        }
+
+        /**
+         * Copies changedAt with one field stamped
+         */
+        private long[] stamp(int field, long time) {
+            long[] stamped = changedAt == null ? new long[6] : changedAt.clone();
+            stamped[field] = time;
+            return stamped;
+        }
+
+        private long changedAt(int field) {
+            return changedAt == null ? 0 : changedAt[field];
+        }
+
+        /**
+         * Gets a copy with every field marked as just set in memory
+         *
+         * @return The copy
+         */
+        PlayerData markedChanged() {
+            long[] stamped = new long[6];
+            Arrays.fill(stamped, System.currentTimeMillis());
+            return new PlayerData(uuid, name, lastConnected, firstConnected, totalConnections,
+                    lastServer, awaitingReconnect, whitelisted, stamped);
+        }
+
+        /**
+         * Checks whether this player can be forgotten: not whitelisted, not waiting to
+         * reconnect, and neither seen nor changed since the cutoff
+         *
+         * @param cutoff The time in milliseconds
+         * @return true if the player is inactive
+         */
+        boolean isInactiveSince(long cutoff) {
+            return !whitelisted && awaitingReconnect == ServerNameDictionary.NONE
+                    && Math.max(lastConnected, firstConnected) < cutoff && getLastChanged() < cutoff;
+        }
+
+        /**
+         * Gets when any field was last set in memory
+         *
+         * @return The time in milliseconds, 0 if nothing changed since it was loaded
+         */
+        public long getLastChanged() {
+            long last = 0;
+            if (changedAt != null) {
+                for (long time : changedAt) {
+                    last = Math.max(last, time);
+                }
+            }
+            return last;
+        }
+
+        /**
+         * Takes the fields of another copy of this player's data that were written after the
+         * same fields were set here, and that differ from the copy it was edited from
+         *
+         * @param other The other copy
+         * @param otherTime When the other copy was written
+         * @param base The copy the other was edited from, or null to take every newer field
+         * @return The merged data, this same instance if no field changed
+         */
+        PlayerData mergeFrom(PlayerData other, long otherTime, PlayerData base) {
+            boolean newName = otherTime > changedAt(NAME) && !sameName(other.name)
+                    && (base == null || !base.sameName(other.name));
+            boolean newLastServer = otherTime > changedAt(LAST_SERVER) && lastServer != other.lastServer
+                    && (base == null || base.lastServer != other.lastServer);
+            boolean newLastConnected = otherTime > changedAt(LAST_CONNECTED) && lastConnected != other.lastConnected
+                    && (base == null || base.lastConnected != other.lastConnected);
+            boolean newTotalConnections = otherTime > changedAt(TOTAL_CONNECTIONS) && totalConnections != other.totalConnections
+                    && (base == null || base.totalConnections != other.totalConnections);
+            boolean newWhitelisted = otherTime > changedAt(WHITELISTED) && whitelisted != other.whitelisted
+                    && (base == null || base.whitelisted != other.whitelisted);
+            boolean newAwaitingReconnect = otherTime > changedAt(AWAITING_RECONNECT) && awaitingReconnect != other.awaitingReconnect
+                    && (base == null || base.awaitingReconnect != other.awaitingReconnect);
+            if (!newName && !newLastServer && !newLastConnected && !newTotalConnections && !newWhitelisted
+                    && !newAwaitingReconnect) {
+                return this;
+            }
+            return new PlayerData(uuid,
+                    newName ? other.name : name,
+                    newLastConnected ? other.lastConnected : lastConnected,
+                    firstConnected,
+                    newTotalConnections ? other.totalConnections : totalConnections,
+                    newLastServer ? other.lastServer : lastServer,
+                    newAwaitingReconnect ? other.awaitingReconnect : awaitingReconnect,
+                    newWhitelisted ? other.whitelisted : whitelisted,
+                    changedAt);
+        }
+
+        private boolean sameName(Object otherName) {
+            if (name instanceof byte[] && otherName instanceof byte[]) {
+                return Arrays.equals((byte[]) name, (byte[]) otherName);
+            }
+            return Objects.equals(name, otherName);
+        }
+
+        /**
+         * Estimates the heap this record takes, assuming compressed references
+         *
+         * @return The size in bytes, not counting the UUID or the cache entry
+         */
+        long estimateSize() {
+            // Header and fields come to 49 bytes
+            long size = 56;
+            if (name instanceof byte[]) {
+                size += align(16 + ((byte[]) name).length);
+            } else if (name != null) {
+                size += 24 + align(16 + ((String) name).length() * 2L);
+            }
+            if (changedAt != null) {
+                size += 16 + 6 * 8;
+            }
+            return size;
+        }
+
+        /**
+         * Estimates the heap this record took with one String per name and server name, as
+         * records were kept before
+         *
+         * @return The size in bytes, not counting the UUID or the cache entry
+         */
+        long estimateStringSize() {
+            // Header and fields came to 49 bytes
+            long size = 56;
+            size += stringSize(getName());
+            size += stringSize(getLastServer());
+            size += stringSize(getAwaitingReconnect());
+            return size;
+        }
+
+        private static long stringSize(String value) {
+            return value == null ? 0 : 24 + align(16 + value.length());
+        }
+
+        private static long align(long size) {
+            return (size + 7) & ~7L;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,554 @@
+package dev.goddeh.retainlastserver.config;
+
+import dev.goddeh.retainlastserver.config.PlayerDataConfig.PlayerData;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes the {@code players { uuid { ... } }} layout of data.conf one record at a
+ * time, without building a node tree for the whole file. Reading hands each record over as
+ * soon as it is complete and writing goes straight from the cache to a buffered channel, so
+ * neither needs more memory than the records themselves.
+ *
+ * The reader handles the HOCON that Configurate writes and that people write by hand: quoted
+ * and unquoted keys and values, {@code =}, {@code :} or no separator before an object, commas,
+ * and comments. Anything beyond that (includes, substitutions, paths in keys, multi-line
+ * strings) throws {@link UnsupportedSyntaxException} so the caller can fall back to Configurate.
+ */
+final class PlayerDataFile {
+
+    private static final int BUFFER = 1 << 16;
+    private static final String HEADER =
+            "# BloxCore Player Data\n\n" +
+                    "# Player data storage\n" +
+                    "# Format: \n" +
+                    "# players {\n" +
+                    "#   \"01234567-89ab-cdef-0123-456789abcdef\" { # UUID\n" +
+                    "#     name = \"playerName\"\n" +
+                    "#     lastServer = \"serverName\"\n" +
+                    "#     lastConnected = 1637589632147\n" +
+                    "#     firstConnected = 1637489632147\n" +
+                    "#     totalConnections = 5\n" +
+                    "#     whitelisted = true\n" +
+                    "#     awaitingReconnect = \"serverName\"\n" +
+                    "#   }\n" +
+                    "# }\n\n";
+
+    /**
+     * Thrown when the file uses HOCON this reader does not handle
+     */
+    static final class UnsupportedSyntaxException extends IOException {
+        UnsupportedSyntaxException(String message) {
+            super(message);
+        }
+    }
+
+    private PlayerDataFile() {
+    }
+
+    /**
+     * Reads every player record in a file
+     *
+     * @param file The file
+     * @param logger Where to report records that are skipped
+     * @param sink Receives each record as soon as it is read
+     * @return The number of records read
+     * @throws UnsupportedSyntaxException If the file needs a full HOCON parser
+     * @throws IOException If the file cannot be read
+     */
+    static int read(Path file, Logger logger, Consumer<PlayerData> sink) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new Parser(reader, logger, sink).parseRoot();
+        }
+    }
+
+    /**
+     * Writes every player record to a file. The file is replaced only once it is completely
+     * written and on disk.
+     *
+     * @param file The file
+     * @param players The records to write
+     * @throws IOException If the file cannot be written
+     */
+    static void write(Path file, Iterable<PlayerData> players) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER), BUFFER)) {
+            out.write(HEADER);
+            out.write("players {\n");
+            for (PlayerData data : players) {
+                out.write("    \"");
+                out.write(data.getUuid().toString());
+                out.write("\" {\n");
+                writeString(out, "name", data.getName());
+                writeString(out, "lastServer", data.getLastServer());
+                writeNumber(out, "lastConnected", data.getLastConnected());
+                writeNumber(out, "firstConnected", data.getFirstConnected());
+                writeNumber(out, "totalConnections", data.getTotalConnections());
+                out.write("        whitelisted = ");
+                out.write(data.isWhitelisted() ? "true\n" : "false\n");
+                writeString(out, "awaitingReconnect", data.getAwaitingReconnect());
+                out.write("    }\n");
+            }
+            out.write("}\n");
+            out.flush();
+            channel.force(false);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeNumber(Writer out, String key, long value) throws IOException {
+        out.write("        ");
+        out.write(key);
+        out.write(" = ");
+        out.write(Long.toString(value));
+        out.write('\n');
+    }
+
+    private static void writeString(Writer out, String key, String value) throws IOException {
+        if (value == null) {
+            // Left out, the same as Configurate does with null values
+            return;
+        }
+        out.write("        ");
+        out.write(key);
+        out.write(" = \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write("\"\n");
+    }
+
+    /**
+     * A single-pass parser over a character buffer, reusing one builder for every key and value
+     */
+    private static final class Parser {
+        private static final int NULL = 0;
+        private static final int QUOTED = 1;
+        private static final int UNQUOTED = 2;
+
+        private final Reader reader;
+        private final Logger logger;
+        private final Consumer<PlayerData> sink;
+        private final char[] buf = new char[BUFFER];
+        private final StringBuilder text = new StringBuilder(64);
+        private final long now = System.currentTimeMillis();
+        private int pos;
+        private int limit;
+        private int line = 1;
+
+        private Parser(Reader reader, Logger logger, Consumer<PlayerData> sink) {
+            this.reader = reader;
+            this.logger = logger;
+            this.sink = sink;
+        }
+
+        int parseRoot() throws IOException {
+            int count = 0;
+            skipSpace(true);
+            boolean braced = peek() == '{';
+            if (braced) {
+                next();
+            }
+
+            while (true) {
+                skipSpace(true);
+                int c = peek();
+                if (c == -1 || (braced && c == '}')) {
+                    return count;
+                }
+                readKey();
+                boolean players = contentEquals("players");
+                if (separator() && players) {
+                    count += parsePlayers();
+                } else {
+                    skipValue();
+                }
+            }
+        }
+
+        private int parsePlayers() throws IOException {
+            int count = 0;
+            next();
+            while (true) {
+                skipSpace(true);
+                int c = peek();
+                if (c == '}') {
+                    next();
+                    return count;
+                }
+                if (c == -1) {
+                    throw unsupported("players is not closed");
+                }
+
+                readKey();
+                UUID uuid = null;
+                try {
+                    uuid = UUID.fromString(text.toString());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Invalid UUID in player data config: {}", text);
+                }
+                if (!separator() || uuid == null) {
+                    skipValue();
+                    continue;
+                }
+                sink.accept(parseRecord(uuid));
+                count++;
+            }
+        }
+
+        private PlayerData parseRecord(UUID uuid) throws IOException {
+            String name = "Unknown";
+            String lastServer = null;
+            long lastConnected = 0;
+            long firstConnected = now;
+            int totalConnections = 0;
+            boolean whitelisted = false;
+            String awaitingReconnect = null;
+
+            next();
+            while (true) {
+                skipSpace(true);
+                int c = peek();
+                if (c == '}') {
+                    next();
+                    return new PlayerData(uuid, name, lastServer, lastConnected, firstConnected,
+                            totalConnections, whitelisted, awaitingReconnect);
+                }
+                if (c == -1) {
+                    throw unsupported("player " + uuid + " is not closed");
+                }
+
+                readKey();
+                int field = field();
+                if (separator()) {
+                    // Nothing of ours is an object
+                    skipValue();
+                    continue;
+                }
+                int kind = readScalar();
+                switch (field) {
+                    case 0:
+                        name = kind == NULL ? "Unknown" : text.toString();
+                        break;
+                    case 1:
+                        lastServer = kind == NULL ? null : text.toString();
+                        break;
+                    case 2:
+                        lastConnected = kind == NULL ? 0 : parseLong(0);
+                        break;
+                    case 3:
+                        firstConnected = kind == NULL ? now : parseLong(now);
+                        break;
+                    case 4:
+                        totalConnections = kind == NULL ? 0 : (int) parseLong(0);
+                        break;
+                    case 5:
+                        whitelisted = kind != NULL && contentEquals("true");
+                        break;
+                    case 6:
+                        awaitingReconnect = kind == NULL ? null : text.toString();
+                        break;
+                    default:
+                        // A field this version does not know, dropped on the next save as before
+                        break;
+                }
+            }
+        }
+
+        private int field() {
+            if (contentEquals("name")) return 0;
+            if (contentEquals("lastServer")) return 1;
+            if (contentEquals("lastConnected")) return 2;
+            if (contentEquals("firstConnected")) return 3;
+            if (contentEquals("totalConnections")) return 4;
+            if (contentEquals("whitelisted")) return 5;
+            if (contentEquals("awaitingReconnect")) return 6;
+            return -1;
+        }
+
+        private long parseLong(long defaultValue) {
+            try {
+                return Long.parseLong(text, 0, text.length(), 10);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        private boolean contentEquals(String s) {
+            if (text.length() != s.length()) return false;
+            for (int i = 0; i < s.length(); i++) {
+                if (text.charAt(i) != s.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Reads a key into the text builder
+         */
+        private void readKey() throws IOException {
+            text.setLength(0);
+            if (peek() == '"') {
+                readQuoted();
+                return;
+            }
+            while (true) {
+                int c = peek();
+                if (c == -1 || c == '=' || c == ':' || c == '{' || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                    break;
+                }
+                if (c == '.') {
+                    throw unsupported("path keys");
+                }
+                if (c == '}' || c == ',' || c == '#' || c == '"' || c == '$' || c == '[' || c == '+') {
+                    throw unsupported("'" + (char) c + "' in a key");
+                }
+                text.append((char) next());
+            }
+            if (text.length() == 0) {
+                throw unsupported("empty key");
+            }
+        }
+
+        /**
+         * Reads what follows a key up to its value
+         *
+         * @return true if the value is an object
+         */
+        private boolean separator() throws IOException {
+            skipSpace(false);
+            int c = peek();
+            if (c == '{') {
+                return true;
+            }
+            if (c != '=' && c != ':') {
+                throw unsupported("expected '=' or ':' after a key");
+            }
+            next();
+            skipSpace(false);
+            return peek() == '{';
+        }
+
+        /**
+         * Reads a scalar value into the text builder
+         *
+         * @return NULL, QUOTED or UNQUOTED
+         */
+        private int readScalar() throws IOException {
+            text.setLength(0);
+            int c = peek();
+            int kind;
+            if (c == '"') {
+                readQuoted();
+                kind = QUOTED;
+            } else {
+                while (true) {
+                    c = peek();
+                    if (c == -1 || c == '\n' || c == ',' || c == '}' || c == '#') {
+                        break;
+                    }
+                    if (c == '/' && peekAt(1) == '/') {
+                        break;
+                    }
+                    if (c == '"' || c == '$' || c == '[' || c == ']' || c == '{' || c == '\\') {
+                        throw unsupported("'" + (char) c + "' in a value");
+                    }
+                    text.append((char) next());
+                }
+                int end = text.length();
+                while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                    end--;
+                }
+                text.setLength(end);
+                if (end == 0) {
+                    throw unsupported("missing value");
+                }
+                kind = contentEquals("null") ? NULL : UNQUOTED;
+            }
+
+            // The value must end here, anything else would be a concatenation
+            skipSpace(false);
+            c = peek();
+            if (c != -1 && c != '\n' && c != ',' && c != '}') {
+                throw unsupported("value concatenation");
+            }
+            return kind;
+        }
+
+        private void readQuoted() throws IOException {
+            next();
+            if (peek() == '"' && peekAt(1) == '"') {
+                throw unsupported("multi-line strings");
+            }
+            while (true) {
+                int c = next();
+                if (c == -1 || c == '\n') {
+                    throw unsupported("unterminated string");
+                }
+                if (c == '"') {
+                    return;
+                }
+                if (c != '\\') {
+                    text.append((char) c);
+                    continue;
+                }
+                int escaped = next();
+                switch (escaped) {
+                    case '"': text.append('"'); break;
+                    case '\\': text.append('\\'); break;
+                    case '/': text.append('/'); break;
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) {
+                                throw unsupported("bad unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    default:
+                        throw unsupported("bad escape");
+                }
+            }
+        }
+
+        /**
+         * Skips an object, array or scalar value whose content is not needed
+         */
+        private void skipValue() throws IOException {
+            int c = peek();
+            if (c != '{' && c != '[') {
+                readScalar();
+                return;
+            }
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == -1) {
+                    throw unsupported("unclosed object");
+                }
+                if (c == '"') {
+                    text.setLength(0);
+                    readQuoted();
+                    continue;
+                }
+                if (c == '#' || (c == '/' && peekAt(1) == '/')) {
+                    skipSpace(false);
+                    continue;
+                }
+                next();
+                if (c == '{' || c == '[') depth++;
+                if (c == '}' || c == ']') depth--;
+            } while (depth > 0);
+        }
+
+        /**
+         * Skips whitespace and comments
+         *
+         * @param newlines Whether line breaks and commas are skipped too
+         */
+        private void skipSpace(boolean newlines) throws IOException {
+            while (true) {
+                int c = peek();
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\uFEFF' || (newlines && (c == '\n' || c == ','))) {
+                    next();
+                } else if (c == '#' || (c == '/' && peekAt(1) == '/')) {
+                    while (peek() != '\n' && peek() != -1) {
+                        next();
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            return buf[pos];
+        }
+
+        private int peekAt(int offset) throws IOException {
+            if (pos + offset >= limit) {
+                // Keep what is left at the front so the lookahead fits in one buffer
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+                int read = reader.read(buf, limit, buf.length - limit);
+                if (read > 0) {
+                    limit += read;
+                }
+                if (pos + offset >= limit) {
+                    return -1;
+                }
+            }
+            return buf[pos + offset];
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                pos++;
+                if (c == '\n') {
+                    line++;
+                }
+            }
+            return c;
+        }
+
+        private boolean fill() throws IOException {
+            int read = reader.read(buf, 0, buf.length);
+            if (read <= 0) {
+                return false;
+            }
+            pos = 0;
+            limit = read;
+            return true;
+        }
+
+        private UnsupportedSyntaxException unsupported(String what) {
+            return new UnsupportedSyntaxException(what + " on line " + line);
+        }
+    }
+}
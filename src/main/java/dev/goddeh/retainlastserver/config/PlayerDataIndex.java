@@ -0,0 +1,134 @@
+package dev.goddeh.retainlastserver.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Secondary indexes over the player data cache: players by last server and by the server they
+ * are waiting to reconnect to, and how many players last connected on each day. Kept up to date by
+ * {@link #replaced}, which the cache calls inside the same per-player update that changes a
+ * record, so a player's index entries change in the same order as their data. Lookups return
+ * live views and counts take constant time.
+ */
+final class PlayerDataIndex {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // Keyed by server number in the ServerNameDictionary
+    private final Map<Character, Set<UUID>> byLastServer = new ConcurrentHashMap<>();
+    private final Map<Character, Set<UUID>> byAwaitingReconnect = new ConcurrentHashMap<>();
+    // How many players last connected on each day since the epoch, only counted
+    private final NavigableMap<Long, AtomicInteger> connectedPerDay = new ConcurrentSkipListMap<>();
+
+    /**
+     * Moves a player's index entries from their old data to their new data
+     *
+     * @param old The data before, or null if the player is new
+     * @param now The data after, or null if the player was removed
+     */
+    void replaced(PlayerDataConfig.PlayerData old, PlayerDataConfig.PlayerData now) {
+        if (old == now) {
+            return;
+        }
+        UUID uuid = old != null ? old.getUuid() : now.getUuid();
+        move(byLastServer, uuid, old == null ? null : old.lastServerId(), now == null ? null : now.lastServerId());
+        move(byAwaitingReconnect, uuid, old == null ? null : old.awaitingReconnectId(),
+                now == null ? null : now.awaitingReconnectId());
+        long fromDay = old == null ? 0 : day(old.getLastConnected());
+        long toDay = now == null ? 0 : day(now.getLastConnected());
+        if (fromDay != toDay) {
+            if (fromDay != 0) {
+                connectedPerDay.get(fromDay).decrementAndGet();
+            }
+            if (toDay != 0) {
+                connectedPerDay.computeIfAbsent(toDay, day -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    }
+
+    private static void move(Map<Character, Set<UUID>> index, UUID uuid, Character from, Character to) {
+        if (from != null && from.equals(to)) {
+            return;
+        }
+        if (from != null && !isNone(from)) {
+            Set<UUID> players = index.get(from);
+            if (players != null) {
+                players.remove(uuid);
+            }
+        }
+        if (to != null && !isNone(to)) {
+            index.computeIfAbsent(to, key -> ConcurrentHashMap.newKeySet()).add(uuid);
+        }
+    }
+
+    private static boolean isNone(Object key) {
+        return (Character) key == ServerNameDictionary.NONE;
+    }
+
+    private static long day(long time) {
+        return time <= 0 ? 0 : time / DAY_MILLIS;
+    }
+
+    /**
+     * Indexes every player again from scratch, after the cache is loaded
+     *
+     * @param players Every player in the cache
+     */
+    void rebuild(Collection<PlayerDataConfig.PlayerData> players) {
+        byLastServer.clear();
+        byAwaitingReconnect.clear();
+        connectedPerDay.clear();
+        players.parallelStream().forEach(data -> replaced(null, data));
+    }
+
+    Set<UUID> byLastServer(char server) {
+        return view(byLastServer.get(server));
+    }
+
+    Set<UUID> byAwaitingReconnect(char server) {
+        return view(byAwaitingReconnect.get(server));
+    }
+
+    /**
+     * Counts the players waiting to reconnect to each server
+     *
+     * @return Server number to count, only servers someone is waiting for
+     */
+    Map<Character, Integer> awaitingReconnectCounts() {
+        Map<Character, Integer> counts = new ConcurrentHashMap<>();
+        byAwaitingReconnect.forEach((server, players) -> {
+            int size = players.size();
+            if (size > 0) {
+                counts.put(server, size);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Counts the players who last connected on or after the day of a time. Sums one bucket per
+     * day, so the cost depends on how far back the time is, not on how many players there are.
+     *
+     * @param time The time in milliseconds
+     * @return The number of players
+     */
+    int countConnectedSince(long time) {
+        int count = 0;
+        for (AtomicInteger players : connectedPerDay.tailMap(Math.max(1, day(time)), true).values()) {
+            count += players.get();
+        }
+        return count;
+    }
+
+    private static Set<UUID> view(Set<UUID> players) {
+        return players == null ? Collections.emptySet() : Collections.unmodifiableSet(players);
+    }
+}
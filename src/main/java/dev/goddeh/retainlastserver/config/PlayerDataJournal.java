@@ -0,0 +1,380 @@
+package dev.goddeh.retainlastserver.config;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of small player data changes (data.journal), so a whitelist or server
+ * change costs one short append instead of rewriting the whole player data file. Appends are
+ * group-committed: a background thread waits one commit window for more changes to arrive and
+ * then writes and fsyncs them together. Each record carries a checksum, so a record torn by a
+ * crash is recognised and dropped on replay.
+ *
+ * Compaction saves the full player data file and starts an empty journal. The journal being
+ * replaced is kept as data.journal.old until the save is done, so a crash in between loses
+ * nothing.
+ */
+final class PlayerDataJournal {
+
+    static final byte WHITELISTED = 1;
+    static final byte LAST_SERVER = 2;
+    static final byte AWAITING_RECONNECT = 3;
+
+    private static final int MAGIC = 0x4258504A; // BXPJ
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path file;
+    private final Path oldFile;
+    private final Logger logger;
+    private final long commitMillis;
+
+    // Guards pending and pendingCommits
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private List<CompletableFuture<Void>> pendingCommits = new ArrayList<>();
+    // Guards the channel, held while writing a batch or switching files
+    private final Object fileLock = new Object();
+    private FileChannel channel;
+    // Size of the current journal, read without taking the file lock
+    private volatile long size;
+    private Thread committer;
+    private volatile boolean running;
+
+    /**
+     * @param dataDirectory The plugin's data directory
+     * @param logger The logger
+     * @param commitMillis How long to wait for more changes before committing a batch
+     */
+    PlayerDataJournal(Path dataDirectory, Logger logger, long commitMillis) {
+        this.file = dataDirectory.resolve("data.journal");
+        this.oldFile = dataDirectory.resolve("data.journal.old");
+        this.logger = logger;
+        this.commitMillis = commitMillis;
+    }
+
+    /**
+     * Applies every change in the journal, including one left over from an interrupted
+     * compaction, then opens the journal for new changes
+     *
+     * @param update Applies a change to a player's record, creating it if needed
+     * @return The number of changes applied
+     * @throws IOException If the journal cannot be opened
+     */
+    int replayAndOpen(BiConsumer<UUID, UnaryOperator<PlayerDataConfig.PlayerData>> update) throws IOException {
+        int applied = 0;
+        if (Files.exists(oldFile)) {
+            applied += replay(oldFile, update, false);
+        }
+        if (Files.exists(file)) {
+            applied += replay(file, update, true);
+        }
+
+        synchronized (fileLock) {
+            channel = open(file);
+            size = channel.size();
+        }
+        running = true;
+        committer = new Thread(this::run, "bloxyproxy-journal");
+        committer.setDaemon(true);
+        committer.start();
+        return applied;
+    }
+
+    /**
+     * Reads one journal file, stopping at the first record that is torn or corrupt
+     *
+     * @param journal The file
+     * @param update Applies a change to a player's record, creating it if needed
+     * @param truncate Whether to cut off anything after the last good record
+     * @return The number of changes applied
+     */
+    private int replay(Path journal, BiConsumer<UUID, UnaryOperator<PlayerDataConfig.PlayerData>> update, boolean truncate) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(journal));
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            logger.warn("{} is not a player data journal, ignoring it", journal.getFileName());
+            return 0;
+        }
+
+        int applied = 0;
+        int good = in.position();
+        CRC32C crc = new CRC32C();
+        try {
+            while (in.remaining() >= 4) {
+                int length = in.getInt();
+                if (length <= 0 || length > in.remaining() - 4) {
+                    break;
+                }
+                ByteBuffer body = in.slice();
+                body.limit(length);
+                crc.reset();
+                crc.update(body.duplicate());
+                in.position(in.position() + length);
+                if ((int) crc.getValue() != in.getInt()) {
+                    break;
+                }
+                apply(body, update);
+                applied++;
+                good = in.position();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Torn record, handled below
+        }
+
+        if (good < in.limit()) {
+            logger.warn("{} ends with {} bytes of an incomplete change, ignoring them",
+                    journal.getFileName(), in.limit() - good);
+            if (truncate) {
+                try (FileChannel truncating = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                    truncating.truncate(good);
+                }
+            }
+        }
+        return applied;
+    }
+
+    private void apply(ByteBuffer body, BiConsumer<UUID, UnaryOperator<PlayerDataConfig.PlayerData>> update) {
+        byte type = body.get();
+        UUID uuid = new UUID(body.getLong(), body.getLong());
+        long time = body.getLong();
+        switch (type) {
+            case WHITELISTED:
+                boolean whitelisted = body.get() != 0;
+                String name = getString(body);
+                update.accept(uuid, data -> {
+                    PlayerDataConfig.PlayerData changed = data.withWhitelisted(whitelisted, time);
+                    return name == null ? changed : changed.withName(name, time);
+                });
+                break;
+            case LAST_SERVER:
+                String lastServer = getString(body);
+                update.accept(uuid, data -> data.withLastServer(lastServer, time));
+                break;
+            case AWAITING_RECONNECT:
+                String awaitingReconnect = getString(body);
+                update.accept(uuid, data -> data.withAwaitingReconnect(awaitingReconnect, time));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal record " + type);
+        }
+    }
+
+    /**
+     * Appends a change, written with the next batch
+     *
+     * @param type WHITELISTED, LAST_SERVER or AWAITING_RECONNECT
+     * @param uuid The player
+     * @param flag The whitelisted flag, ignored for other types
+     * @param value The server name, or for WHITELISTED the player's name
+     * @return Completes once the change is on disk
+     */
+    CompletableFuture<Void> append(byte type, UUID uuid, boolean flag, String value) {
+        byte[] encoded = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 16 + 8 + (type == WHITELISTED ? 1 : 0) + 2 + (encoded == null ? 0 : encoded.length);
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        synchronized (lock) {
+            if (!running) {
+                committed.completeExceptionally(new IOException("The journal is closed"));
+                return committed;
+            }
+            ensure(4 + length + 4);
+            int start = pending.position() + 4;
+            pending.putInt(length);
+            pending.put(type);
+            pending.putLong(uuid.getMostSignificantBits());
+            pending.putLong(uuid.getLeastSignificantBits());
+            pending.putLong(System.currentTimeMillis());
+            if (type == WHITELISTED) {
+                pending.put((byte) (flag ? 1 : 0));
+            }
+            if (encoded == null) {
+                pending.putShort((short) -1);
+            } else {
+                pending.putShort((short) encoded.length);
+                pending.put(encoded);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(pending.array(), start, length);
+            pending.putInt((int) crc.getValue());
+
+            pendingCommits.add(committed);
+            lock.notifyAll();
+        }
+        return committed;
+    }
+
+    private void ensure(int extra) {
+        if (pending.remaining() < extra) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + extra));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                synchronized (lock) {
+                    while (running && pendingCommits.isEmpty()) {
+                        lock.wait();
+                    }
+                }
+                // Let the batch fill up, one fsync covers everything that arrives meanwhile
+                Thread.sleep(commitMillis);
+                commit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs every pending change
+     */
+    private void commit() {
+        synchronized (fileLock) {
+            ByteBuffer batch;
+            List<CompletableFuture<Void>> commits;
+            synchronized (lock) {
+                if (pendingCommits.isEmpty()) {
+                    return;
+                }
+                batch = pending.flip();
+                commits = pendingCommits;
+                pending = ByteBuffer.allocate(Math.max(4096, batch.capacity() / 2));
+                pendingCommits = new ArrayList<>();
+            }
+
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                size = channel.size();
+                commits.forEach(commit -> commit.complete(null));
+            } catch (IOException e) {
+                logger.error("Failed to write {} player data changes to the journal", commits.size(), e);
+                commits.forEach(commit -> commit.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Starts an empty journal, keeping the current one as data.journal.old until
+     * {@link #discardOld()}. Call before saving the full player data file.
+     *
+     * @throws IOException If the journal cannot be switched
+     */
+    void rotate() throws IOException {
+        synchronized (fileLock) {
+            commit();
+            channel.close();
+            try {
+                if (Files.exists(oldFile)) {
+                    // The save after the last rotation failed, its changes are still needed
+                    try (FileChannel old = FileChannel.open(oldFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                         FileChannel current = FileChannel.open(file, StandardOpenOption.READ)) {
+                        long position = HEADER_SIZE;
+                        while (position < current.size()) {
+                            position += current.transferTo(position, current.size() - position, old);
+                        }
+                        old.force(false);
+                    }
+                    Files.delete(file);
+                } else {
+                    Files.move(file, oldFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                channel = open(file);
+                size = channel.size();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a journal replaced by {@link #rotate()} is still waiting for its save
+     *
+     * @return true if data.journal.old exists
+     */
+    boolean hasOld() {
+        return Files.exists(oldFile);
+    }
+
+    /**
+     * Deletes the journal replaced by {@link #rotate()}, once the full player data file holding
+     * its changes is saved
+     *
+     * @throws IOException If it cannot be deleted
+     */
+    void discardOld() throws IOException {
+        Files.deleteIfExists(oldFile);
+    }
+
+    /**
+     * Gets how big the current journal is
+     *
+     * @return The size in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Commits every pending change and closes the journal
+     */
+    void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        commit();
+        synchronized (fileLock) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                logger.error("Failed to close the player data journal", e);
+            }
+        }
+    }
+
+    private static FileChannel open(Path journal) throws IOException {
+        FileChannel opened = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (opened.size() == 0) {
+            opened.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+            opened.force(false);
+        }
+        return opened;
+    }
+
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,210 @@
+package dev.goddeh.retainlastserver.config;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import org.slf4j.Logger;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forgets players who are not whitelisted and have not joined for player_data.retention_days.
+ * Once a second it looks at up to retention_batch cached players, so a sweep over millions of
+ * players never stalls anything; when a sweep has pruned anyone the player data file is saved
+ * again without them. A new sweep starts every hour.
+ */
+public class PlayerDataRetention {
+
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final MainConfig mainConfig;
+    private final PlayerDataConfig playerDataConfig;
+
+    // The sweep in progress, null between sweeps. Guarded by this.
+    private Sweep sweep;
+    private long nextSweepAt;
+    private volatile Report lastReport;
+    private ScheduledTask task;
+
+    public PlayerDataRetention(Object plugin, ProxyServer proxy, Logger logger, MainConfig mainConfig,
+                               PlayerDataConfig playerDataConfig) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.mainConfig = mainConfig;
+        this.playerDataConfig = playerDataConfig;
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::tick)
+                .repeat(1, TimeUnit.SECONDS)
+                .schedule();
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private synchronized void tick() {
+        if (sweep == null) {
+            int days = mainConfig.getRetentionDays();
+            if (days <= 0 || System.currentTimeMillis() < nextSweepAt) {
+                return;
+            }
+            sweep = new Sweep(days);
+        }
+        sweep.step(mainConfig.getRetentionBatch());
+        if (sweep.isDone()) {
+            finish();
+        }
+    }
+
+    /**
+     * Runs a whole sweep now, finishing one that is in progress
+     *
+     * @return The result, or null if retention is turned off
+     */
+    public CompletableFuture<Report> sweepNow() {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (this) {
+                if (sweep == null) {
+                    int days = mainConfig.getRetentionDays();
+                    if (days <= 0) {
+                        return null;
+                    }
+                    sweep = new Sweep(days);
+                }
+                while (!sweep.isDone()) {
+                    sweep.step(Integer.MAX_VALUE);
+                }
+                return finish();
+            }
+        });
+    }
+
+    private Report finish() {
+        Sweep finished = sweep;
+        sweep = null;
+        nextSweepAt = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+
+        long fileBytes = 0;
+        if (finished.pruned > 0) {
+            // Rewrite the file without the pruned players, which also empties the journal
+            long before = playerDataConfig.fileSize();
+            playerDataConfig.saveConfig();
+            fileBytes = Math.max(0, before - playerDataConfig.fileSize());
+        }
+
+        Report report = new Report(finished.days, finished.checked, finished.pruned, finished.heapBytes, fileBytes,
+                System.currentTimeMillis() - finished.started);
+        lastReport = report;
+        if (report.getPruned() > 0) {
+            logger.info("Forgot {} of {} players inactive for {} days, freeing about {} KB of memory and {} KB on disk",
+                    report.getPruned(), report.getChecked(), report.getDays(),
+                    report.getHeapBytes() >> 10, report.getFileBytes() >> 10);
+        }
+        return report;
+    }
+
+    /**
+     * Gets the result of the last finished sweep
+     *
+     * @return The result, or null if no sweep has finished yet
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * One pass over the cache
+     */
+    private final class Sweep {
+        private final int days;
+        private final long cutoff;
+        private final long started = System.currentTimeMillis();
+        private final Iterator<UUID> players = playerDataConfig.players();
+        private long checked;
+        private long pruned;
+        private long heapBytes;
+
+        private Sweep(int days) {
+            this.days = days;
+            this.cutoff = started - TimeUnit.DAYS.toMillis(days);
+        }
+
+        private void step(int batch) {
+            for (int i = 0; i < batch && players.hasNext(); i++) {
+                long freed = playerDataConfig.pruneIfInactive(players.next(), cutoff);
+                checked++;
+                if (freed > 0) {
+                    pruned++;
+                    heapBytes += freed;
+                }
+            }
+        }
+
+        private boolean isDone() {
+            return !players.hasNext();
+        }
+    }
+
+    /**
+     * What a sweep did
+     */
+    public static final class Report {
+        private final int days;
+        private final long checked;
+        private final long pruned;
+        private final long heapBytes;
+        private final long fileBytes;
+        private final long durationMillis;
+
+        private Report(int days, long checked, long pruned, long heapBytes, long fileBytes, long durationMillis) {
+            this.days = days;
+            this.checked = checked;
+            this.pruned = pruned;
+            this.heapBytes = heapBytes;
+            this.fileBytes = fileBytes;
+            this.durationMillis = durationMillis;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        public long getChecked() {
+            return checked;
+        }
+
+        public long getPruned() {
+            return pruned;
+        }
+
+        /**
+         * @return The estimated heap freed, in bytes
+         */
+        public long getHeapBytes() {
+            return heapBytes;
+        }
+
+        /**
+         * @return How much smaller the player data file got, in bytes
+         */
+        public long getFileBytes() {
+            return fileBytes;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+}
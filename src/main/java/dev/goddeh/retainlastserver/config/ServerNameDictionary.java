@@ -0,0 +1,90 @@
+package dev.goddeh.retainlastserver.config;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every server name a small number, so player records store two bytes per server name
+ * instead of their own copy of the string. A network has a few dozen server names against
+ * possibly millions of records. Names are only ever added, a number always means the same name.
+ */
+final class ServerNameDictionary {
+
+    // Number 0 stands for no server
+    static final char NONE = 0;
+
+    private static final ServerNameDictionary SHARED = new ServerNameDictionary();
+
+    private final Map<String, Character> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[]{null};
+
+    /**
+     * Gets the dictionary every player record uses
+     *
+     * @return The dictionary
+     */
+    static ServerNameDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the number of a server name, adding it if it is new
+     *
+     * @param name The server name, or null
+     * @return Its number, NONE for null
+     */
+    char id(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Character id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Gets the number of a server name without adding it
+     *
+     * @param name The server name, or null
+     * @return Its number, NONE if it has none
+     */
+    char find(String name) {
+        Character id = name == null ? null : ids.get(name);
+        return id != null ? id : NONE;
+    }
+
+    private synchronized char add(String name) {
+        Character id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (names.length > Character.MAX_VALUE) {
+            throw new IllegalStateException("More than " + (int) Character.MAX_VALUE + " distinct server names");
+        }
+        String[] next = Arrays.copyOf(names, names.length + 1);
+        next[names.length] = name;
+        names = next;
+        char added = (char) (next.length - 1);
+        ids.put(name, added);
+        return added;
+    }
+
+    /**
+     * Gets the server name for a number
+     *
+     * @param id The number
+     * @return The server name, null for NONE
+     */
+    String name(char id) {
+        return names[id];
+    }
+
+    /**
+     * Gets how many server names there are
+     *
+     * @return The number of names
+     */
+    int size() {
+        return names.length - 1;
+    }
+}
@@ -0,0 +1,112 @@
+package dev.goddeh.retainlastserver.config;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A new value for one shared field of a player, when it was set and by which proxy. A player's
+ * shared state is the latest change to each field, so the same type is written, read back and
+ * published to other proxies.
+ */
+public final class SharedPlayerChange {
+
+    public enum Field {
+        LAST_SERVER,
+        AWAITING_RECONNECT,
+        WHITELISTED
+    }
+
+    private static final Comparator<String> VALUE_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final UUID uuid;
+    private final Field field;
+    private final String value;
+    private final boolean whitelisted;
+    private final long time;
+    private final String origin;
+
+    /**
+     * @param uuid The player
+     * @param field The field changed
+     * @param value The server name, or for WHITELISTED the player's name
+     * @param whitelisted Whether the player is whitelisted, ignored for other fields
+     * @param time When the field was set, in milliseconds
+     * @param origin The proxy that set it
+     */
+    public SharedPlayerChange(UUID uuid, Field field, String value, boolean whitelisted, long time, String origin) {
+        this.uuid = Objects.requireNonNull(uuid, "uuid");
+        this.field = Objects.requireNonNull(field, "field");
+        this.value = value;
+        this.whitelisted = whitelisted;
+        this.time = time;
+        this.origin = Objects.requireNonNull(origin, "origin");
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return The server name, or for WHITELISTED the player's name, may be null
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isWhitelisted() {
+        return whitelisted;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Checks whether this change replaces another to the same field. The later one wins. For
+     * changes made in the same millisecond the values decide, so every proxy and backend settles
+     * on the same one without knowing where a value came from.
+     *
+     * @param other The other change, or null
+     * @return true if this change wins
+     */
+    public boolean isNewerThan(SharedPlayerChange other) {
+        if (other == null) {
+            return true;
+        }
+        if (time != other.time) {
+            return time > other.time;
+        }
+        int byValue = compareValue(other.value, other.whitelisted);
+        return byValue != 0 ? byValue > 0 : origin.compareTo(other.origin) > 0;
+    }
+
+    /**
+     * Orders this change's value against another value of the same field, for changes made in
+     * the same millisecond
+     *
+     * @param otherValue The other server name, ignored for WHITELISTED
+     * @param otherWhitelisted The other whitelisted flag, ignored for other fields
+     * @return Above 0 if this value wins, 0 if they are the same
+     */
+    int compareValue(String otherValue, boolean otherWhitelisted) {
+        if (field == Field.WHITELISTED) {
+            return Boolean.compare(whitelisted, otherWhitelisted);
+        }
+        return VALUE_ORDER.compare(value, otherValue);
+    }
+
+    @Override
+    public String toString() {
+        return field + "=" + (field == Field.WHITELISTED ? whitelisted : value) + " for " + uuid + " at " + time
+                + " from " + origin;
+    }
+}
@@ -0,0 +1,257 @@
+package dev.goddeh.retainlastserver.config;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares each player's last server, reconnect server and whitelisting with the other proxies
+ * through a {@link SharedStateBackend}. The player data cache stays the near-cache every lookup
+ * reads, so nothing on the hot path waits for the network:
+ * <ul>
+ *     <li>Changes made here are queued and written to the backend in one batch every
+ *     shared_state.flush_millis, only the latest change to each field.</li>
+ *     <li>Changes other proxies publish are applied to the players cached here. A field set
+ *     later on either side wins, so every proxy ends up with the same value.</li>
+ *     <li>A player's state is fetched from the backend as they log in, before the whitelist
+ *     check and the redirect to their last server.</li>
+ * </ul>
+ * Another proxy sees a change after at most one flush plus the backend's delivery time.
+ */
+public class SharedPlayerState {
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final PlayerDataConfig playerDataConfig;
+    private final long flushMillis;
+    // Identifies this proxy's changes, new on every start
+    private final String node = UUID.randomUUID().toString();
+    private final Queue<SharedPlayerChange> outgoing = new ConcurrentLinkedQueue<>();
+    // Set while changes from the backend are applied, so they are not published back
+    private final ThreadLocal<Boolean> applying = ThreadLocal.withInitial(() -> false);
+
+    private volatile SharedStateBackend backend;
+    private volatile boolean failing;
+    private ScheduledTask task;
+
+    public SharedPlayerState(Object plugin, ProxyServer proxy, Logger logger, PlayerDataConfig playerDataConfig,
+                             int flushMillis) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.playerDataConfig = playerDataConfig;
+        this.flushMillis = flushMillis;
+        playerDataConfig.addChangeListener(this::onLocalChange);
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::flush)
+                .repeat(flushMillis, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Writes the changes still queued and disconnects from the backend
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        setBackend(null);
+    }
+
+    /**
+     * Plugs in the backend state is shared through, replacing the one in use. Changes queued for
+     * the old backend are written to it first.
+     *
+     * @param next The backend, or null to stop sharing
+     */
+    public synchronized void setBackend(SharedStateBackend next) {
+        SharedStateBackend previous = backend;
+        if (previous == next) {
+            return;
+        }
+        if (previous != null) {
+            flush();
+            previous.close();
+        }
+        outgoing.clear();
+        backend = next;
+        if (next != null) {
+            next.subscribe(this::onPublished);
+            logger.info("Sharing player state through {}", next.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Gets the backend state is shared through
+     *
+     * @return The backend, or null if state is not shared
+     */
+    public SharedStateBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Gets the id this proxy's changes are published under
+     *
+     * @return The id
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * Brings a player's state up to date from the backend, so a player who last played through
+     * another proxy is treated the same here. Waits at most the timeout; a later answer is still
+     * applied when it arrives.
+     *
+     * @param uuid Player UUID
+     * @param timeoutMillis How long to wait
+     * @return Completes once the state is applied or the wait is over, never exceptionally
+     */
+    public CompletableFuture<Void> refresh(UUID uuid, long timeoutMillis) {
+        SharedStateBackend current = backend;
+        if (current == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> refreshed = new CompletableFuture<>();
+        try {
+            current.fetch(Collections.singleton(uuid)).whenComplete((players, error) -> {
+                if (error != null) {
+                    logger.warn("Failed to fetch the shared state of {}, using this proxy's", uuid, error);
+                } else {
+                    apply(players, true);
+                }
+                refreshed.complete(null);
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to fetch the shared state of {}, using this proxy's", uuid, e);
+            refreshed.complete(null);
+        }
+        return refreshed.completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a change made here to a shared field. Called from inside the update making it.
+     */
+    private void onLocalChange(PlayerDataConfig.PlayerData before, PlayerDataConfig.PlayerData after) {
+        if (backend == null || after == null || applying.get()) {
+            return;
+        }
+        // A new player starts with nothing set. Otherwise any field stamped again is shared, the
+        // setters leave a field untouched when its value does not change.
+        if (before == null ? after.lastServerId() != ServerNameDictionary.NONE
+                : changed(before, after, SharedPlayerChange.Field.LAST_SERVER)) {
+            queue(after, SharedPlayerChange.Field.LAST_SERVER, after.getLastServer());
+        }
+        if (before == null ? after.awaitingReconnectId() != ServerNameDictionary.NONE
+                : changed(before, after, SharedPlayerChange.Field.AWAITING_RECONNECT)) {
+            queue(after, SharedPlayerChange.Field.AWAITING_RECONNECT, after.getAwaitingReconnect());
+        }
+        if (before == null ? after.isWhitelisted() : changed(before, after, SharedPlayerChange.Field.WHITELISTED)) {
+            queue(after, SharedPlayerChange.Field.WHITELISTED, after.getName());
+        }
+    }
+
+    private static boolean changed(PlayerDataConfig.PlayerData before, PlayerDataConfig.PlayerData after,
+                                   SharedPlayerChange.Field field) {
+        return before.sharedChangedAt(field) != after.sharedChangedAt(field);
+    }
+
+    private void queue(PlayerDataConfig.PlayerData data, SharedPlayerChange.Field field, String value) {
+        long time = data.sharedChangedAt(field);
+        outgoing.add(new SharedPlayerChange(data.getUuid(), field, value, data.isWhitelisted(),
+                time > 0 ? time : System.currentTimeMillis(), node));
+    }
+
+    /**
+     * Writes the queued changes to the backend as one batch
+     */
+    private synchronized void flush() {
+        SharedStateBackend current = backend;
+        if (current == null || outgoing.isEmpty()) {
+            return;
+        }
+
+        // Only the latest change to each field is written
+        Map<UUID, SharedPlayerChange[]> latest = new LinkedHashMap<>();
+        SharedPlayerChange change;
+        while ((change = outgoing.poll()) != null) {
+            SharedPlayerChange[] fields = latest.computeIfAbsent(change.getUuid(),
+                    uuid -> new SharedPlayerChange[SharedPlayerChange.Field.values().length]);
+            int field = change.getField().ordinal();
+            if (change.isNewerThan(fields[field])) {
+                fields[field] = change;
+            }
+        }
+        List<SharedPlayerChange> batch = new ArrayList<>();
+        for (SharedPlayerChange[] fields : latest.values()) {
+            for (SharedPlayerChange field : fields) {
+                if (field != null) {
+                    batch.add(field);
+                }
+            }
+        }
+
+        CompletableFuture<Void> published;
+        try {
+            published = current.publish(batch);
+        } catch (Exception e) {
+            published = CompletableFuture.failedFuture(e);
+        }
+        published.whenComplete((ignored, error) -> {
+            if (error == null) {
+                if (failing) {
+                    failing = false;
+                    logger.info("Writing player state to the shared backend again");
+                }
+                return;
+            }
+            if (!failing) {
+                failing = true;
+                logger.warn("Failed to write {} player state changes to the shared backend, retrying", batch.size(), error);
+            }
+            // Retried with the next flush, where anything newer replaces them
+            if (backend == current) {
+                outgoing.addAll(batch);
+            }
+        });
+    }
+
+    /**
+     * Applies a batch of changes published by the backend
+     */
+    private void onPublished(List<SharedPlayerChange> changes) {
+        Map<UUID, List<SharedPlayerChange>> players = new HashMap<>();
+        for (SharedPlayerChange change : changes) {
+            if (!node.equals(change.getOrigin())) {
+                players.computeIfAbsent(change.getUuid(), uuid -> new ArrayList<>(1)).add(change);
+            }
+        }
+        try {
+            // Only players cached here, anyone else is fetched when they log in
+            apply(players, false);
+        } catch (Exception e) {
+            logger.error("Failed to apply {} shared player state changes", changes.size(), e);
+        }
+    }
+
+    private void apply(Map<UUID, List<SharedPlayerChange>> players, boolean create) {
+        applying.set(true);
+        try {
+            players.forEach((uuid, changes) -> playerDataConfig.applySharedChanges(uuid, changes, create));
+        } finally {
+            applying.set(false);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.goddeh.retainlastserver.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Where proxies share player state: a store holding the latest change to each field of each
+ * player, and a channel telling every proxy about changes. Plug one in with
+ * {@link SharedPlayerState#setBackend(SharedStateBackend)}; {@link LoopbackSharedStateBackend}
+ * is the in-process one for testing.
+ *
+ * Every proxy has to settle on the same value, so a store keeps a change only if
+ * {@link SharedPlayerChange#isNewerThan} the one it has. Calls must not block.
+ */
+public interface SharedStateBackend {
+
+    /**
+     * Reads players' shared state
+     *
+     * @param uuids The players
+     * @return The latest change to each field, players with none are left out
+     */
+    CompletableFuture<Map<UUID, List<SharedPlayerChange>>> fetch(Collection<UUID> uuids);
+
+    /**
+     * Stores a batch of changes and publishes them to every subscriber
+     *
+     * @param changes The changes, at most one per field of a player
+     * @return Completes once the changes are stored
+     */
+    CompletableFuture<Void> publish(List<SharedPlayerChange> changes);
+
+    /**
+     * Subscribes to published changes, including this proxy's own. Batches may arrive on any
+     * thread but one at a time.
+     *
+     * @param subscriber Receives each batch
+     */
+    void subscribe(Consumer<List<SharedPlayerChange>> subscriber);
+
+    /**
+     * Unsubscribes and releases any connection. Changes already published are kept.
+     */
+    void close();
+}
@@ -12,6 +12,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class WhitelistConfig {
 
@@ -22,8 +23,8 @@ public class WhitelistConfig {
     private ConfigurationLoader<CommentedConfigurationNode> loader;
     private CommentedConfigurationNode rootNode;
 
-    private boolean enabled = false;
-    private boolean adminOnly = false;
+    // Settings currently in use, replaced as a whole on every load or change
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(false, false));
 
     // Reference to player data config for storing whitelisted players
     private final PlayerDataConfig playerDataConfig;
@@ -37,7 +38,7 @@ public class WhitelistConfig {
         loadConfig();
     }
 
-    private void loadConfig() {
+    private synchronized boolean loadConfig() {
         try {
             if (!Files.exists(dataDirectory)) {
                 Files.createDirectories(dataDirectory);
@@ -64,27 +65,41 @@ public class WhitelistConfig {
 
             try {
                 // Load the config
-                rootNode = loader.load();
-
-                enabled = rootNode.getNode("enabled").getBoolean(false);
-                adminOnly = rootNode.getNode("admin_only").getBoolean(false);
+                CommentedConfigurationNode loaded = loader.load();
+
+                for (String key : new String[]{"enabled", "admin_only"}) {
+                    Object value = loaded.getNode(key).getValue();
+                    if (value != null && !(value instanceof Boolean)
+                            && !"true".equalsIgnoreCase(value.toString()) && !"false".equalsIgnoreCase(value.toString())) {
+                        logger.error("Whitelist config has errors, keeping the settings in use: {} is not true or false", key);
+                        return false;
+                    }
+                }
+
+                Snapshot next = new Snapshot(loaded.getNode("enabled").getBoolean(false),
+                        loaded.getNode("admin_only").getBoolean(false));
+                rootNode = loaded;
+                snapshot.set(next);
 
                 logger.info("Loaded whitelist config. Enabled: {}, Admin only: {}",
-                        enabled, adminOnly);
+                        next.enabled, next.adminOnly);
+                return true;
             } catch (Exception e) {
-                logger.error("Failed to load whitelist config, using default values", e);
-                // Continue with default values if loading fails
+                logger.error("Failed to load whitelist config, keeping the settings in use", e);
+                // Continue with the previous (or default) values if loading fails
             }
 
         } catch (IOException e) {
             logger.error("Failed to initialize whitelist config", e);
         }
+        return false;
     }
 
-    public void saveConfig() {
+    public synchronized void saveConfig() {
         try {
-            rootNode.getNode("enabled").setValue(enabled);
-            rootNode.getNode("admin_only").setValue(adminOnly);
+            Snapshot s = snapshot.get();
+            rootNode.getNode("enabled").setValue(s.enabled);
+            rootNode.getNode("admin_only").setValue(s.adminOnly);
 
             loader.save(rootNode);
         } catch (IOException e) {
@@ -93,20 +108,20 @@ public class WhitelistConfig {
     }
 
     public boolean isEnabled() {
-        return enabled;
+        return snapshot.get().enabled;
     }
 
     public void setEnabled(boolean enabled) {
-        this.enabled = enabled;
+        snapshot.updateAndGet(s -> new Snapshot(enabled, s.adminOnly));
         saveConfig();
     }
 
     public boolean isAdminOnly() {
-        return adminOnly;
+        return snapshot.get().adminOnly;
     }
 
     public void setAdminOnly(boolean adminOnly) {
-        this.adminOnly = adminOnly;
+        snapshot.updateAndGet(s -> new Snapshot(s.enabled, adminOnly));
         saveConfig();
     }
 
@@ -134,7 +149,25 @@ public class WhitelistConfig {
         return playerDataConfig.getWhitelistedPlayers();
     }
 
-    public void reload() {
-        loadConfig();
+    /**
+     * Reads whitelist.conf again. If it cannot be read or has errors the settings in use are kept.
+     *
+     * @return true if the new settings are now in use
+     */
+    public boolean reload() {
+        return loadConfig();
+    }
+
+    /**
+     * The whitelist settings at one point in time. Never changes once published.
+     */
+    private static final class Snapshot {
+        private final boolean enabled;
+        private final boolean adminOnly;
+
+        private Snapshot(boolean enabled, boolean adminOnly) {
+            this.enabled = enabled;
+            this.adminOnly = adminOnly;
+        }
     }
 }
\ No newline at end of file
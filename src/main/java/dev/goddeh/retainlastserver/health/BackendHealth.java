@@ -0,0 +1,306 @@
+package dev.goddeh.retainlastserver.health;
+
+import dev.goddeh.retainlastserver.health.probe.ProbeKind;
+import dev.goddeh.retainlastserver.health.probe.ProbeStats;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Health state machine for one backend. A failed probe only makes a backend SUSPECT, which is
+ * probed quickly until enough failures in a row confirm it DOWN. Backends that stay down are
+ * probed with exponential backoff, and backends that keep changing state collect a penalty
+ * which, like BGP route flap damping, holds them DOWN until they have been stable for a while.
+ */
+public class BackendHealth {
+
+    /**
+     * Health of a backend
+     */
+    public enum State {
+        /** Answering probes */
+        UP,
+        /** Missed a probe, not yet confirmed down. Still counts as online. */
+        SUSPECT,
+        /** Confirmed down, players are kept away from it */
+        DOWN
+    }
+
+    private final String serverName;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final Map<State, Integer> transitions = new EnumMap<>(State.class);
+    private final Map<ProbeKind, ProbeStats> probeStats = new EnumMap<>(ProbeKind.class);
+
+    private volatile State state = State.UP;
+    private volatile boolean known;
+    private volatile boolean provisional;
+    private int consecutiveSuccesses;
+    private volatile int consecutiveFailures;
+    private int backoffExponent;
+    private volatile long nextProbeAt;
+    private double penalty;
+    private long penaltyUpdatedAt;
+    private volatile boolean damped;
+    private int suppressedRecoveries;
+    private volatile long lastChange = System.currentTimeMillis();
+    private int probesSinceStatus;
+
+    public BackendHealth(String serverName) {
+        this.serverName = serverName;
+        for (ProbeKind kind : ProbeKind.values()) {
+            probeStats.put(kind, new ProbeStats());
+        }
+    }
+
+    /**
+     * Records the result of a probe and works out when to probe next
+     *
+     * @param success Whether the backend answered
+     * @param passive Whether the result came from player traffic rather than a probe
+     * @param now Current time in milliseconds
+     * @param settings Health check settings
+     * @return The previous state if the backend just went DOWN or came back UP, otherwise null
+     */
+    public synchronized State record(boolean success, boolean passive, long now, HealthSettings settings) {
+        decayPenalty(now, settings);
+        State previous = state;
+
+        if (passive && (state == State.DOWN && !success || !known)) {
+            // A dead backend failing players says nothing new, and traffic alone does not set the first state
+            return null;
+        }
+
+        if (!known) {
+            // The first answer sets the starting state without announcing anything
+            known = true;
+            provisional = false;
+            // A backend restored as held down for flapping stays down until the penalty decays
+            state = success && !damped ? State.UP : State.DOWN;
+            consecutiveSuccesses = success ? 1 : 0;
+            consecutiveFailures = success ? 0 : 1;
+            scheduleNext(now, settings);
+            return null;
+        }
+
+        State announced = null;
+        if (success) {
+            consecutiveSuccesses++;
+            consecutiveFailures = 0;
+            backoffExponent = 0;
+            if (state == State.SUSPECT) {
+                moveTo(State.UP, now);
+            } else if (state == State.DOWN && consecutiveSuccesses >= settings.successThreshold) {
+                if (damped) {
+                    suppressedRecoveries++;
+                } else {
+                    moveTo(State.UP, now);
+                    addPenalty(settings);
+                    announced = previous;
+                }
+            }
+        } else {
+            consecutiveFailures++;
+            consecutiveSuccesses = 0;
+            if (state != State.DOWN && consecutiveFailures >= settings.failureThreshold) {
+                moveTo(State.DOWN, now);
+                addPenalty(settings);
+                backoffExponent = 0;
+                announced = previous;
+            } else if (state == State.UP) {
+                moveTo(State.SUSPECT, now);
+            } else if (state == State.DOWN) {
+                backoffExponent = Math.min(backoffExponent + 1, 30);
+            }
+        }
+
+        scheduleNext(now, settings);
+        return announced;
+    }
+
+    private void scheduleNext(long now, HealthSettings settings) {
+        long delay;
+        if (state == State.SUSPECT || (state == State.DOWN && consecutiveSuccesses > 0 && !damped)) {
+            // Confirm quickly either way
+            delay = settings.suspectIntervalMillis;
+        } else if (state == State.DOWN) {
+            delay = Math.min(settings.intervalMillis << Math.min(backoffExponent, 20), settings.maxBackoffMillis);
+        } else {
+            delay = settings.intervalMillis;
+        }
+        nextProbeAt = now + delay;
+    }
+
+    private void moveTo(State next, long now) {
+        state = next;
+        lastChange = now;
+        transitions.merge(next, 1, Integer::sum);
+    }
+
+    private void addPenalty(HealthSettings settings) {
+        penalty += settings.flapPenalty;
+        if (!damped && penalty >= settings.suppressThreshold) {
+            damped = true;
+        }
+    }
+
+    private void decayPenalty(long now, HealthSettings settings) {
+        if (penaltyUpdatedAt != 0 && penalty > 0) {
+            penalty *= Math.pow(0.5, (double) (now - penaltyUpdatedAt) / settings.halfLifeMillis);
+        }
+        penaltyUpdatedAt = now;
+        if (damped && penalty < settings.reuseThreshold) {
+            damped = false;
+        }
+    }
+
+    /**
+     * Starts from a state saved by a previous run until the first probe confirms or corrects it.
+     * Does nothing once the backend has been probed.
+     *
+     * @param saved The saved state
+     * @param savedPenalty The saved flap penalty
+     * @param savedDamped Whether the backend was held down for flapping
+     * @param savedLastChange When the saved state was entered
+     * @param savedAt When the state was saved, so the penalty decays over the time in between
+     */
+    synchronized void restore(State saved, double savedPenalty, boolean savedDamped, long savedLastChange, long savedAt) {
+        if (known) {
+            return;
+        }
+        // A suspect backend was never confirmed down, so it starts out online
+        state = saved == State.DOWN ? State.DOWN : State.UP;
+        penalty = savedPenalty;
+        penaltyUpdatedAt = savedAt;
+        damped = savedDamped;
+        lastChange = savedLastChange;
+        provisional = true;
+        nextProbeAt = 0;
+    }
+
+    /**
+     * Marks the backend as being probed
+     *
+     * @return false if a probe is already running
+     */
+    boolean tryStartProbe() {
+        return probing.compareAndSet(false, true);
+    }
+
+    void finishProbe() {
+        probing.set(false);
+    }
+
+    /**
+     * Counts a combined probe and works out whether it should include a status ping. Only called
+     * while this backend's probe is running, so never concurrently.
+     *
+     * @param every A status ping is due once every this many probes
+     * @return true for the first probe and every 'every' probes after that
+     */
+    boolean statusPingDue(int every) {
+        boolean due = probesSinceStatus == 0;
+        probesSinceStatus = (probesSinceStatus + 1) % Math.max(1, every);
+        return due;
+    }
+
+    /**
+     * Makes the backend due for a probe straight away
+     */
+    void probeNow() {
+        nextProbeAt = 0;
+    }
+
+    boolean isDue(long now) {
+        return nextProbeAt <= now;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Whether the backend has been probed at least once
+     */
+    public boolean isKnown() {
+        return known;
+    }
+
+    /**
+     * Whether the state was restored from a previous run and has not been confirmed by a probe yet
+     */
+    public boolean isProvisional() {
+        return provisional;
+    }
+
+    /**
+     * Whether the backend looks fully healthy, so new players should be routed to it
+     */
+    public boolean isRoutable() {
+        return state == State.UP;
+    }
+
+    /**
+     * Whether the backend needs a passive success recorded, i.e. it is not plainly healthy
+     */
+    boolean wantsSuccess() {
+        return state != State.UP || consecutiveFailures > 0;
+    }
+
+    /**
+     * Whether players can be sent to the backend. SUSPECT backends still count as online.
+     */
+    public boolean isOnline() {
+        return state != State.DOWN;
+    }
+
+    /**
+     * Whether the backend is being held down for flapping
+     */
+    public boolean isDamped() {
+        return damped;
+    }
+
+    public synchronized double getPenalty() {
+        return penalty;
+    }
+
+    /**
+     * Gets how many times the backend entered a state
+     *
+     * @param state The state
+     * @return The number of times it was entered
+     */
+    public synchronized int getTransitions(State state) {
+        return transitions.getOrDefault(state, 0);
+    }
+
+    /**
+     * Gets how many recoveries were held back by flap damping
+     */
+    public synchronized int getSuppressedRecoveries() {
+        return suppressedRecoveries;
+    }
+
+    /**
+     * Gets the latency statistics of one kind of probe against this backend
+     *
+     * @param kind The kind of probe
+     * @return Its statistics
+     */
+    public ProbeStats getProbeStats(ProbeKind kind) {
+        return probeStats.get(kind);
+    }
+
+    public long getLastChange() {
+        return lastChange;
+    }
+
+    public long getNextProbeAt() {
+        return nextProbeAt;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.goddeh.retainlastserver.health;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+/**
+ * Told when a backend is confirmed down or comes back up
+ */
+public interface HealthListener {
+
+    /**
+     * Called on the proxy scheduler after a backend changed between UP and DOWN
+     *
+     * @param server The backend
+     * @param previous Its state before the change
+     * @param current Its state now
+     */
+    void onStateChange(RegisteredServer server, BackendHealth.State previous, BackendHealth.State current);
+}
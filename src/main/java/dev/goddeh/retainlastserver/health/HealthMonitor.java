@@ -0,0 +1,332 @@
+package dev.goddeh.retainlastserver.health;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.health.probe.BackendProbe;
+import dev.goddeh.retainlastserver.health.probe.HedgedProbe;
+import dev.goddeh.retainlastserver.health.probe.ProbeKind;
+import dev.goddeh.retainlastserver.health.probe.ProbeResult;
+import dev.goddeh.retainlastserver.health.probe.ProbeStrategy;
+import dev.goddeh.retainlastserver.health.probe.StatusPingProbe;
+import dev.goddeh.retainlastserver.health.probe.TcpConnectProbe;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes every backend on its own schedule and keeps a {@link BackendHealth} for each one.
+ * Healthy backends are probed every check interval, suspect ones quickly and dead ones with
+ * backoff. Only confirmed changes between UP and DOWN reach the listener. Each backend is
+ * probed with its configured {@link ProbeStrategy}. Every change is published to a
+ * {@link ServerStateRegistry}, which is what routing reads.
+ */
+public class HealthMonitor {
+
+    // How often due probes are looked for
+    private static final long TICK_MILLIS = 250;
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final MainConfig mainConfig;
+    private final BackendLoadTracker loadTracker;
+    private final HealthListener listener;
+    private final Map<String, BackendHealth> backends = new ConcurrentHashMap<>();
+    private final ServerStateRegistry states = new ServerStateRegistry();
+    private final BackendProbe tcpProbe = new TcpConnectProbe();
+    private final BackendProbe statusProbe = new StatusPingProbe();
+    private ScheduledTask task;
+
+    public HealthMonitor(Object plugin, ProxyServer proxy, Logger logger, MainConfig mainConfig,
+                         BackendLoadTracker loadTracker, HealthListener listener) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.mainConfig = mainConfig;
+        this.loadTracker = loadTracker;
+        this.listener = listener;
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::tick)
+                .repeat(TICK_MILLIS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            HealthSettings settings = HealthSettings.from(mainConfig.snapshot());
+            for (RegisteredServer server : proxy.getAllServers()) {
+                BackendHealth health = getOrCreate(server.getServerInfo().getName());
+                if (health.isDue(now) && health.tryStartProbe()) {
+                    probe(server, health, settings);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to run server health checks", e);
+        }
+    }
+
+    private CompletableFuture<Boolean> probe(RegisteredServer server, BackendHealth health, HealthSettings settings) {
+        String serverName = server.getServerInfo().getName();
+        ProbeStrategy strategy = ProbeStrategy.fromConfig(settings.probeStrategy(serverName));
+
+        CompletableFuture<Boolean> alive;
+        switch (strategy) {
+            case TCP:
+                alive = run(tcpProbe, ProbeKind.TCP, server, health, settings).thenApply(ProbeResult::isSuccess);
+                break;
+            case COMBINED:
+                CompletableFuture<ProbeResult> tcp = run(tcpProbe, ProbeKind.TCP, server, health, settings);
+                if (health.statusPingDue(settings.probeStatusEvery)) {
+                    // The status ping only refreshes player counts, a slow answer from a busy server is not a failure
+                    CompletableFuture<ProbeResult> status = run(statusProbe, ProbeKind.STATUS, server, health, settings);
+                    alive = tcp.thenCombine(status, (tcpResult, statusResult) ->
+                            tcpResult.isSuccess() || statusResult.isSuccess());
+                } else {
+                    alive = tcp.thenApply(ProbeResult::isSuccess);
+                }
+                break;
+            default:
+                alive = run(statusProbe, ProbeKind.STATUS, server, health, settings).thenApply(ProbeResult::isSuccess);
+                break;
+        }
+
+        return alive.handle((success, throwable) -> {
+            boolean up = throwable == null && success;
+            try {
+                record(server, health, up, false, settings);
+            } finally {
+                health.finishProbe();
+            }
+            return up;
+        });
+    }
+
+    private CompletableFuture<ProbeResult> run(BackendProbe probe, ProbeKind kind, RegisteredServer server,
+                                               BackendHealth health, HealthSettings settings) {
+        String serverName = server.getServerInfo().getName();
+        if (settings.hedge) {
+            probe = new HedgedProbe(probe, kind, health.getProbeStats(kind), settings.hedgePercentile,
+                    settings.hedgeMinDelayMillis);
+        }
+        return probe.probe(server, settings.probeTimeoutMillis).thenApply(result -> {
+            health.getProbeStats(result.getKind()).record(result);
+            if (result.getPing() != null) {
+                loadTracker.recordPing(serverName, result.getPing(),
+                        TimeUnit.NANOSECONDS.toMillis(result.getLatencyNanos()));
+            }
+            return result;
+        });
+    }
+
+    private void record(RegisteredServer server, BackendHealth health, boolean success, boolean passive,
+                        HealthSettings settings) {
+        boolean wasDamped = health.isDamped();
+        BackendHealth.State previous;
+        synchronized (health) {
+            // Publish under the same lock so an older copy can never replace a newer one
+            previous = health.record(success, passive, System.currentTimeMillis(), settings);
+            states.update(ServerState.of(health));
+        }
+        if (!wasDamped && health.isDamped()) {
+            logger.warn("Server '{}' keeps going up and down, holding it offline until it settles",
+                    health.getServerName());
+        }
+        if (previous == null) {
+            return;
+        }
+
+        BackendHealth.State current = health.getState();
+        logger.info("Server '{}' is now {} (was {})", health.getServerName(), current, previous);
+        proxy.getScheduler()
+                .buildTask(plugin, () -> {
+                    try {
+                        listener.onStateChange(server, previous, current);
+                    } catch (Exception e) {
+                        logger.error("Failed to handle state change of server '{}'", health.getServerName(), e);
+                    }
+                })
+                .schedule();
+    }
+
+    /**
+     * Records a failure seen in player traffic, such as a refused connection, and probes the
+     * backend straight away instead of waiting for its next scheduled probe
+     *
+     * @param server The backend
+     * @param cause What failed, for the log
+     */
+    public void reportFailure(RegisteredServer server, String cause) {
+        String serverName = server.getServerInfo().getName();
+        BackendHealth health = getOrCreate(serverName);
+        HealthSettings settings = HealthSettings.from(mainConfig.snapshot());
+        logger.debug("Passive failure on server '{}': {}", serverName, cause);
+        record(server, health, false, true, settings);
+        if (health.tryStartProbe()) {
+            probe(server, health, settings);
+        }
+    }
+
+    /**
+     * Records a success seen in player traffic, such as a player connecting. Only backends that
+     * are not plainly healthy are touched, so busy backends cost nothing here.
+     *
+     * @param server The backend
+     */
+    public void reportSuccess(RegisteredServer server) {
+        BackendHealth health = backends.get(server.getServerInfo().getName());
+        if (health != null && health.wantsSuccess()) {
+            record(server, health, true, true, HealthSettings.from(mainConfig.snapshot()));
+        }
+    }
+
+    /**
+     * Seeds a backend with the state saved by a previous run, until a probe confirms it
+     *
+     * @param serverName The backend name
+     * @param state The saved state
+     * @param penalty The saved flap penalty
+     * @param damped Whether it was held down for flapping
+     * @param lastChange When the saved state was entered
+     * @param savedAt When the state was saved
+     * @return false if the backend is no longer registered
+     */
+    public boolean restore(String serverName, BackendHealth.State state, double penalty, boolean damped,
+                           long lastChange, long savedAt) {
+        if (proxy.getServer(serverName).isEmpty()) {
+            return false;
+        }
+        BackendHealth health = getOrCreate(serverName);
+        synchronized (health) {
+            health.restore(state, penalty, damped, lastChange, savedAt);
+            states.update(ServerState.of(health));
+        }
+        return true;
+    }
+
+    /**
+     * Probes every backend that has not been probed yet, all at once, without waiting. Backends
+     * keep their restored or default state until their answer arrives.
+     *
+     * @return Completes when every answer is in
+     */
+    public CompletableFuture<Void> warmUp() {
+        HealthSettings settings = HealthSettings.from(mainConfig.snapshot());
+        long started = System.currentTimeMillis();
+        List<CompletableFuture<Boolean>> probes = new ArrayList<>();
+        List<String> corrected = Collections.synchronizedList(new ArrayList<>());
+        for (RegisteredServer server : proxy.getAllServers()) {
+            BackendHealth health = getOrCreate(server.getServerInfo().getName());
+            if (health.isKnown() || !health.tryStartProbe()) {
+                continue;
+            }
+            boolean provisional = health.isProvisional();
+            BackendHealth.State restored = health.getState();
+            probes.add(probe(server, health, settings).whenComplete((up, throwable) -> {
+                if (provisional && health.getState() != restored) {
+                    corrected.add(health.getServerName() + " " + restored + " -> " + health.getState());
+                }
+            }));
+        }
+
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, throwable) -> {
+                    logger.info("Health warm-up probed {} servers in {}ms", probes.size(),
+                            System.currentTimeMillis() - started);
+                    if (!corrected.isEmpty()) {
+                        logger.info("Saved health was out of date for: {}", corrected);
+                    }
+                });
+    }
+
+    /**
+     * Checks whether players can be sent to a backend. Backends not yet probed count as online.
+     *
+     * @param server The backend
+     * @return false only if the backend is confirmed down
+     */
+    public boolean isOnline(RegisteredServer server) {
+        return isOnline(server.getServerInfo().getName());
+    }
+
+    /**
+     * Checks whether players can be sent to a backend. Backends not yet probed count as online.
+     *
+     * @param serverName The backend name
+     * @return false only if the backend is confirmed down
+     */
+    public boolean isOnline(String serverName) {
+        return states.current().isOnline(serverName);
+    }
+
+    /**
+     * Checks whether new players should be routed to a backend: it is UP, or not yet probed
+     *
+     * @param server The backend
+     * @return false if the backend is suspect or down
+     */
+    public boolean isRoutable(RegisteredServer server) {
+        return states.current().isRoutable(server);
+    }
+
+    /**
+     * Gets the latest consistent view of every backend's health, for reading many backends at once
+     *
+     * @return The current view
+     */
+    public ServerStateRegistry.View getStates() {
+        return states.current();
+    }
+
+    /**
+     * Gets the registry the health views are published to
+     *
+     * @return The registry
+     */
+    public ServerStateRegistry getStateRegistry() {
+        return states;
+    }
+
+    /**
+     * Gets the health of a backend
+     *
+     * @param serverName The backend name
+     * @return Its health, or empty if it has never been seen
+     */
+    public Optional<BackendHealth> getHealth(String serverName) {
+        return Optional.ofNullable(backends.get(serverName));
+    }
+
+    /**
+     * Gets the health of every backend seen so far
+     *
+     * @return Health keyed by server name
+     */
+    public Map<String, BackendHealth> getAllHealth() {
+        return Collections.unmodifiableMap(backends);
+    }
+
+    private BackendHealth getOrCreate(String serverName) {
+        return backends.computeIfAbsent(serverName, BackendHealth::new);
+    }
+}
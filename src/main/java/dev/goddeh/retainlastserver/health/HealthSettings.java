@@ -0,0 +1,66 @@
+package dev.goddeh.retainlastserver.health;
+
+import dev.goddeh.retainlastserver.config.MainConfig;
+
+/**
+ * Health check settings read from the main config at one point in time
+ */
+public final class HealthSettings {
+
+    final int successThreshold;
+    final int failureThreshold;
+    final long intervalMillis;
+    final long suspectIntervalMillis;
+    final long maxBackoffMillis;
+    final long probeTimeoutMillis;
+    final int probeStatusEvery;
+    final double flapPenalty;
+    final double suppressThreshold;
+    final double reuseThreshold;
+    final long halfLifeMillis;
+    final boolean hedge;
+    final double hedgePercentile;
+    final long hedgeMinDelayMillis;
+    private final MainConfig.Snapshot config;
+
+    private HealthSettings(MainConfig.Snapshot config) {
+        this.config = config;
+        this.successThreshold = config.getHealthSuccessThreshold();
+        this.failureThreshold = config.getHealthFailureThreshold();
+        this.intervalMillis = Math.max(1, config.getServerCheckIntervalSeconds()) * 1000L;
+        this.suspectIntervalMillis = config.getHealthSuspectIntervalMillis();
+        this.maxBackoffMillis = Math.max(config.getHealthMaxBackoffSeconds() * 1000L, intervalMillis);
+        this.probeTimeoutMillis = config.getHealthProbeTimeoutMillis();
+        this.probeStatusEvery = config.getProbeStatusEvery();
+        this.flapPenalty = config.getFlapPenalty();
+        this.suppressThreshold = config.getFlapSuppressThreshold();
+        this.reuseThreshold = config.getFlapReuseThreshold();
+        this.halfLifeMillis = config.getFlapHalfLifeSeconds() * 1000L;
+        this.hedge = config.isHedgeEnabled();
+        this.hedgePercentile = config.getHedgePercentile();
+        this.hedgeMinDelayMillis = config.getHedgeMinDelayMillis();
+    }
+
+    /**
+     * Takes the health settings from one reading of the main config, so they always come from
+     * the same validated snapshot
+     *
+     * @param config The settings in use
+     * @return The settings
+     */
+    public static HealthSettings from(MainConfig.Snapshot config) {
+        return new HealthSettings(config);
+    }
+
+    /**
+     * @param serverName The server name
+     * @return The probe strategy for the server
+     */
+    String probeStrategy(String serverName) {
+        return config.getProbeStrategy(serverName);
+    }
+
+    public long getProbeTimeoutMillis() {
+        return probeTimeoutMillis;
+    }
+}
@@ -0,0 +1,122 @@
+package dev.goddeh.retainlastserver.health;
+
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import org.slf4j.Logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Saves backend health and the last ping data to disk at shutdown, so the next start can route
+ * players straight away on what was known instead of waiting for the first probes
+ */
+public class HealthSnapshotStore {
+
+    private final Path snapshotFile;
+    private final Logger logger;
+
+    public HealthSnapshotStore(Path dataDirectory, Logger logger) {
+        this.snapshotFile = dataDirectory.resolve("health.conf");
+        this.logger = logger;
+    }
+
+    /**
+     * Writes the health of every backend seen so far
+     *
+     * @param healthMonitor The health monitor
+     * @param loadTracker The load tracker holding the last ping data
+     */
+    public void save(HealthMonitor healthMonitor, BackendLoadTracker loadTracker) {
+        try {
+            ConfigurationLoader<CommentedConfigurationNode> loader = loader();
+            CommentedConfigurationNode rootNode = loader.createEmptyNode();
+            rootNode.setComment("Backend health saved when the proxy stopped, loaded when it starts. Safe to delete.");
+            rootNode.getNode("saved_at").setValue(System.currentTimeMillis());
+
+            int saved = 0;
+            for (BackendHealth health : healthMonitor.getAllHealth().values()) {
+                if (!health.isKnown()) {
+                    // Nothing was confirmed about it in this run
+                    continue;
+                }
+                ConfigurationNode node = rootNode.getNode("servers", health.getServerName());
+                node.getNode("state").setValue(health.getState().name());
+                node.getNode("last_change").setValue(health.getLastChange());
+                node.getNode("penalty").setValue(health.getPenalty());
+                node.getNode("damped").setValue(health.isDamped());
+
+                BackendLoadTracker.Load load = loadTracker.getLoad(health.getServerName());
+                node.getNode("online").setValue(load.getOnline());
+                node.getNode("max_players").setValue(load.getMaxPlayers());
+                node.getNode("latency_millis").setValue(load.getLatencyMillis());
+                saved++;
+            }
+
+            loader.save(rootNode);
+            logger.info("Saved health of {} servers", saved);
+        } catch (Exception e) {
+            logger.error("Failed to save server health snapshot", e);
+        }
+    }
+
+    /**
+     * Loads the saved snapshot as the provisional state of each backend still registered
+     *
+     * @param healthMonitor The health monitor to seed
+     * @param loadTracker The load tracker to seed with ping data
+     * @param maxAgeMillis Snapshots older than this are ignored
+     * @return How many backends were restored
+     */
+    public int restore(HealthMonitor healthMonitor, BackendLoadTracker loadTracker, long maxAgeMillis) {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+
+        try {
+            CommentedConfigurationNode rootNode = loader().load();
+            long savedAt = rootNode.getNode("saved_at").getLong(0);
+            long age = System.currentTimeMillis() - savedAt;
+            if (savedAt == 0 || age > maxAgeMillis) {
+                logger.info("Server health snapshot is {}s old, ignoring it", age / 1000);
+                return 0;
+            }
+
+            int restored = 0;
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : rootNode.getNode("servers").getChildrenMap().entrySet()) {
+                String serverName = String.valueOf(entry.getKey());
+                ConfigurationNode node = entry.getValue();
+
+                BackendHealth.State state;
+                try {
+                    state = BackendHealth.State.valueOf(node.getNode("state").getString(""));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (!healthMonitor.restore(serverName, state, node.getNode("penalty").getDouble(0),
+                        node.getNode("damped").getBoolean(false), node.getNode("last_change").getLong(savedAt), savedAt)) {
+                    continue;
+                }
+                loadTracker.restorePing(serverName,
+                        node.getNode("online").getInt(0),
+                        node.getNode("max_players").getInt(0),
+                        node.getNode("latency_millis").getLong(-1));
+                restored++;
+            }
+            return restored;
+        } catch (Exception e) {
+            logger.error("Failed to load server health snapshot, starting without it", e);
+            return 0;
+        }
+    }
+
+    private ConfigurationLoader<CommentedConfigurationNode> loader() {
+        return HoconConfigurationLoader.builder()
+                .setPath(snapshotFile)
+                .build();
+    }
+}
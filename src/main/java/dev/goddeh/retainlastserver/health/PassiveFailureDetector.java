@@ -0,0 +1,72 @@
+package dev.goddeh.retainlastserver.health;
+
+import com.velocitypowered.api.event.player.KickedFromServerEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reads backend health out of player traffic. Failed connections and kicks that point at the
+ * server itself count as failed probes, and players connecting count as successful ones, so a
+ * dead backend is noticed as soon as players hit it instead of at its next scheduled probe.
+ */
+public class PassiveFailureDetector {
+
+    private final MainConfig mainConfig;
+    private final HealthMonitor healthMonitor;
+
+    public PassiveFailureDetector(MainConfig mainConfig, HealthMonitor healthMonitor) {
+        this.mainConfig = mainConfig;
+        this.healthMonitor = healthMonitor;
+    }
+
+    /**
+     * Looks at a kick for signs of a failing backend
+     *
+     * @param event The kick
+     */
+    public void onKicked(KickedFromServerEvent event) {
+        MainConfig.Snapshot config = mainConfig.snapshot();
+        if (!config.isPassiveDetection() || event.getServer() == null) {
+            return;
+        }
+
+        Optional<Component> reason = event.getServerKickReason();
+        if (reason.isEmpty()) {
+            // Velocity only leaves the reason empty when the backend could not be reached at all
+            if (event.kickedDuringServerConnect()) {
+                healthMonitor.reportFailure(event.getServer(), "connection failed");
+            }
+            return;
+        }
+
+        String text = plainText(reason.get());
+        for (String pattern : config.getPassiveKickReasons()) {
+            if (text.contains(pattern.toLowerCase(Locale.ROOT))) {
+                healthMonitor.reportFailure(event.getServer(), "kicked: " + text);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts a player connecting as proof the backend is up
+     *
+     * @param event The connection
+     */
+    public void onConnected(ServerConnectedEvent event) {
+        if (mainConfig.isPassiveDetection()) {
+            healthMonitor.reportSuccess(event.getServer());
+        }
+    }
+
+    private static String plainText(Component component) {
+        return LegacyComponentSerializer.legacySection().serialize(component)
+                .replaceAll("§.", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
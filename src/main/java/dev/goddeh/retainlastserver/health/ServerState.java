@@ -0,0 +1,90 @@
+package dev.goddeh.retainlastserver.health;
+
+import java.util.Objects;
+
+/**
+ * An immutable copy of a backend's health at one point in time
+ */
+public final class ServerState {
+
+    private final String serverName;
+    private final BackendHealth.State state;
+    private final boolean confirmed;
+    private final boolean damped;
+    private final long lastChange;
+
+    public ServerState(String serverName, BackendHealth.State state, boolean confirmed, boolean damped, long lastChange) {
+        this.serverName = serverName;
+        this.state = state;
+        this.confirmed = confirmed;
+        this.damped = damped;
+        this.lastChange = lastChange;
+    }
+
+    /**
+     * Copies the current state of a backend
+     *
+     * @param health The backend's health
+     * @return The copy
+     */
+    static ServerState of(BackendHealth health) {
+        return new ServerState(health.getServerName(), health.getState(), health.isKnown(), health.isDamped(),
+                health.getLastChange());
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public BackendHealth.State getState() {
+        return state;
+    }
+
+    /**
+     * Whether a probe in this run has confirmed the state, rather than it being restored or assumed
+     */
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+
+    public boolean isDamped() {
+        return damped;
+    }
+
+    public long getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Whether players can be sent to the backend. SUSPECT backends still count as online.
+     */
+    public boolean isOnline() {
+        return state != BackendHealth.State.DOWN;
+    }
+
+    /**
+     * Whether new players should be routed to the backend
+     */
+    public boolean isRoutable() {
+        return state == BackendHealth.State.UP;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ServerState)) return false;
+        ServerState that = (ServerState) o;
+        return confirmed == that.confirmed && damped == that.damped && lastChange == that.lastChange
+                && serverName.equals(that.serverName) && state == that.state;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serverName, state, confirmed, damped, lastChange);
+    }
+
+    @Override
+    public String toString() {
+        return serverName + "=" + state + (confirmed ? "" : "?") + (damped ? " (damped)" : "");
+    }
+}
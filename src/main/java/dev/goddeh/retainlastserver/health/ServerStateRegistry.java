@@ -0,0 +1,145 @@
+package dev.goddeh.retainlastserver.health;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the health of every backend as an immutable, name-keyed view. Each change publishes a
+ * new view with the next generation number through one atomic swap, so readers on any thread
+ * get a consistent view without locking and can tell whether anything changed since they last
+ * looked by comparing generations.
+ */
+public class ServerStateRegistry {
+
+    private final AtomicReference<View> current = new AtomicReference<>(new View(0, Collections.emptyMap()));
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Called after a backend's state has been published
+     */
+    public interface ChangeListener {
+        /**
+         * @param previous The backend's state in the view before, or null if it was not in it
+         * @param current Its state now
+         * @param generation The generation of the view it was published in
+         */
+        void onChange(ServerState previous, ServerState current, long generation);
+    }
+
+    /**
+     * Adds a listener for published changes. Listeners are called on the publishing thread and
+     * must return quickly.
+     *
+     * @param listener The listener
+     */
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the latest view
+     *
+     * @return The view, never null
+     */
+    public View current() {
+        return current.get();
+    }
+
+    /**
+     * Publishes the state of one backend
+     *
+     * @param state The backend's new state
+     * @return The view now current. Unchanged if the state was already published.
+     */
+    public View update(ServerState state) {
+        while (true) {
+            View view = current.get();
+            ServerState previous = view.servers.get(state.getServerName());
+            if (state.equals(previous)) {
+                return view;
+            }
+            Map<String, ServerState> servers = new HashMap<>(view.servers);
+            servers.put(state.getServerName(), state);
+            View next = new View(view.generation + 1, Collections.unmodifiableMap(servers));
+            if (current.compareAndSet(view, next)) {
+                for (ChangeListener listener : listeners) {
+                    listener.onChange(previous, state, next.generation);
+                }
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Checks whether anything changed after a given generation
+     *
+     * @param generation A generation read earlier
+     * @return true if a newer view has been published
+     */
+    public boolean changedSince(long generation) {
+        return current.get().generation != generation;
+    }
+
+    /**
+     * The health of every backend at one generation. Never changes once published.
+     */
+    public static final class View {
+        private final long generation;
+        private final Map<String, ServerState> servers;
+
+        private View(long generation, Map<String, ServerState> servers) {
+            this.generation = generation;
+            this.servers = servers;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Gets every backend's state
+         *
+         * @return States keyed by server name
+         */
+        public Map<String, ServerState> getServers() {
+            return servers;
+        }
+
+        public Optional<ServerState> get(String serverName) {
+            return Optional.ofNullable(servers.get(serverName));
+        }
+
+        /**
+         * Checks whether players can be sent to a backend. Backends not seen yet count as online.
+         *
+         * @param serverName The backend name
+         * @return false only if the backend is down
+         */
+        public boolean isOnline(String serverName) {
+            ServerState state = servers.get(serverName);
+            return state == null || state.isOnline();
+        }
+
+        /**
+         * Checks whether new players should be routed to a backend. Backends not seen yet count as routable.
+         *
+         * @param serverName The backend name
+         * @return false if the backend is suspect or down
+         */
+        public boolean isRoutable(String serverName) {
+            ServerState state = servers.get(serverName);
+            return state == null || state.isRoutable();
+        }
+
+        public boolean isRoutable(RegisteredServer server) {
+            return isRoutable(server.getServerInfo().getName());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A way of checking whether a backend is alive
+ */
+public interface BackendProbe {
+
+    /**
+     * Probes a backend without blocking
+     *
+     * @param server The backend
+     * @param timeoutMillis How long to wait for an answer
+     * @return The result, completed normally even when the probe fails or times out
+     */
+    CompletableFuture<ProbeResult> probe(RegisteredServer server, long timeoutMillis);
+}
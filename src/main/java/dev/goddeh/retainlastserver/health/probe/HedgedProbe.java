@@ -0,0 +1,149 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs another probe with hedging. If the first attempt has not answered by the time most
+ * answers from this backend usually arrive, or fails outright, one more attempt is sent and
+ * whichever succeeds first wins. The whole probe has one deadline, and the attempt that loses
+ * is cancelled.
+ */
+public class HedgedProbe implements BackendProbe {
+
+    // Recent answers needed before the percentile is trusted
+    private static final int MIN_SAMPLES = 8;
+
+    private final BackendProbe delegate;
+    private final ProbeKind kind;
+    private final ProbeStats stats;
+    private final double percentile;
+    private final long minDelayMillis;
+
+    /**
+     * @param delegate The probe to run
+     * @param kind The kind of probe the delegate runs
+     * @param stats Statistics of that kind of probe for the backend, used to time the hedge
+     * @param percentile Recent latency percentile after which the hedge is sent
+     * @param minDelayMillis Never hedge sooner than this
+     */
+    public HedgedProbe(BackendProbe delegate, ProbeKind kind, ProbeStats stats, double percentile, long minDelayMillis) {
+        this.delegate = delegate;
+        this.kind = kind;
+        this.stats = stats;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+    }
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(RegisteredServer server, long timeoutMillis) {
+        Race race = new Race(server, timeoutMillis);
+        race.start(hedgeDelay(timeoutMillis));
+        return race.result;
+    }
+
+    /**
+     * Works out how long to wait for the first attempt before hedging
+     *
+     * @param timeoutMillis The probe deadline
+     * @return The delay in milliseconds
+     */
+    long hedgeDelay(long timeoutMillis) {
+        double usual = stats.getPercentileMillis(percentile, MIN_SAMPLES);
+        // Without history, give the first attempt a third of the deadline
+        long delay = usual < 0 ? timeoutMillis / 3 : (long) Math.ceil(usual);
+        // Leave the hedge at least as long as the minimum to answer
+        return Math.max(minDelayMillis, Math.min(delay, timeoutMillis - minDelayMillis));
+    }
+
+    private final class Race {
+        private final RegisteredServer server;
+        private final long start = System.nanoTime();
+        private final long deadline;
+        private final CompletableFuture<ProbeResult> result = new CompletableFuture<>();
+        private CompletableFuture<ProbeResult> primary;
+        private CompletableFuture<ProbeResult> hedge;
+        private boolean hedgeSent;
+        private int outstanding;
+        private ProbeResult lastFailure;
+
+        private Race(RegisteredServer server, long timeoutMillis) {
+            this.server = server;
+            this.deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+            CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.complete(ProbeResult.failure(kind, start))) {
+                    stats.recordDeadlineMiss();
+                }
+            });
+            // Whatever decided the race, nothing still running is needed
+            result.whenComplete((ignored, throwable) -> cancelAll());
+        }
+
+        private void start(long hedgeDelayMillis) {
+            synchronized (this) {
+                primary = launch(false);
+            }
+            CompletableFuture.delayedExecutor(hedgeDelayMillis, TimeUnit.MILLISECONDS).execute(this::sendHedge);
+        }
+
+        private CompletableFuture<ProbeResult> launch(boolean isHedge) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            outstanding++;
+            CompletableFuture<ProbeResult> attempt = delegate.probe(server, Math.max(1, remaining));
+            attempt.whenComplete((answer, throwable) -> onAnswer(answer, isHedge));
+            return attempt;
+        }
+
+        private synchronized void onAnswer(ProbeResult answer, boolean isHedge) {
+            outstanding--;
+            if (result.isDone()) {
+                return;
+            }
+
+            if (answer != null && answer.isSuccess()) {
+                if (isHedge) {
+                    stats.recordHedgeWin();
+                }
+                result.complete(answer);
+                return;
+            }
+
+            if (answer != null) {
+                lastFailure = answer;
+            }
+            if (!hedgeSent) {
+                // A fast failure is worth one more try within the deadline
+                sendHedge();
+            } else if (outstanding == 0) {
+                result.complete(lastFailure != null ? lastFailure : ProbeResult.failure(kind, start));
+            }
+        }
+
+        private synchronized void sendHedge() {
+            if (result.isDone() || hedgeSent) {
+                return;
+            }
+            hedgeSent = true;
+            if (deadline - System.nanoTime() <= TimeUnit.MILLISECONDS.toNanos(1)) {
+                if (outstanding == 0) {
+                    result.complete(lastFailure != null ? lastFailure : ProbeResult.failure(kind, start));
+                }
+                return;
+            }
+            stats.recordHedge();
+            hedge = launch(true);
+        }
+
+        private synchronized void cancelAll() {
+            if (primary != null) {
+                primary.cancel(true);
+            }
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+/**
+ * The kinds of probe a backend can be checked with
+ */
+public enum ProbeKind {
+    /** Opens a TCP connection and closes it again */
+    TCP,
+    /** A full Minecraft status ping, which also reports player counts */
+    STATUS
+}
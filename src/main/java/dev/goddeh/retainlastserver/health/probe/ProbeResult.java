@@ -0,0 +1,65 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+/**
+ * The outcome of one probe
+ */
+public final class ProbeResult {
+
+    private final ProbeKind kind;
+    private final boolean success;
+    private final long latencyNanos;
+    private final ServerPing ping;
+
+    private ProbeResult(ProbeKind kind, boolean success, long latencyNanos, ServerPing ping) {
+        this.kind = kind;
+        this.success = success;
+        this.latencyNanos = latencyNanos;
+        this.ping = ping;
+    }
+
+    /**
+     * A probe that was answered
+     *
+     * @param kind The kind of probe
+     * @param startNanos When the probe was sent, from {@link System#nanoTime()}
+     * @param ping The status ping answer, or null for probes that do not carry one
+     * @return The result
+     */
+    public static ProbeResult success(ProbeKind kind, long startNanos, ServerPing ping) {
+        return new ProbeResult(kind, true, System.nanoTime() - startNanos, ping);
+    }
+
+    /**
+     * A probe that failed or timed out
+     *
+     * @param kind The kind of probe
+     * @param startNanos When the probe was sent, from {@link System#nanoTime()}
+     * @return The result
+     */
+    public static ProbeResult failure(ProbeKind kind, long startNanos) {
+        return new ProbeResult(kind, false, System.nanoTime() - startNanos, null);
+    }
+
+    public ProbeKind getKind() {
+        return kind;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Gets the status ping answer
+     *
+     * @return The answer, or null if the probe failed or was not a status ping
+     */
+    public ServerPing getPing() {
+        return ping;
+    }
+}
@@ -0,0 +1,132 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running latency statistics for one kind of probe against one backend
+ */
+public class ProbeStats {
+
+    // Weight of a new sample in the moving average
+    private static final double ALPHA = 0.2;
+    // Recent successful latencies kept for percentiles
+    private static final int WINDOW = 64;
+
+    private final double[] window = new double[WINDOW];
+    private int windowSize;
+    private int windowNext;
+
+    private long probes;
+    private long failures;
+    private double averageMillis = -1;
+    private double lastMillis = -1;
+    private double maxMillis;
+    private long hedges;
+    private long hedgeWins;
+    private long deadlineMisses;
+
+    /**
+     * Adds the result of a probe
+     *
+     * @param result The probe result
+     */
+    public synchronized void record(ProbeResult result) {
+        probes++;
+        if (!result.isSuccess()) {
+            // Failed probes mostly measure the timeout, keep them out of the latency figures
+            failures++;
+            return;
+        }
+
+        double millis = result.getLatencyNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        lastMillis = millis;
+        averageMillis = averageMillis < 0 ? millis : averageMillis + ALPHA * (millis - averageMillis);
+        maxMillis = Math.max(maxMillis, millis);
+        window[windowNext] = millis;
+        windowNext = (windowNext + 1) % WINDOW;
+        windowSize = Math.min(windowSize + 1, WINDOW);
+    }
+
+    /**
+     * Counts a hedged probe sent because the first one was slow or failed
+     */
+    public synchronized void recordHedge() {
+        hedges++;
+    }
+
+    /**
+     * Counts a hedge that answered before the probe it hedged
+     */
+    public synchronized void recordHedgeWin() {
+        hedgeWins++;
+    }
+
+    /**
+     * Counts a probe that ran out of time before any attempt answered
+     */
+    public synchronized void recordDeadlineMiss() {
+        deadlineMisses++;
+    }
+
+    /**
+     * Gets a percentile of recent successful latencies
+     *
+     * @param percentile The percentile, 0 to 100
+     * @param minSamples How many samples are needed for a meaningful answer
+     * @return The latency in milliseconds, or -1 if there are fewer than minSamples samples
+     */
+    public synchronized double getPercentileMillis(double percentile, int minSamples) {
+        if (windowSize == 0 || windowSize < minSamples) {
+            return -1;
+        }
+        double[] sorted = Arrays.copyOf(window, windowSize);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * windowSize) - 1;
+        return sorted[Math.max(0, Math.min(windowSize - 1, index))];
+    }
+
+    public synchronized long getProbes() {
+        return probes;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Smoothed latency of successful probes, or -1 if none has succeeded
+     */
+    public synchronized double getAverageMillis() {
+        return averageMillis;
+    }
+
+    /**
+     * Latency of the last successful probe, or -1 if none has succeeded
+     */
+    public synchronized double getLastMillis() {
+        return lastMillis;
+    }
+
+    public synchronized double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Extra probes sent as hedges, the overhead of hedging
+     */
+    public synchronized long getHedges() {
+        return hedges;
+    }
+
+    /**
+     * Hedges that answered before the probe they hedged
+     */
+    public synchronized long getHedgeWins() {
+        return hedgeWins;
+    }
+
+    public synchronized long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+}
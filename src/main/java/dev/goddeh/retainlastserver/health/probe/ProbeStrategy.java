@@ -0,0 +1,31 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import java.util.Locale;
+
+/**
+ * How a backend's health is probed
+ */
+public enum ProbeStrategy {
+    /** TCP connect only. Cheapest, but never refreshes player counts. */
+    TCP,
+    /** Status ping every time, the original behaviour */
+    STATUS,
+    /** TCP connect decides health, a status ping now and then refreshes player counts */
+    COMBINED;
+
+    /**
+     * Parses a strategy name from the config
+     *
+     * @param name The configured name
+     * @return The strategy, or STATUS if the name is unknown
+     */
+    public static ProbeStrategy fromConfig(String name) {
+        if (name != null) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return STATUS;
+    }
+}
@@ -0,0 +1,32 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes a backend with a full Minecraft status ping through Velocity
+ */
+public class StatusPingProbe implements BackendProbe {
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(RegisteredServer server, long timeoutMillis) {
+        long start = System.nanoTime();
+        CompletableFuture<ServerPing> ping = server.ping();
+        CompletableFuture<ProbeResult> result = ping
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((answer, throwable) -> throwable == null && answer != null
+                        ? ProbeResult.success(ProbeKind.STATUS, start, answer)
+                        : ProbeResult.failure(ProbeKind.STATUS, start));
+        // Pass cancellation on to the ping itself
+        result.whenComplete((ignored, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                ping.cancel(true);
+            }
+        });
+        return result;
+    }
+}
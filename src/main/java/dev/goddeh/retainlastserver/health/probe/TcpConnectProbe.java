@@ -0,0 +1,105 @@
+package dev.goddeh.retainlastserver.health.probe;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes a backend by opening a non-blocking TCP connection to it and closing it as soon as it
+ * is accepted. This proves the process is up and accepting connections without asking a busy
+ * server to build a status response.
+ */
+public class TcpConnectProbe implements BackendProbe {
+
+    // How long a resolved backend address is reused before looking it up again
+    private static final long RESOLVE_TTL_MILLIS = 60_000;
+
+    private final Map<String, Resolved> resolved = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<ProbeResult> probe(RegisteredServer server, long timeoutMillis) {
+        long start = System.nanoTime();
+        CompletableFuture<ProbeResult> result = new CompletableFuture<>();
+
+        resolve(server.getServerInfo().getAddress()).whenComplete((address, resolveError) -> {
+            if (resolveError != null) {
+                result.complete(ProbeResult.failure(ProbeKind.TCP, start));
+                return;
+            }
+
+            AsynchronousSocketChannel channel;
+            try {
+                channel = AsynchronousSocketChannel.open();
+            } catch (IOException e) {
+                result.complete(ProbeResult.failure(ProbeKind.TCP, start));
+                return;
+            }
+            // Close the socket however the probe ends, including on timeout
+            result.whenComplete((ignored, throwable) -> closeQuietly(channel));
+
+            try {
+                channel.connect(address, null, new CompletionHandler<Void, Void>() {
+                    @Override
+                    public void completed(Void unused, Void attachment) {
+                        result.complete(ProbeResult.success(ProbeKind.TCP, start, null));
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable, Void attachment) {
+                        result.complete(ProbeResult.failure(ProbeKind.TCP, start));
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.complete(ProbeResult.failure(ProbeKind.TCP, start));
+            }
+        });
+
+        return result.completeOnTimeout(ProbeResult.failure(ProbeKind.TCP, start), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<InetSocketAddress> resolve(InetSocketAddress address) {
+        if (!address.isUnresolved()) {
+            return CompletableFuture.completedFuture(address);
+        }
+
+        String key = address.getHostString() + ":" + address.getPort();
+        Resolved cached = resolved.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached.address);
+        }
+
+        // Name lookups block, keep them off the caller's thread
+        return CompletableFuture.supplyAsync(() -> {
+            InetSocketAddress lookedUp = new InetSocketAddress(address.getHostString(), address.getPort());
+            if (lookedUp.isUnresolved()) {
+                throw new IllegalStateException("Cannot resolve " + key);
+            }
+            resolved.put(key, new Resolved(lookedUp, System.currentTimeMillis() + RESOLVE_TTL_MILLIS));
+            return lookedUp;
+        });
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Resolved {
+        private final InetSocketAddress address;
+        private final long expiresAt;
+
+        private Resolved(InetSocketAddress address, long expiresAt) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest player counts and latency reported by each backend's status ping, together
+ * with what this proxy knows better than the ping: players it has on each backend and players it
+ * has sent there who have not arrived yet
+ */
+public class BackendLoadTracker {
+
+    // Players sent to a backend who never arrived are forgotten after this long
+    private static final long IN_FLIGHT_EXPIRY_MILLIS = 30_000;
+    // Weight of a new latency sample in the moving average
+    private static final double LATENCY_ALPHA = 0.3;
+
+    private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+    private final Map<UUID, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<UUID, String> locations = new ConcurrentHashMap<>();
+    private final AtomicLong pingVersion = new AtomicLong();
+
+    /**
+     * Records the answer to a status ping
+     *
+     * @param serverName The backend that answered
+     * @param ping The answer
+     * @param latencyMillis Time the answer took
+     */
+    public void recordPing(String serverName, ServerPing ping, long latencyMillis) {
+        Backend backend = backend(serverName);
+        ping.getPlayers().ifPresent(players -> {
+            if (backend.pingOnline != players.getOnline() || backend.maxPlayers != players.getMax()) {
+                pingVersion.incrementAndGet();
+            }
+            backend.pingOnline = players.getOnline();
+            backend.maxPlayers = players.getMax();
+        });
+        backend.latencyMillis = backend.lastPing == 0
+                ? latencyMillis
+                : backend.latencyMillis + LATENCY_ALPHA * (latencyMillis - backend.latencyMillis);
+        backend.lastPing = System.currentTimeMillis();
+    }
+
+    /**
+     * Seeds a backend with ping data saved by a previous run. Ignored once the backend has
+     * answered a ping in this run.
+     *
+     * @param serverName The backend
+     * @param online Players it last reported online
+     * @param maxPlayers Player limit it last reported
+     * @param latencyMillis Its last smoothed ping latency, or -1 if unknown
+     */
+    public void restorePing(String serverName, int online, int maxPlayers, long latencyMillis) {
+        Backend backend = backend(serverName);
+        if (backend.lastPing != 0) {
+            return;
+        }
+        backend.pingOnline = online;
+        backend.maxPlayers = maxPlayers;
+        pingVersion.incrementAndGet();
+        if (latencyMillis >= 0) {
+            backend.latencyMillis = latencyMillis;
+        }
+    }
+
+    /**
+     * Records that a player has been sent to a backend but has not connected yet
+     *
+     * @param uuid Player UUID
+     * @param serverName The backend
+     */
+    public void markSent(UUID uuid, String serverName) {
+        Backend backend = backend(serverName);
+        backend.pending.incrementAndGet();
+        InFlight previous = inFlight.put(uuid, new InFlight(backend, System.currentTimeMillis()));
+        if (previous != null) {
+            previous.backend.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records that a player finished connecting to a backend
+     *
+     * @param uuid Player UUID
+     * @param serverName The backend they are now on
+     */
+    public void connected(UUID uuid, String serverName) {
+        clearInFlight(uuid);
+        Backend backend = backend(serverName);
+        backend.local.incrementAndGet();
+        String previous = locations.put(uuid, serverName);
+        if (previous != null) {
+            backend(previous).local.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records that a connection attempt did not go through
+     *
+     * @param uuid Player UUID
+     */
+    public void connectionFailed(UUID uuid) {
+        clearInFlight(uuid);
+    }
+
+    /**
+     * Records that a player left the proxy
+     *
+     * @param uuid Player UUID
+     */
+    public void disconnected(UUID uuid) {
+        clearInFlight(uuid);
+        String previous = locations.remove(uuid);
+        if (previous != null) {
+            backend(previous).local.decrementAndGet();
+        }
+    }
+
+    /**
+     * Forgets players who were sent somewhere long ago and never arrived
+     */
+    public void expireStale() {
+        long cutoff = System.currentTimeMillis() - IN_FLIGHT_EXPIRY_MILLIS;
+        for (Map.Entry<UUID, InFlight> entry : inFlight.entrySet()) {
+            InFlight sent = entry.getValue();
+            // Only whoever removes the entry counts it, the player may arrive at the same time
+            if (sent.sentAt < cutoff && inFlight.remove(entry.getKey(), sent)) {
+                sent.backend.pending.decrementAndGet();
+            }
+        }
+    }
+
+    private void clearInFlight(UUID uuid) {
+        InFlight previous = inFlight.remove(uuid);
+        if (previous != null) {
+            previous.backend.pending.decrementAndGet();
+        }
+    }
+
+    private Backend backend(String serverName) {
+        return backends.computeIfAbsent(serverName, name -> new Backend());
+    }
+
+    /**
+     * Gets a number that changes whenever a backend reports different player counts in a ping
+     *
+     * @return The version
+     */
+    public long getPingVersion() {
+        return pingVersion.get();
+    }
+
+    /**
+     * Gets the player counts a backend last reported in a status ping
+     *
+     * @param serverName The backend
+     * @return The online count, or 0 if it has never answered a status ping
+     */
+    public int getPingOnline(String serverName) {
+        Backend backend = backends.get(serverName);
+        return backend == null ? 0 : backend.pingOnline;
+    }
+
+    /**
+     * Gets the current load of a backend
+     *
+     * @param serverName The backend
+     * @return Its load, with zero counts if it has never been seen
+     */
+    public Load getLoad(String serverName) {
+        Backend backend = backends.get(serverName);
+        if (backend == null) {
+            return new Load(0, 0, 0, -1);
+        }
+        int online = Math.max(backend.pingOnline, backend.local.get());
+        return new Load(online, backend.maxPlayers, Math.max(0, backend.pending.get()),
+                backend.lastPing == 0 ? -1 : (long) backend.latencyMillis);
+    }
+
+    private static final class Backend {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger local = new AtomicInteger();
+        private volatile int pingOnline;
+        private volatile int maxPlayers;
+        private volatile double latencyMillis;
+        private volatile long lastPing;
+    }
+
+    private static final class InFlight {
+        private final Backend backend;
+        private final long sentAt;
+
+        private InFlight(Backend backend, long sentAt) {
+            this.backend = backend;
+            this.sentAt = sentAt;
+        }
+    }
+
+    /**
+     * Point-in-time load of one backend
+     */
+    public static final class Load {
+        private final int online;
+        private final int maxPlayers;
+        private final int pending;
+        private final long latencyMillis;
+
+        Load(int online, int maxPlayers, int pending, long latencyMillis) {
+            this.online = online;
+            this.maxPlayers = maxPlayers;
+            this.pending = pending;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /**
+         * Players on the backend plus players on their way there
+         */
+        public int getExpectedPlayers() {
+            return online + pending;
+        }
+
+        /**
+         * Expected players as a fraction of the slots, or the raw count when slots are unknown
+         */
+        public double getUtilisation() {
+            return maxPlayers > 0 ? (double) getExpectedPlayers() / maxPlayers : getExpectedPlayers();
+        }
+
+        public boolean isFull() {
+            return maxPlayers > 0 && getExpectedPlayers() >= maxPlayers;
+        }
+
+        public int getOnline() {
+            return online;
+        }
+
+        public int getMaxPlayers() {
+            return maxPlayers;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * Smoothed ping latency, or -1 if the backend has never answered
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Picks the fallback server for players who have nowhere better to go, spreading them by the
+ * load each backend last reported instead of sending everyone to the first server that is up
+ */
+public class FallbackBalancer {
+
+    /**
+     * How a fallback server is chosen among the online servers that still have room
+     */
+    public enum Strategy {
+        /** The first server in registration order, as before load balancing existed */
+        FIRST,
+        /** The server with the lowest expected utilisation */
+        LEAST_LOADED,
+        /** The less loaded of two servers picked at random, which avoids herding on stale counts */
+        POWER_OF_TWO,
+        /** A random server weighted by free room and ping latency */
+        LATENCY_WEIGHTED;
+
+        /**
+         * Parses a strategy name from the config
+         *
+         * @param name The configured name
+         * @return The strategy, or LEAST_LOADED if the name is unknown
+         */
+        public static Strategy fromConfig(String name) {
+            if (name != null) {
+                try {
+                    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            return LEAST_LOADED;
+        }
+    }
+
+    // Latency assumed for backends that have never answered a ping
+    private static final long UNKNOWN_LATENCY_MILLIS = 50;
+
+    private final BackendLoadTracker loadTracker;
+    private final MainConfig mainConfig;
+
+    public FallbackBalancer(BackendLoadTracker loadTracker, MainConfig mainConfig) {
+        this.loadTracker = loadTracker;
+        this.mainConfig = mainConfig;
+    }
+
+    /**
+     * Picks a fallback server from the candidates using the configured strategy
+     *
+     * @param candidates Servers the player may be sent to, in registration order
+     * @param isOnline Tells whether a server is currently online
+     * @return The chosen server, or empty if no online server has room
+     */
+    public Optional<RegisteredServer> select(List<RegisteredServer> candidates, Predicate<RegisteredServer> isOnline) {
+        return select(candidates, isOnline, Strategy.fromConfig(mainConfig.getFallbackStrategy()));
+    }
+
+    /**
+     * Picks a server from the candidates using the given strategy
+     *
+     * @param candidates Servers the player may be sent to, in registration order
+     * @param isOnline Tells whether a server is currently online
+     * @param strategy How to choose among the servers with room
+     * @return The chosen server, or empty if no online server has room
+     */
+    public Optional<RegisteredServer> select(List<RegisteredServer> candidates, Predicate<RegisteredServer> isOnline,
+                                             Strategy strategy) {
+        List<RegisteredServer> available = new ArrayList<>(candidates.size());
+        List<BackendLoadTracker.Load> loads = new ArrayList<>(candidates.size());
+        for (RegisteredServer server : candidates) {
+            if (!isOnline.test(server)) {
+                continue;
+            }
+            BackendLoadTracker.Load load = loadTracker.getLoad(server.getServerInfo().getName());
+            if (!load.isFull()) {
+                available.add(server);
+                loads.add(load);
+            }
+        }
+        if (available.isEmpty()) {
+            return Optional.empty();
+        }
+
+        switch (strategy) {
+            case FIRST:
+                return Optional.of(available.get(0));
+            case POWER_OF_TWO:
+                return Optional.of(available.get(powerOfTwo(loads)));
+            case LATENCY_WEIGHTED:
+                return Optional.of(available.get(latencyWeighted(loads)));
+            case LEAST_LOADED:
+            default:
+                return Optional.of(available.get(leastLoaded(loads)));
+        }
+    }
+
+    private static int leastLoaded(List<BackendLoadTracker.Load> loads) {
+        int best = 0;
+        for (int i = 1; i < loads.size(); i++) {
+            if (loads.get(i).getUtilisation() < loads.get(best).getUtilisation()) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int powerOfTwo(List<BackendLoadTracker.Load> loads) {
+        if (loads.size() == 1) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(loads.size());
+        int second = random.nextInt(loads.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        return loads.get(second).getUtilisation() < loads.get(first).getUtilisation() ? second : first;
+    }
+
+    private static int latencyWeighted(List<BackendLoadTracker.Load> loads) {
+        double[] weights = new double[loads.size()];
+        double total = 0;
+        for (int i = 0; i < loads.size(); i++) {
+            BackendLoadTracker.Load load = loads.get(i);
+            // Free share of the slots, or an inverse of the player count when slots are unknown
+            double room = load.getMaxPlayers() > 0
+                    ? 1.0 - load.getUtilisation()
+                    : 1.0 / (1 + load.getExpectedPlayers());
+            long latency = load.getLatencyMillis() < 0 ? UNKNOWN_LATENCY_MILLIS : load.getLatencyMillis();
+            weights[i] = Math.max(room, 0.001) / Math.max(latency, 1);
+            total += weights[i];
+        }
+
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
@@ -0,0 +1,80 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Spreads players over the configured limbo servers, sending each one to the least busy limbo
+ * that is up so an outage does not land its whole population on a single instance
+ */
+public class LimboRouter {
+
+    private final ProxyServer proxy;
+    private final MainConfig mainConfig;
+    private final BackendLoadTracker loadTracker;
+    private final FallbackBalancer fallbackBalancer;
+
+    public LimboRouter(ProxyServer proxy, MainConfig mainConfig, BackendLoadTracker loadTracker,
+                       FallbackBalancer fallbackBalancer) {
+        this.proxy = proxy;
+        this.mainConfig = mainConfig;
+        this.loadTracker = loadTracker;
+        this.fallbackBalancer = fallbackBalancer;
+    }
+
+    /**
+     * Gets the registered limbo servers, in config order
+     *
+     * @param config The settings the caller is working from
+     * @return The limbo servers that exist on the proxy
+     */
+    private List<RegisteredServer> getLimboServers(MainConfig.Snapshot config) {
+        List<RegisteredServer> limbos = new ArrayList<>();
+        for (String name : config.getLimboServers()) {
+            proxy.getServer(name).ifPresent(limbos::add);
+        }
+        return limbos;
+    }
+
+    /**
+     * Checks whether a player is currently on any limbo server
+     *
+     * @param player The player
+     * @return true if they are in limbo
+     */
+    public boolean isInLimbo(Player player) {
+        return player.getCurrentServer()
+                .map(conn -> mainConfig.isLimboServer(conn.getServerInfo().getName()))
+                .orElse(false);
+    }
+
+    /**
+     * Picks the least busy limbo for the player from a view of backend health, e.g. one view
+     * for every player moved in the same outage
+     *
+     * @param player The player to place
+     * @param config The settings the caller is working from
+     * @param states The health view
+     * @return The limbo the player has been counted against, or empty if none is up with room
+     */
+    public Optional<RegisteredServer> placeCached(Player player, MainConfig.Snapshot config,
+                                                  ServerStateRegistry.View states) {
+        return place(player, getLimboServers(config), states::isRoutable);
+    }
+
+    private Optional<RegisteredServer> place(Player player, List<RegisteredServer> limbos,
+                                             Predicate<RegisteredServer> isOnline) {
+        Optional<RegisteredServer> limbo = fallbackBalancer.select(limbos, isOnline,
+                FallbackBalancer.Strategy.LEAST_LOADED);
+        limbo.ifPresent(server -> loadTracker.markSent(player.getUniqueId(), server.getServerInfo().getName()));
+        return limbo;
+    }
+}
@@ -0,0 +1,261 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.config.PlayerDataConfig;
+import dev.goddeh.retainlastserver.health.HealthMonitor;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Collects players arriving in limbo and redirects them in batches, once per tick. Every batch
+ * is resolved against a single view of the health monitor's states and the load tracker's last
+ * ping counts, never pinging itself, and connection requests are capped per tick so an outage
+ * does not turn into one scheduler task per player.
+ */
+public class RedirectDispatcher {
+
+    // Give the client a moment to finish joining limbo before moving it on
+    private static final long SETTLE_MILLIS = 1000;
+    // How long players wait before trying again when every online server is full
+    private static final long FULL_RETRY_MILLIS = 5000;
+
+    private final Object plugin;
+    private final ProxyServer proxy;
+    private final Logger logger;
+    private final MainConfig mainConfig;
+    private final PlayerDataConfig playerDataConfig;
+    private final ServerPriorityResolver priorityResolver;
+    private final BackendLoadTracker loadTracker;
+    private final ServerGroupRouter groupRouter;
+    private final HealthMonitor healthMonitor;
+
+    // Arrivals from event threads, in arrival order
+    private final Queue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    // Players held over from earlier ticks, only touched by the draining task
+    private final Deque<Arrival> backlog = new ArrayDeque<>();
+    private final Deque<Arrival> retries = new ArrayDeque<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private ScheduledTask task;
+
+    public RedirectDispatcher(Object plugin, ProxyServer proxy, Logger logger, MainConfig mainConfig,
+                              PlayerDataConfig playerDataConfig, ServerPriorityResolver priorityResolver,
+                              BackendLoadTracker loadTracker, ServerGroupRouter groupRouter,
+                              HealthMonitor healthMonitor) {
+        this.plugin = plugin;
+        this.proxy = proxy;
+        this.logger = logger;
+        this.mainConfig = mainConfig;
+        this.playerDataConfig = playerDataConfig;
+        this.priorityResolver = priorityResolver;
+        this.loadTracker = loadTracker;
+        this.groupRouter = groupRouter;
+        this.healthMonitor = healthMonitor;
+    }
+
+    public void start() {
+        task = proxy.getScheduler()
+                .buildTask(plugin, this::tick)
+                .repeat(mainConfig.getRedirectTickMillis(), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        // Wait out a drain already running and keep the flag, so nobody is redirected from here on
+        while (!draining.compareAndSet(false, true)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Queues a player who just landed in limbo for redirection
+     *
+     * @param player The player
+     */
+    public void enqueue(Player player) {
+        if (queued.add(player.getUniqueId())) {
+            arrivals.add(new Arrival(player.getUniqueId(), System.currentTimeMillis() + SETTLE_MILLIS));
+        }
+    }
+
+    private void tick() {
+        // Repeating tasks can overlap if a drain runs long, never drain twice at once
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drain();
+        } catch (Exception e) {
+            logger.error("Failed to redirect players out of limbo", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        long now = System.currentTimeMillis();
+        Arrival arrival;
+        while ((arrival = arrivals.peek()) != null && arrival.readyAt <= now) {
+            backlog.add(arrivals.poll());
+        }
+        while ((arrival = retries.peek()) != null && arrival.readyAt <= now) {
+            backlog.add(retries.poll());
+        }
+        loadTracker.expireStale();
+        if (backlog.isEmpty()) {
+            return;
+        }
+
+        // One reading of the settings for the whole batch, like the health view below
+        MainConfig.Snapshot config = mainConfig.snapshot();
+        Collection<RegisteredServer> servers = proxy.getAllServers();
+        List<RegisteredServer> candidates = new ArrayList<>();
+        for (RegisteredServer server : servers) {
+            if (!config.isLimboServer(server.getServerInfo().getName())) {
+                candidates.add(server);
+            }
+        }
+        // Servers the health monitor has not seen fail. One view of the health states is used for
+        // the whole batch, so every decision agrees; player counts come from the monitor's pings.
+        ServerStateRegistry.View health = healthMonitor.getStates();
+        Predicate<RegisteredServer> usable = health::isRoutable;
+        boolean anyOnline = candidates.stream().anyMatch(usable);
+
+        // Resolve the batch against the view, grouped by target backend
+        Map<RegisteredServer, List<Player>> redirects = new LinkedHashMap<>();
+        int budget = config.getRedirectMaxPerTick();
+        while (budget > 0 && (arrival = backlog.poll()) != null) {
+            queued.remove(arrival.uuid);
+            Optional<Player> player = proxy.getPlayer(arrival.uuid).filter(p -> isInLimbo(p, config));
+            if (player.isEmpty()) {
+                continue;
+            }
+
+            Optional<RegisteredServer> target = resolve(player.get(), config, candidates, usable);
+            if (target.isPresent()) {
+                redirects.computeIfAbsent(target.get(), server -> new ArrayList<>()).add(player.get());
+                // Count the player against the target now, so the rest of the batch sees them
+                loadTracker.markSent(arrival.uuid, target.get().getServerInfo().getName());
+                budget--;
+            } else if (anyOnline && playerDataConfig.getAwaitingReconnect(arrival.uuid) == null
+                    && queued.add(arrival.uuid)) {
+                // Every online server is full, try again once some room may have opened up
+                retries.add(new Arrival(arrival.uuid, now + FULL_RETRY_MILLIS));
+            }
+        }
+
+        for (Map.Entry<RegisteredServer, List<Player>> entry : redirects.entrySet()) {
+            for (Player player : entry.getValue()) {
+                player.createConnectionRequest(entry.getKey()).connectWithIndication()
+                        .whenComplete((success, throwable) -> {
+                            if (throwable != null || !Boolean.TRUE.equals(success)) {
+                                loadTracker.connectionFailed(player.getUniqueId());
+                            }
+                        });
+            }
+            logger.info("Redirecting {} players from limbo to '{}'",
+                    entry.getValue().size(), entry.getKey().getServerInfo().getName());
+        }
+
+        if (!backlog.isEmpty()) {
+            logger.debug("{} players still waiting in limbo for a redirect slot", backlog.size());
+        }
+    }
+
+    private static boolean isInLimbo(Player player, MainConfig.Snapshot config) {
+        return player.getCurrentServer()
+                .map(conn -> config.isLimboServer(conn.getServerInfo().getName()))
+                .orElse(false);
+    }
+
+    /**
+     * Works out where a player in limbo should go: the server they are waiting to reconnect to,
+     * then their priority servers, then their last server, then the least busy online server
+     *
+     * @return The target, or empty if the player should stay in limbo
+     */
+    private Optional<RegisteredServer> resolve(Player player, MainConfig.Snapshot config, List<RegisteredServer> candidates,
+                                               Predicate<RegisteredServer> usable) {
+        // Check if player is awaiting reconnect to a server
+        String awaitingServer = playerDataConfig.getAwaitingReconnect(player.getUniqueId());
+        if (awaitingServer != null) {
+            Optional<RegisteredServer> awaitingServerOpt = proxy.getServer(awaitingServer);
+            if (awaitingServerOpt.isPresent() && usable.test(awaitingServerOpt.get())) {
+                // If the original server is back online, reconnect to it
+                logger.debug("Reconnecting {} to previously disconnected server '{}'",
+                        player.getUsername(), awaitingServer);
+                return awaitingServerOpt;
+            }
+            // If player is awaiting reconnect to a server that's still offline,
+            // keep them in limbo and don't redirect them elsewhere
+            logger.debug("Keeping {} in limbo until '{}' comes back online",
+                    player.getUsername(), awaitingServer);
+            return Optional.empty();
+        }
+
+        // ONLY if the player is NOT awaiting reconnect, follow the normal priority chain
+
+        // Check for priority servers
+        Optional<RegisteredServer> priorityServer = priorityResolver.findPriorityServer(player, config, usable);
+        if (priorityServer.isPresent()) {
+            logger.debug("Redirecting {} to priority server '{}'",
+                    player.getUsername(), priorityServer.get().getServerInfo().getName());
+            return priorityServer;
+        }
+
+        // If no priority server is available, try last server only if player has permission
+        if (player.hasPermission("server.last_server")) {
+            String lastServer = playerDataConfig.getLastServer(player.getUniqueId());
+            if (lastServer != null && !config.isLimboServer(lastServer)) {
+                Optional<RegisteredServer> lastServerOpt = proxy.getServer(lastServer);
+                if (lastServerOpt.isPresent() && usable.test(lastServerOpt.get())) {
+                    logger.debug("Redirecting {} to last server '{}' (has server.last_server permission)",
+                            player.getUsername(), lastServer);
+                    return lastServerOpt;
+                }
+
+                // If the last server is down, stay within its group so only its players move
+                Optional<ServerGroup> lastGroup = groupRouter.groupOf(lastServer);
+                if (lastGroup.isPresent()) {
+                    Optional<RegisteredServer> member = groupRouter.route(lastGroup.get(), player, usable);
+                    if (member.isPresent()) {
+                        logger.debug("Redirecting {} to '{}' in the group of last server '{}'",
+                                player.getUsername(), member.get().getServerInfo().getName(), lastServer);
+                        return member;
+                    }
+                }
+            }
+        }
+
+        // If no priority or last server available, spread the player over the servers with room
+        Optional<RegisteredServer> fallback = groupRouter.findFallback(player, candidates, usable);
+        fallback.ifPresent(server -> logger.debug("Redirecting {} to fallback server '{}'",
+                player.getUsername(), server.getServerInfo().getName()));
+        return fallback;
+    }
+
+    private static final class Arrival {
+        private final UUID uuid;
+        private final long readyAt;
+
+        private Arrival(UUID uuid, long readyAt) {
+            this.uuid = uuid;
+            this.readyAt = readyAt;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.goddeh.retainlastserver.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * A pool of interchangeable servers. Players are mapped to members with rendezvous hashing over
+ * a fixed number of buckets: each bucket's full member ranking is worked out once when the group
+ * is built, so a lookup is a hash plus a walk down a short preference list no matter how big the
+ * pool is. When a member goes down only the players ranked on it move, each to their next choice.
+ */
+public class ServerGroup {
+
+    /**
+     * How a member is chosen for a player
+     */
+    public enum Strategy {
+        /** The same member for the same player while it is up */
+        CONSISTENT_HASH,
+        /** The least busy member, through the fallback balancer */
+        BALANCED;
+
+        /**
+         * Parses a strategy name from the config
+         *
+         * @param name The configured name
+         * @return The strategy, or CONSISTENT_HASH if the name is unknown
+         */
+        public static Strategy fromConfig(String name) {
+            if (name != null) {
+                try {
+                    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            return CONSISTENT_HASH;
+        }
+    }
+
+    // Power of two, so a UUID hash maps to a bucket with a mask
+    private static final int BUCKETS = 4096;
+
+    private final String name;
+    private final List<String> members;
+    private final Strategy strategy;
+    // Member indexes for every bucket, best ranked first
+    private final short[][] preferences;
+
+    public ServerGroup(String name, List<String> members, Strategy strategy) {
+        this.name = name;
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+        this.strategy = strategy;
+
+        long[] memberHashes = new long[members.size()];
+        for (int i = 0; i < memberHashes.length; i++) {
+            memberHashes[i] = hash(members.get(i));
+        }
+
+        this.preferences = new short[BUCKETS][];
+        Integer[] order = new Integer[members.size()];
+        long[] scores = new long[members.size()];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                scores[i] = mix(memberHashes[i] ^ (bucket * 0x9E3779B97F4A7C15L));
+            }
+            Arrays.sort(order, (a, b) -> Long.compareUnsigned(scores[b], scores[a]));
+            short[] ranking = new short[order.length];
+            for (int i = 0; i < order.length; i++) {
+                ranking[i] = (short) (int) order[i];
+            }
+            preferences[bucket] = ranking;
+        }
+    }
+
+    /**
+     * Picks the member a player belongs on, skipping members that cannot take them
+     *
+     * @param uuid The player's UUID
+     * @param usable Tells whether a member can take the player right now
+     * @return The member name, or null if no member is usable
+     */
+    public String pick(UUID uuid, Predicate<String> usable) {
+        int bucket = (int) mix(uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32))
+                & (BUCKETS - 1);
+        for (short member : preferences[bucket]) {
+            String server = members.get(member);
+            if (usable.test(server)) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    // FNV-1a, stable across restarts unlike identity hashes
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,152 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Resolves routing targets that may be either a server or a server group from the config, and
+ * picks the fallback server for players with nowhere else to go
+ */
+public class ServerGroupRouter {
+
+    private final ProxyServer proxy;
+    private final MainConfig mainConfig;
+    private final BackendLoadTracker loadTracker;
+    private final FallbackBalancer fallbackBalancer;
+
+    // Rebuilt whenever the config hands out a new group map
+    private volatile Groups groups = new Groups(Collections.emptyMap());
+
+    public ServerGroupRouter(ProxyServer proxy, MainConfig mainConfig, BackendLoadTracker loadTracker,
+                             FallbackBalancer fallbackBalancer) {
+        this.proxy = proxy;
+        this.mainConfig = mainConfig;
+        this.loadTracker = loadTracker;
+        this.fallbackBalancer = fallbackBalancer;
+    }
+
+    /**
+     * Gets the server groups from the current config
+     *
+     * @return The groups keyed by name, in config order
+     */
+    public Map<String, ServerGroup> getGroups() {
+        return current().byName;
+    }
+
+    /**
+     * Gets the group a server belongs to
+     *
+     * @param serverName The server name
+     * @return The first group listing the server, or empty if it is in none
+     */
+    public Optional<ServerGroup> groupOf(String serverName) {
+        return Optional.ofNullable(current().byMember.get(serverName));
+    }
+
+    /**
+     * Resolves a server or group name to a server the player can be sent to
+     *
+     * @param target A server name or a group name
+     * @param player The player being routed
+     * @param isOnline Tells whether a server is currently online
+     * @return The server, or empty if the target is unknown or nothing in it is available
+     */
+    public Optional<RegisteredServer> route(String target, Player player, Predicate<RegisteredServer> isOnline) {
+        Optional<RegisteredServer> server = proxy.getServer(target);
+        if (server.isPresent()) {
+            return isOnline.test(server.get()) ? server : Optional.empty();
+        }
+
+        ServerGroup group = current().byName.get(target);
+        return group != null ? route(group, player, isOnline) : Optional.empty();
+    }
+
+    /**
+     * Picks a member of a group for the player, skipping members that are offline or full
+     *
+     * @param group The group
+     * @param player The player being routed
+     * @param isOnline Tells whether a server is currently online
+     * @return The member, or empty if none can take the player
+     */
+    public Optional<RegisteredServer> route(ServerGroup group, Player player, Predicate<RegisteredServer> isOnline) {
+        if (group.getStrategy() == ServerGroup.Strategy.BALANCED) {
+            List<RegisteredServer> members = new ArrayList<>(group.getMembers().size());
+            for (String member : group.getMembers()) {
+                proxy.getServer(member).ifPresent(members::add);
+            }
+            return fallbackBalancer.select(members, isOnline);
+        }
+
+        String member = group.pick(player.getUniqueId(), name -> {
+            Optional<RegisteredServer> server = proxy.getServer(name);
+            return server.isPresent() && isOnline.test(server.get()) && !loadTracker.getLoad(name).isFull();
+        });
+        return member != null ? proxy.getServer(member) : Optional.empty();
+    }
+
+    /**
+     * Picks the server for a player with no priority or last server: the configured fallback
+     * group if there is one, otherwise any candidate through the fallback balancer
+     *
+     * @param player The player being routed
+     * @param candidates Servers the player may be sent to, in registration order
+     * @param isOnline Tells whether a server is currently online
+     * @return The server, or empty if none can take the player
+     */
+    public Optional<RegisteredServer> findFallback(Player player, List<RegisteredServer> candidates,
+                                                   Predicate<RegisteredServer> isOnline) {
+        ServerGroup fallbackGroup = current().byName.get(mainConfig.getFallbackGroup());
+        if (fallbackGroup != null) {
+            Optional<RegisteredServer> member = route(fallbackGroup, player, isOnline);
+            if (member.isPresent()) {
+                return member;
+            }
+        }
+        return fallbackBalancer.select(candidates, isOnline);
+    }
+
+    private Groups current() {
+        Groups current = groups;
+        Map<String, MainConfig.ServerGroupSettings> settings = mainConfig.getServerGroups();
+        if (current.settings != settings) {
+            current = new Groups(settings);
+            groups = current;
+        }
+        return current;
+    }
+
+    private static final class Groups {
+        private final Map<String, MainConfig.ServerGroupSettings> settings;
+        private final Map<String, ServerGroup> byName;
+        private final Map<String, ServerGroup> byMember;
+
+        private Groups(Map<String, MainConfig.ServerGroupSettings> settings) {
+            this.settings = settings;
+            Map<String, ServerGroup> byName = new LinkedHashMap<>();
+            Map<String, ServerGroup> byMember = new HashMap<>();
+            for (MainConfig.ServerGroupSettings group : settings.values()) {
+                ServerGroup built = new ServerGroup(group.getName(), group.getServers(),
+                        ServerGroup.Strategy.fromConfig(group.getStrategy()));
+                byName.put(group.getName(), built);
+                for (String member : group.getServers()) {
+                    byMember.putIfAbsent(member, built);
+                }
+            }
+            this.byName = Collections.unmodifiableMap(byName);
+            this.byMember = byMember;
+        }
+    }
+}
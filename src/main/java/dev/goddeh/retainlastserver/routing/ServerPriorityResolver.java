@@ -0,0 +1,82 @@
+package dev.goddeh.retainlastserver.routing;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import dev.goddeh.retainlastserver.config.MainConfig;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+public class ServerPriorityResolver {
+
+    private final ProxyServer proxy;
+    private final MainConfig mainConfig;
+    private final ServerGroupRouter groupRouter;
+
+    public ServerPriorityResolver(ProxyServer proxy, MainConfig mainConfig, ServerGroupRouter groupRouter) {
+        this.proxy = proxy;
+        this.mainConfig = mainConfig;
+        this.groupRouter = groupRouter;
+    }
+
+    /**
+     * Finds the highest priority online server the player has a server.prioritise permission for.
+     * Permissions may name a server group, in which case a member of the group is picked.
+     *
+     * @param player The player to resolve a server for
+     * @param isOnline Check used to decide whether a candidate server is online
+     * @return The server to send the player to, or empty if none is available
+     */
+    public Optional<RegisteredServer> findPriorityServer(Player player, Predicate<RegisteredServer> isOnline) {
+        return findPriorityServer(player, mainConfig.snapshot(), isOnline);
+    }
+
+    /**
+     * Finds the highest priority online server, with the settings the caller is working from
+     *
+     * @param player The player to resolve a server for
+     * @param config The settings
+     * @param isOnline Check used to decide whether a candidate server is online
+     * @return The server to send the player to, or empty if none is available
+     */
+    public Optional<RegisteredServer> findPriorityServer(Player player, MainConfig.Snapshot config,
+                                                         Predicate<RegisteredServer> isOnline) {
+        Map<Integer, String> priorityServers = new TreeMap<>(); // TreeMap to maintain priority order
+
+        // Check all servers for matching priority permissions
+        for (RegisteredServer server : proxy.getAllServers()) {
+            String serverName = server.getServerInfo().getName();
+            // Skip limbo server from priority checks
+            if (config.isLimboServer(serverName)) continue;
+
+            addPriority(player, serverName, priorityServers);
+        }
+        for (String groupName : groupRouter.getGroups().keySet()) {
+            addPriority(player, groupName, priorityServers);
+        }
+
+        // Try servers and groups in priority order
+        for (Map.Entry<Integer, String> entry : priorityServers.entrySet()) {
+            Optional<RegisteredServer> server = groupRouter.route(entry.getValue(), player, isOnline);
+            if (server.isPresent()) {
+                return server;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private void addPriority(Player player, String target, Map<Integer, String> priorityServers) {
+        // Check for priority permissions (up to priority 100 for safety)
+        for (int priority = 1; priority <= 100; priority++) {
+            String permission = "server.prioritise." + priority + "." + target;
+            if (player.hasPermission(permission)) {
+                priorityServers.put(priority, target);
+                break; // Found priority for this target, move to next one
+            }
+        }
+    }
+}
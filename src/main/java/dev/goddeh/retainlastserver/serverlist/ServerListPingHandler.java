@@ -0,0 +1,202 @@
+package dev.goddeh.retainlastserver.serverlist;
+
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import dev.goddeh.retainlastserver.config.MainConfig;
+import dev.goddeh.retainlastserver.config.MessagesConfig;
+import dev.goddeh.retainlastserver.health.HealthMonitor;
+import dev.goddeh.retainlastserver.health.ServerStateRegistry;
+import dev.goddeh.retainlastserver.routing.BackendLoadTracker;
+import dev.goddeh.retainlastserver.routing.ServerGroup;
+import dev.goddeh.retainlastserver.routing.ServerGroupRouter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fills the server list entry with the players on the whole network, per group in the hover
+ * list. The counts come from what the health checks already know, so answering a server list
+ * ping never pings a backend. The worked out numbers are cached and only recalculated when the
+ * health view or the reported player counts change.
+ */
+public class ServerListPingHandler {
+
+    private static final String ENTRY_DEFAULT = "§7%%name%%: §f%%online%%";
+    private static final UUID SAMPLE_ID = new UUID(0, 0);
+
+    private final ProxyServer proxy;
+    private final MainConfig mainConfig;
+    private final MessagesConfig messagesConfig;
+    private final HealthMonitor healthMonitor;
+    private final BackendLoadTracker loadTracker;
+    private final ServerGroupRouter groupRouter;
+    private final AtomicReference<Rendered> cache = new AtomicReference<>();
+
+    public ServerListPingHandler(ProxyServer proxy, MainConfig mainConfig, MessagesConfig messagesConfig,
+                                 HealthMonitor healthMonitor, BackendLoadTracker loadTracker,
+                                 ServerGroupRouter groupRouter) {
+        this.proxy = proxy;
+        this.mainConfig = mainConfig;
+        this.messagesConfig = messagesConfig;
+        this.healthMonitor = healthMonitor;
+        this.loadTracker = loadTracker;
+        this.groupRouter = groupRouter;
+    }
+
+    public void onProxyPing(ProxyPingEvent event) {
+        if (!mainConfig.isServerListEnabled()) {
+            return;
+        }
+
+        Rendered rendered = current();
+        ServerPing ping = event.getPing();
+        int ownOnline = ping.getPlayers().map(ServerPing.Players::getOnline).orElse(0);
+
+        ServerPing.Builder builder = ping.asBuilder()
+                // Backend counts lag a little behind, never show fewer than are on this proxy
+                .onlinePlayers(Math.max(rendered.online, ownOnline));
+        if (rendered.maxPlayers >= 0) {
+            builder.maximumPlayers(rendered.maxPlayers);
+        }
+        if (rendered.sample != null) {
+            builder.clearSamplePlayers().samplePlayers(rendered.sample);
+        }
+        event.setPing(builder.build());
+    }
+
+    /**
+     * Gets the numbers for the current health view and player counts, working them out only if
+     * either changed since last time
+     *
+     * @return The numbers to show
+     */
+    Rendered current() {
+        Key key = new Key(healthMonitor.getStates(), loadTracker.getPingVersion(), groupRouter.getGroups(),
+                mainConfig.getServerListMaxPlayers(), mainConfig.getServerListSample(),
+                messagesConfig.getRawMessage("server_list.entry", ENTRY_DEFAULT));
+
+        Rendered cached = cache.get();
+        if (cached != null && cached.key.equals(key)) {
+            return cached;
+        }
+        Rendered fresh = render(key);
+        cache.set(fresh);
+        return fresh;
+    }
+
+    private Rendered render(Key key) {
+        ServerStateRegistry.View states = key.states;
+        MainConfig.Snapshot config = mainConfig.snapshot();
+        int online = 0;
+        int maxPlayers = 0;
+        Map<String, Integer> onlineByServer = new HashMap<>();
+        List<String> servers = new ArrayList<>();
+
+        for (RegisteredServer server : proxy.getAllServers()) {
+            String serverName = server.getServerInfo().getName();
+            if (!states.isOnline(serverName)) {
+                // Its last counts are from before it went down
+                continue;
+            }
+            int serverOnline = loadTracker.getPingOnline(serverName);
+            onlineByServer.put(serverName, serverOnline);
+            online += serverOnline;
+            if (!config.isLimboServer(serverName)) {
+                maxPlayers += loadTracker.getLoad(serverName).getMaxPlayers();
+                servers.add(serverName);
+            }
+        }
+
+        ServerPing.SamplePlayer[] sample = null;
+        if ("groups".equalsIgnoreCase(key.sampleMode) && !key.groups.isEmpty()) {
+            List<ServerPing.SamplePlayer> entries = new ArrayList<>();
+            for (ServerGroup group : key.groups.values()) {
+                int groupOnline = 0;
+                for (String member : group.getMembers()) {
+                    groupOnline += onlineByServer.getOrDefault(member, 0);
+                }
+                entries.add(entry(key.entryFormat, group.getName(), groupOnline));
+            }
+            sample = entries.toArray(new ServerPing.SamplePlayer[0]);
+        } else if (!"none".equalsIgnoreCase(key.sampleMode)) {
+            // No groups configured, or 'servers' asked for
+            servers.sort(String::compareTo);
+            List<ServerPing.SamplePlayer> entries = new ArrayList<>();
+            for (String serverName : servers) {
+                entries.add(entry(key.entryFormat, serverName, onlineByServer.get(serverName)));
+            }
+            sample = entries.toArray(new ServerPing.SamplePlayer[0]);
+        }
+
+        boolean backendMax = "backends".equalsIgnoreCase(key.maxMode);
+        return new Rendered(key, online, backendMax ? maxPlayers : -1, sample);
+    }
+
+    private ServerPing.SamplePlayer entry(String format, String name, int online) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("name", name);
+        placeholders.put("online", String.valueOf(online));
+        return new ServerPing.SamplePlayer(messagesConfig.getMessage("server_list.entry", format, placeholders), SAMPLE_ID);
+    }
+
+    /**
+     * Everything the numbers depend on
+     */
+    private static final class Key {
+        private final ServerStateRegistry.View states;
+        private final long pingVersion;
+        private final Map<String, ServerGroup> groups;
+        private final String maxMode;
+        private final String sampleMode;
+        private final String entryFormat;
+
+        private Key(ServerStateRegistry.View states, long pingVersion, Map<String, ServerGroup> groups,
+                    String maxMode, String sampleMode, String entryFormat) {
+            this.states = states;
+            this.pingVersion = pingVersion;
+            this.groups = groups;
+            this.maxMode = maxMode;
+            this.sampleMode = sampleMode;
+            this.entryFormat = entryFormat;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            // Views and group maps are replaced, never modified, so identity is enough
+            return states.getGeneration() == that.states.getGeneration() && pingVersion == that.pingVersion
+                    && groups == that.groups && Objects.equals(maxMode, that.maxMode)
+                    && Objects.equals(sampleMode, that.sampleMode) && Objects.equals(entryFormat, that.entryFormat);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(states.getGeneration(), pingVersion, maxMode, sampleMode, entryFormat);
+        }
+    }
+
+    /**
+     * The worked out numbers for one key
+     */
+    static final class Rendered {
+        private final Key key;
+        private final int online;
+        private final int maxPlayers;
+        private final ServerPing.SamplePlayer[] sample;
+
+        private Rendered(Key key, int online, int maxPlayers, ServerPing.SamplePlayer[] sample) {
+            this.key = key;
+            this.online = online;
+            this.maxPlayers = maxPlayers;
+            this.sample = sample;
+        }
+    }
+}